@@ -12,10 +12,15 @@ import androidx.annotation.DrawableRes
 import androidx.annotation.IdRes
 import androidx.annotation.StringRes
 import androidx.core.content.ContextCompat
+import androidx.recyclerview.widget.DiffUtil
 import androidx.recyclerview.widget.RecyclerView
 import androidx.viewbinding.ViewBinding
 import com.hannesdorfmann.adapterdelegates4.AbsListItemAdapterDelegate
 import com.hannesdorfmann.adapterdelegates4.AdapterDelegate
+import com.hannesdorfmann.adapterdelegates4.CompositeItemCallback
+import com.hannesdorfmann.adapterdelegates4.DeferredBindScheduler
+import com.hannesdorfmann.adapterdelegates4.DelegateResourceCache
+import com.hannesdorfmann.adapterdelegates4.PayloadDispatcher
 
 /**
  * Simple DSL builder to create an [AdapterDelegate] that is backed by a [List] as dataset.
@@ -23,7 +28,25 @@ import com.hannesdorfmann.adapterdelegates4.AdapterDelegate
  *
  * @param viewBinding return a [ViewBinding] for this adapter delegate.
  * @param on The check that should be run if the AdapterDelegate is for the corresponding Item in the datasource.
- * In other words its the implementation of [AdapterDelegate.isForViewType].
+ * In other words its the implementation of [AdapterDelegate.isForViewType]. If not set, the AdapterDelegate is
+ * responsible for all items of type I and declares I as [AdapterDelegate.getItemClass], so that it is resolved by a
+ * class lookup and its [DiffUtil.ItemCallback] (see [areItemsTheSame]) is used by a [CompositeItemCallback].
+ * @param onViewRecycled Optional, see [AdapterDelegate.onViewRecycled]. Created only once and shared by all
+ * ViewHolders, a ViewHolder that defines its own onViewRecycled { ... } block ignores it. Since 4.3.3.
+ * @param onFailedToRecycleView Optional, see [AdapterDelegate.onFailedToRecycleView] and [onViewRecycled].
+ * Since 4.3.3.
+ * @param onViewAttachedToWindow Optional, see [AdapterDelegate.onViewAttachedToWindow] and [onViewRecycled].
+ * Since 4.3.3.
+ * @param onViewDetachedFromWindow Optional, see [AdapterDelegate.onViewDetachedFromWindow] and [onViewRecycled].
+ * Since 4.3.3.
+ * @param cacheResources If true, getString(), getColor(), getDrawable() and getColorStateList() of the ViewHolders
+ * use a [DelegateResourceCache] that is shared by all ViewHolders. Since 4.3.3.
+ * @param areItemsTheSame Optional, see [DiffUtil.ItemCallback.areItemsTheSame]. Builds the [DiffUtil.ItemCallback] of
+ * the AdapterDelegate (see [AdapterDelegate.getItemCallback]), without it there is none. Since 4.3.3.
+ * @param areContentsTheSame Optional, see [DiffUtil.ItemCallback.areContentsTheSame] and [areItemsTheSame]. If not
+ * set, the items are compared with equals(). Since 4.3.3.
+ * @param getChangePayload Optional, see [DiffUtil.ItemCallback.getChangePayload] and [areItemsTheSame].
+ * Since 4.3.3.
  * @param block The DSL block. Specify here what to do when the ViewHolder gets created. Think of it as some kind of
  * initializer block. For example, you would setup a click listener on a Ui widget in that block followed by specifying
  * what to do once the ViewHolder binds to the data by specifying a bind block for
@@ -31,8 +54,16 @@ import com.hannesdorfmann.adapterdelegates4.AdapterDelegate
  */
 inline fun <reified I : T, T, V : ViewBinding> adapterDelegateViewBinding(
     noinline viewBinding: (layoutInflater: LayoutInflater, parent: ViewGroup) -> V,
-    noinline on: (item: T, items: List<T>, position: Int) -> Boolean = { item, _, _ -> item is I },
+    noinline on: ((item: T, items: List<T>, position: Int) -> Boolean)? = null,
     noinline layoutInflater: (parent: ViewGroup) -> LayoutInflater = { parent -> LayoutInflater.from(parent.context) },
+    noinline onViewRecycled: (AdapterDelegateViewBindingViewHolder<I, V>.() -> Unit)? = null,
+    noinline onFailedToRecycleView: (AdapterDelegateViewBindingViewHolder<I, V>.() -> Boolean)? = null,
+    noinline onViewAttachedToWindow: (AdapterDelegateViewBindingViewHolder<I, V>.() -> Unit)? = null,
+    noinline onViewDetachedFromWindow: (AdapterDelegateViewBindingViewHolder<I, V>.() -> Unit)? = null,
+    cacheResources: Boolean = false,
+    noinline areItemsTheSame: ((oldItem: I, newItem: I) -> Boolean)? = null,
+    noinline areContentsTheSame: ((oldItem: I, newItem: I) -> Boolean)? = null,
+    noinline getChangePayload: ((oldItem: I, newItem: I) -> Any?)? = null,
     noinline block: AdapterDelegateViewBindingViewHolder<I, V>.() -> Unit
 ): AdapterDelegate<List<T>> {
 
@@ -40,26 +71,91 @@ inline fun <reified I : T, T, V : ViewBinding> adapterDelegateViewBinding(
         binding = viewBinding,
         on = on,
         initializerBlock = block,
+        itemClass = I::class.javaObjectType,
+        sharedOnViewRecycled = onViewRecycled,
+        sharedOnFailedToRecycleView = onFailedToRecycleView,
+        sharedOnViewAttachedToWindow = onViewAttachedToWindow,
+        sharedOnViewDetachedFromWindow = onViewDetachedFromWindow,
+        cacheResources = cacheResources,
+        areItemsTheSame = areItemsTheSame,
+        areContentsTheSame = areContentsTheSame,
+        getChangePayload = getChangePayload,
         layoutInflater = layoutInflater)
 }
 
 @PublishedApi
 internal class DslViewBindingListAdapterDelegate<I : T, T, V : ViewBinding>(
     private val binding: (layoutInflater: LayoutInflater, parent: ViewGroup) -> V,
-    private val on: (item: T, items: List<T>, position: Int) -> Boolean,
+    private val on: ((item: T, items: List<T>, position: Int) -> Boolean)?,
     private val initializerBlock: AdapterDelegateViewBindingViewHolder<I, V>.()->Unit,
-    private val layoutInflater: (parent: ViewGroup) -> LayoutInflater
-    ) : AbsListItemAdapterDelegate<I, T, AdapterDelegateViewBindingViewHolder<I, V>>() {
+    private val layoutInflater: (parent: ViewGroup) -> LayoutInflater,
+    private val itemClass: Class<I>?,
+    private val sharedOnViewRecycled: (AdapterDelegateViewBindingViewHolder<I, V>.() -> Unit)?,
+    private val sharedOnFailedToRecycleView: (AdapterDelegateViewBindingViewHolder<I, V>.() -> Boolean)?,
+    private val sharedOnViewAttachedToWindow: (AdapterDelegateViewBindingViewHolder<I, V>.() -> Unit)?,
+    private val sharedOnViewDetachedFromWindow: (AdapterDelegateViewBindingViewHolder<I, V>.() -> Unit)?,
+    cacheResources: Boolean,
+    areItemsTheSame: ((oldItem: I, newItem: I) -> Boolean)?,
+    areContentsTheSame: ((oldItem: I, newItem: I) -> Boolean)?,
+    getChangePayload: ((oldItem: I, newItem: I) -> Any?)?
+) : AbsListItemAdapterDelegate<I, T, AdapterDelegateViewBindingViewHolder<I, V>>() {
 
-    override fun isForViewType(item: T, items: MutableList<T>, position: Int): Boolean = on(
-        item, items, position
+    /**
+     * The constructor that code inlined from [adapterDelegateViewBinding] before 4.3.3 calls.
+     */
+    @Deprecated("Kept for binary compatibility only")
+    constructor(
+        binding: (layoutInflater: LayoutInflater, parent: ViewGroup) -> V,
+        on: (item: T, items: List<T>, position: Int) -> Boolean,
+        initializerBlock: AdapterDelegateViewBindingViewHolder<I, V>.() -> Unit,
+        layoutInflater: (parent: ViewGroup) -> LayoutInflater
+    ) : this(
+        binding = binding,
+        on = on,
+        initializerBlock = initializerBlock,
+        layoutInflater = layoutInflater,
+        itemClass = null,
+        sharedOnViewRecycled = null,
+        sharedOnFailedToRecycleView = null,
+        sharedOnViewAttachedToWindow = null,
+        sharedOnViewDetachedFromWindow = null,
+        cacheResources = false,
+        areItemsTheSame = null,
+        areContentsTheSame = null,
+        getChangePayload = null
     )
 
+    private val resourceCache: DelegateResourceCache? =
+        if (cacheResources) DelegateResourceCache() else null
+
+    private val itemCallback: DiffUtil.ItemCallback<I>? = areItemsTheSame?.let {
+        object : DiffUtil.ItemCallback<I>() {
+            override fun areItemsTheSame(oldItem: I, newItem: I): Boolean = it(oldItem, newItem)
+
+            override fun areContentsTheSame(oldItem: I, newItem: I): Boolean =
+                areContentsTheSame?.invoke(oldItem, newItem) ?: (oldItem == newItem)
+
+            override fun getChangePayload(oldItem: I, newItem: I): Any? =
+                getChangePayload?.invoke(oldItem, newItem)
+        }
+    }
+
+    override fun getItemCallback(): DiffUtil.ItemCallback<I>? = itemCallback
+
+    // All DSL delegates share this class, trace sections are named after the view type instead
+    override fun getTraceName(): String? = null
+
+    override fun getItemClass(): Class<*>? = if (on == null) itemClass else null
+
+    override fun isForViewType(item: T, items: MutableList<T>, position: Int): Boolean =
+        on?.invoke(item, items, position) ?: itemClass?.isInstance(item) ?: false
+
     override fun onCreateViewHolder(parent: ViewGroup): AdapterDelegateViewBindingViewHolder<I, V> {
         val binding = binding(layoutInflater(parent), parent)
         return AdapterDelegateViewBindingViewHolder<I, V>(
             binding
         ).also {
+            it._resourceCache = resourceCache
             initializerBlock(it)
         }
     }
@@ -70,37 +166,47 @@ internal class DslViewBindingListAdapterDelegate<I : T, T, V : ViewBinding>(
         payloads: MutableList<Any>
     ) {
         holder._item = item as Any
+        if (holder._payloadDispatcher?.dispatch(holder, payloads) == true) {
+            return // all payloads have been applied by bindPayload { ... } blocks
+        }
         holder._bind?.invoke(payloads) // It's ok to have an AdapterDelegate without binding block (i.e. static content)
     }
 
+    override fun hasDeferredBind(holder: RecyclerView.ViewHolder): Boolean {
+        @Suppress("UNCHECKED_CAST")
+        val vh = (holder as AdapterDelegateViewBindingViewHolder<I, V>)
+        return vh._bindDeferred != null
+    }
+
+    override fun onDeferredBindViewHolder(holder: RecyclerView.ViewHolder) {
+        @Suppress("UNCHECKED_CAST")
+        val vh = (holder as AdapterDelegateViewBindingViewHolder<I, V>)
+        vh._bindDeferred?.invoke()
+    }
+
     override fun onViewRecycled(holder: RecyclerView.ViewHolder) {
         @Suppress("UNCHECKED_CAST")
         val vh = (holder as AdapterDelegateViewBindingViewHolder<I, V>)
 
-        vh._onViewRecycled?.invoke()
+        vh._onViewRecycled?.invoke() ?: sharedOnViewRecycled?.invoke(vh)
     }
 
     override fun onFailedToRecycleView(holder: RecyclerView.ViewHolder): Boolean {
         @Suppress("UNCHECKED_CAST")
         val vh = (holder as AdapterDelegateViewBindingViewHolder<I, V>)
-        val block = vh._onFailedToRecycleView
-        return if (block == null) {
-            super.onFailedToRecycleView(holder)
-        } else {
-            block()
-        }
+        return vh._onFailedToRecycleView?.invoke() ?: sharedOnFailedToRecycleView?.invoke(vh) ?: false
     }
 
     override fun onViewAttachedToWindow(holder: RecyclerView.ViewHolder) {
         @Suppress("UNCHECKED_CAST")
         val vh = (holder as AdapterDelegateViewBindingViewHolder<I, V>)
-        vh._onViewAttachedToWindow?.invoke()
+        vh._onViewAttachedToWindow?.invoke() ?: sharedOnViewAttachedToWindow?.invoke(vh)
     }
 
     override fun onViewDetachedFromWindow(holder: RecyclerView.ViewHolder) {
         @Suppress("UNCHECKED_CAST")
         val vh = (holder as AdapterDelegateViewBindingViewHolder<I, V>)
-        vh._onViewDetachedFromWindow?.invoke()
+        vh._onViewDetachedFromWindow?.invoke() ?: sharedOnViewDetachedFromWindow?.invoke(vh)
     }
 }
 
@@ -156,6 +262,7 @@ class AdapterDelegateViewBindingViewHolder<T, V: ViewBinding>(
      * @since 4.3.0
      */
     fun getString(@StringRes resId: Int): String {
+        _resourceCache?.let { return it.getString(context, resId) }
         return context.getString(resId)
     }
 
@@ -191,6 +298,7 @@ class AdapterDelegateViewBindingViewHolder<T, V: ViewBinding>(
      */
     @ColorInt
     fun getColor(@ColorRes id: Int): Int {
+        _resourceCache?.let { return it.getColor(context, id) }
         return ContextCompat.getColor(context, id)
     }
 
@@ -208,6 +316,7 @@ class AdapterDelegateViewBindingViewHolder<T, V: ViewBinding>(
      * @since 4.3.0
      */
     fun getDrawable(@DrawableRes id: Int): Drawable? {
+        _resourceCache?.let { return it.getDrawable(context, id) }
         return ContextCompat.getDrawable(context, id)
     }
 
@@ -223,9 +332,16 @@ class AdapterDelegateViewBindingViewHolder<T, V: ViewBinding>(
      * does not exist.
      */
     fun getColorStateList(@ColorRes id: Int): ColorStateList? {
+        _resourceCache?.let { return it.getColorStateList(context, id) }
         return ContextCompat.getColorStateList(context, id)
     }
 
+    /**
+     * This should never be called directly (only called internally)
+     * Set by the AdapterDelegate if resources should be cached.
+     */
+    internal var _resourceCache: DelegateResourceCache? = null
+
     /**
      * This should never be called directly.
      * Use [bind] instead which internally sets this field.
@@ -233,6 +349,20 @@ class AdapterDelegateViewBindingViewHolder<T, V: ViewBinding>(
     internal var _bind: ((payloads: List<Any>) -> Unit)? = null
         private set
 
+    /**
+     * This should never be called directly (only called internally)
+     * Use [bindPayload] instead. Only allocated once a payload block is defined.
+     */
+    internal var _payloadDispatcher: PayloadDispatcher<RecyclerView.ViewHolder>? = null
+        private set
+
+    /**
+     * This should never be called directly (only called internally)
+     * Use [bindDeferred] instead.
+     */
+    internal var _bindDeferred: (() -> Unit)? = null
+        private set
+
     /**
      * This should never be called directly (only called internally)
      * Use [onViewRecycled] instead
@@ -273,6 +403,56 @@ class AdapterDelegateViewBindingViewHolder<T, V: ViewBinding>(
         _bind = bindingBlock
     }
 
+    /**
+     * Define here how a payload of type [P] is applied without binding the whole item again.
+     * If all payloads of a partial bind can be applied this way, the [bind] block is not called. Otherwise the
+     * payloads are ignored and the [bind] block is called with all payloads instead.
+     *
+     * @param merge Optionally merges multiple payloads of type [P] so that [block] is called only once
+     * @param block Applies the payload
+     * @throws IllegalArgumentException if a block for [P] is already defined
+     * @since 4.3.3
+     */
+    inline fun <reified P : Any> bindPayload(
+        noinline merge: ((older: P, newer: P) -> P)? = null,
+        noinline block: (payload: P) -> Unit
+    ) = bindPayload(P::class.java, merge, block)
+
+    /**
+     * @see bindPayload
+     * @since 4.3.3
+     */
+    fun <P : Any> bindPayload(
+        payloadClass: Class<P>,
+        merge: ((older: P, newer: P) -> P)?,
+        block: (payload: P) -> Unit
+    ) {
+        val dispatcher = _payloadDispatcher
+            ?: PayloadDispatcher<RecyclerView.ViewHolder>().also { _payloadDispatcher = it }
+        dispatcher.register(
+            payloadClass,
+            merge?.let { PayloadDispatcher.PayloadMerger(it) },
+            PayloadDispatcher.PayloadBinder<Any, P> { _, payload -> block(payload) }
+        )
+    }
+
+    /**
+     * Define here the deferrable part of binding, i.e. loading images. It runs after the [bind] block with the same
+     * item, either right away or some frames later if a [DeferredBindScheduler] is set. It never runs once the
+     * ViewHolder has been bound again or recycled, see [AdapterDelegate.onDeferredBindViewHolder].
+     *
+     * @since 4.3.3
+     */
+    fun bindDeferred(block: () -> Unit) {
+        if (_bindDeferred != null) {
+            throw IllegalStateException(
+                "bindDeferred { ... } is already defined. " +
+                        "Only one bindDeferred { ... } is allowed."
+            )
+        }
+        _bindDeferred = block
+    }
+
     /**
      * @see AdapterDelegate.onViewRecycled
      */
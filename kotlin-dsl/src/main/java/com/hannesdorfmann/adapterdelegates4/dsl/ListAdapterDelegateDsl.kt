@@ -13,16 +13,39 @@ import androidx.annotation.DrawableRes
 import androidx.annotation.IdRes
 import androidx.annotation.LayoutRes
 import androidx.annotation.StringRes
+import androidx.recyclerview.widget.DiffUtil
 import androidx.recyclerview.widget.RecyclerView
 import com.hannesdorfmann.adapterdelegates4.AbsListItemAdapterDelegate
 import com.hannesdorfmann.adapterdelegates4.AdapterDelegate
+import com.hannesdorfmann.adapterdelegates4.CompositeItemCallback
+import com.hannesdorfmann.adapterdelegates4.DeferredBindScheduler
+import com.hannesdorfmann.adapterdelegates4.DelegateResourceCache
+import com.hannesdorfmann.adapterdelegates4.PayloadDispatcher
 
 /**
  * Simple DSL builder to create an [AdapterDelegate] that is backed by a [List] as dataset.
  *
  * @param layout The android xml layout resource that contains the layout for this adapter delegate.
  * @param on The check that should be run if the AdapterDelegate is for the corresponding Item in the datasource.
- * In other words its the implementation of [AdapterDelegate.isForViewType].
+ * In other words its the implementation of [AdapterDelegate.isForViewType]. If not set, the AdapterDelegate is
+ * responsible for all items of type I and declares I as [AdapterDelegate.getItemClass], so that it is resolved by a
+ * class lookup and its [DiffUtil.ItemCallback] (see [areItemsTheSame]) is used by a [CompositeItemCallback].
+ * @param onViewRecycled Optional, see [AdapterDelegate.onViewRecycled]. Created only once and shared by all
+ * ViewHolders, a ViewHolder that defines its own onViewRecycled { ... } block ignores it. Since 4.3.3.
+ * @param onFailedToRecycleView Optional, see [AdapterDelegate.onFailedToRecycleView] and [onViewRecycled].
+ * Since 4.3.3.
+ * @param onViewAttachedToWindow Optional, see [AdapterDelegate.onViewAttachedToWindow] and [onViewRecycled].
+ * Since 4.3.3.
+ * @param onViewDetachedFromWindow Optional, see [AdapterDelegate.onViewDetachedFromWindow] and [onViewRecycled].
+ * Since 4.3.3.
+ * @param cacheResources If true, getString(), getColor(), getDrawable() and getColorStateList() of the ViewHolders
+ * use a [DelegateResourceCache] that is shared by all ViewHolders. Since 4.3.3.
+ * @param areItemsTheSame Optional, see [DiffUtil.ItemCallback.areItemsTheSame]. Builds the [DiffUtil.ItemCallback] of
+ * the AdapterDelegate (see [AdapterDelegate.getItemCallback]), without it there is none. Since 4.3.3.
+ * @param areContentsTheSame Optional, see [DiffUtil.ItemCallback.areContentsTheSame] and [areItemsTheSame]. If not
+ * set, the items are compared with equals(). Since 4.3.3.
+ * @param getChangePayload Optional, see [DiffUtil.ItemCallback.getChangePayload] and [areItemsTheSame].
+ * Since 4.3.3.
  * @param block The DSL block. Specify here what to do when the ViewHolder gets created. Think of it as some kind of
  * initializer block. For example, you would setup a click listener on a Ui widget in that block followed by specifying
  * what to do once the ViewHolder binds to the data by specifying a bind block for
@@ -30,7 +53,7 @@ import com.hannesdorfmann.adapterdelegates4.AdapterDelegate
  */
 inline fun <reified I : T, T> adapterDelegate(
     @LayoutRes layout: Int,
-    noinline on: (item: T, items: List<T>, position: Int) -> Boolean = { item, _, _ -> item is I },
+    noinline on: ((item: T, items: List<T>, position: Int) -> Boolean)? = null,
     noinline layoutInflater: (parent: ViewGroup, layoutRes: Int) -> View = { parent, layout ->
         LayoutInflater.from(parent.context).inflate(
             layout,
@@ -38,6 +61,14 @@ inline fun <reified I : T, T> adapterDelegate(
             false
         )
     },
+    noinline onViewRecycled: (AdapterDelegateViewHolder<I>.() -> Unit)? = null,
+    noinline onFailedToRecycleView: (AdapterDelegateViewHolder<I>.() -> Boolean)? = null,
+    noinline onViewAttachedToWindow: (AdapterDelegateViewHolder<I>.() -> Unit)? = null,
+    noinline onViewDetachedFromWindow: (AdapterDelegateViewHolder<I>.() -> Unit)? = null,
+    cacheResources: Boolean = false,
+    noinline areItemsTheSame: ((oldItem: I, newItem: I) -> Boolean)? = null,
+    noinline areContentsTheSame: ((oldItem: I, newItem: I) -> Boolean)? = null,
+    noinline getChangePayload: ((oldItem: I, newItem: I) -> Any?)? = null,
     noinline block: AdapterDelegateViewHolder<I>.() -> Unit
 ): AdapterDelegate<List<T>> {
 
@@ -45,6 +76,15 @@ inline fun <reified I : T, T> adapterDelegate(
         layout = layout,
         on = on,
         initializerBlock = block,
+        itemClass = I::class.javaObjectType,
+        sharedOnViewRecycled = onViewRecycled,
+        sharedOnFailedToRecycleView = onFailedToRecycleView,
+        sharedOnViewAttachedToWindow = onViewAttachedToWindow,
+        sharedOnViewDetachedFromWindow = onViewDetachedFromWindow,
+        cacheResources = cacheResources,
+        areItemsTheSame = areItemsTheSame,
+        areContentsTheSame = areContentsTheSame,
+        getChangePayload = getChangePayload,
         layoutInflater = layoutInflater
     )
 }
@@ -56,19 +96,75 @@ inline fun <reified I : T, T> adapterDelegate(
 @PublishedApi
 internal class DslListAdapterDelegate<I : T, T>(
     @LayoutRes private val layout: Int,
-    private val on: (item: T, items: List<T>, position: Int) -> Boolean,
+    private val on: ((item: T, items: List<T>, position: Int) -> Boolean)?,
     private val initializerBlock: AdapterDelegateViewHolder<I>.() -> Unit,
-    private val layoutInflater: (parent: ViewGroup, layout: Int) -> View
+    private val layoutInflater: (parent: ViewGroup, layout: Int) -> View,
+    private val itemClass: Class<I>?,
+    private val sharedOnViewRecycled: (AdapterDelegateViewHolder<I>.() -> Unit)?,
+    private val sharedOnFailedToRecycleView: (AdapterDelegateViewHolder<I>.() -> Boolean)?,
+    private val sharedOnViewAttachedToWindow: (AdapterDelegateViewHolder<I>.() -> Unit)?,
+    private val sharedOnViewDetachedFromWindow: (AdapterDelegateViewHolder<I>.() -> Unit)?,
+    cacheResources: Boolean,
+    areItemsTheSame: ((oldItem: I, newItem: I) -> Boolean)?,
+    areContentsTheSame: ((oldItem: I, newItem: I) -> Boolean)?,
+    getChangePayload: ((oldItem: I, newItem: I) -> Any?)?
 ) : AbsListItemAdapterDelegate<I, T, AdapterDelegateViewHolder<I>>() {
 
-    override fun isForViewType(item: T, items: MutableList<T>, position: Int): Boolean = on(
-        item, items, position
+    /**
+     * The constructor that code inlined from [adapterDelegate] before 4.3.3 calls.
+     */
+    @Deprecated("Kept for binary compatibility only")
+    constructor(
+        @LayoutRes layout: Int,
+        on: (item: T, items: List<T>, position: Int) -> Boolean,
+        initializerBlock: AdapterDelegateViewHolder<I>.() -> Unit,
+        layoutInflater: (parent: ViewGroup, layout: Int) -> View
+    ) : this(
+        layout = layout,
+        on = on,
+        initializerBlock = initializerBlock,
+        layoutInflater = layoutInflater,
+        itemClass = null,
+        sharedOnViewRecycled = null,
+        sharedOnFailedToRecycleView = null,
+        sharedOnViewAttachedToWindow = null,
+        sharedOnViewDetachedFromWindow = null,
+        cacheResources = false,
+        areItemsTheSame = null,
+        areContentsTheSame = null,
+        getChangePayload = null
     )
 
+    private val resourceCache: DelegateResourceCache? =
+        if (cacheResources) DelegateResourceCache() else null
+
+    private val itemCallback: DiffUtil.ItemCallback<I>? = areItemsTheSame?.let {
+        object : DiffUtil.ItemCallback<I>() {
+            override fun areItemsTheSame(oldItem: I, newItem: I): Boolean = it(oldItem, newItem)
+
+            override fun areContentsTheSame(oldItem: I, newItem: I): Boolean =
+                areContentsTheSame?.invoke(oldItem, newItem) ?: (oldItem == newItem)
+
+            override fun getChangePayload(oldItem: I, newItem: I): Any? =
+                getChangePayload?.invoke(oldItem, newItem)
+        }
+    }
+
+    override fun getItemCallback(): DiffUtil.ItemCallback<I>? = itemCallback
+
+    // All DSL delegates share this class, trace sections are named after the view type instead
+    override fun getTraceName(): String? = null
+
+    override fun getItemClass(): Class<*>? = if (on == null) itemClass else null
+
+    override fun isForViewType(item: T, items: MutableList<T>, position: Int): Boolean =
+        on?.invoke(item, items, position) ?: itemClass?.isInstance(item) ?: false
+
     override fun onCreateViewHolder(parent: ViewGroup): AdapterDelegateViewHolder<I> =
         AdapterDelegateViewHolder<I>(
             layoutInflater(parent, layout)
         ).also {
+            it._resourceCache = resourceCache
             initializerBlock(it)
         }
 
@@ -78,37 +174,47 @@ internal class DslListAdapterDelegate<I : T, T>(
         payloads: MutableList<Any>
     ) {
         holder._item = item as Any
+        if (holder._payloadDispatcher?.dispatch(holder, payloads) == true) {
+            return // all payloads have been applied by bindPayload { ... } blocks
+        }
         holder._bind?.invoke(payloads) // It's ok to have an AdapterDelegate without binding block (i.e. static content)
     }
 
+    override fun hasDeferredBind(holder: RecyclerView.ViewHolder): Boolean {
+        @Suppress("UNCHECKED_CAST")
+        val vh = (holder as AdapterDelegateViewHolder<I>)
+        return vh._bindDeferred != null
+    }
+
+    override fun onDeferredBindViewHolder(holder: RecyclerView.ViewHolder) {
+        @Suppress("UNCHECKED_CAST")
+        val vh = (holder as AdapterDelegateViewHolder<I>)
+        vh._bindDeferred?.invoke()
+    }
+
     override fun onViewRecycled(holder: RecyclerView.ViewHolder) {
         @Suppress("UNCHECKED_CAST")
         val vh = (holder as AdapterDelegateViewHolder<I>)
 
-        vh._onViewRecycled?.invoke()
+        vh._onViewRecycled?.invoke() ?: sharedOnViewRecycled?.invoke(vh)
     }
 
     override fun onFailedToRecycleView(holder: RecyclerView.ViewHolder): Boolean {
         @Suppress("UNCHECKED_CAST")
         val vh = (holder as AdapterDelegateViewHolder<I>)
-        val block = vh._onFailedToRecycleView
-        return if (block == null) {
-            super.onFailedToRecycleView(holder)
-        } else {
-            block()
-        }
+        return vh._onFailedToRecycleView?.invoke() ?: sharedOnFailedToRecycleView?.invoke(vh) ?: false
     }
 
     override fun onViewAttachedToWindow(holder: RecyclerView.ViewHolder) {
         @Suppress("UNCHECKED_CAST")
         val vh = (holder as AdapterDelegateViewHolder<I>)
-        vh._onViewAttachedToWindow?.invoke()
+        vh._onViewAttachedToWindow?.invoke() ?: sharedOnViewAttachedToWindow?.invoke(vh)
     }
 
     override fun onViewDetachedFromWindow(holder: RecyclerView.ViewHolder) {
         @Suppress("UNCHECKED_CAST")
         val vh = (holder as AdapterDelegateViewHolder<I>)
-        vh._onViewDetachedFromWindow?.invoke()
+        vh._onViewDetachedFromWindow?.invoke() ?: sharedOnViewDetachedFromWindow?.invoke(vh)
     }
 }
 
@@ -162,6 +268,7 @@ class AdapterDelegateViewHolder<T>(view: View) : RecyclerView.ViewHolder(view) {
      * @since 4.1.1
      */
     fun getString(@StringRes resId: Int): String {
+        _resourceCache?.let { return it.getString(context, resId) }
         return context.getString(resId)
     }
 
@@ -197,6 +304,7 @@ class AdapterDelegateViewHolder<T>(view: View) : RecyclerView.ViewHolder(view) {
      */
     @ColorInt
     fun getColor(@ColorRes id: Int): Int {
+        _resourceCache?.let { return it.getColor(context, id) }
         return if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
             context.getColor(id)
         } else {
@@ -218,6 +326,7 @@ class AdapterDelegateViewHolder<T>(view: View) : RecyclerView.ViewHolder(view) {
      * @since 4.1.1
      */
     fun getDrawable(@DrawableRes id: Int): Drawable {
+        _resourceCache?.let { return it.getDrawable(context, id) }
         return if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             context.getDrawable(id)!!
         } else {
@@ -237,6 +346,7 @@ class AdapterDelegateViewHolder<T>(view: View) : RecyclerView.ViewHolder(view) {
      * does not exist.
      */
     fun getColorStateList(@ColorRes id: Int): ColorStateList {
+        _resourceCache?.let { return it.getColorStateList(context, id) }
         return if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
             context.getColorStateList(id)
         } else {
@@ -244,6 +354,12 @@ class AdapterDelegateViewHolder<T>(view: View) : RecyclerView.ViewHolder(view) {
         }
     }
 
+    /**
+     * This should never be called directly (only called internally)
+     * Set by the AdapterDelegate if resources should be cached.
+     */
+    internal var _resourceCache: DelegateResourceCache? = null
+
     /**
      * This should never be called directly.
      * Use [bind] instead which internally sets this field.
@@ -251,6 +367,20 @@ class AdapterDelegateViewHolder<T>(view: View) : RecyclerView.ViewHolder(view) {
     internal var _bind: ((payloads: List<Any>) -> Unit)? = null
         private set
 
+    /**
+     * This should never be called directly (only called internally)
+     * Use [bindPayload] instead. Only allocated once a payload block is defined.
+     */
+    internal var _payloadDispatcher: PayloadDispatcher<RecyclerView.ViewHolder>? = null
+        private set
+
+    /**
+     * This should never be called directly (only called internally)
+     * Use [bindDeferred] instead.
+     */
+    internal var _bindDeferred: (() -> Unit)? = null
+        private set
+
     /**
      * This should never be called directly (only called internally)
      * Use [onViewRecycled] instead
@@ -291,6 +421,56 @@ class AdapterDelegateViewHolder<T>(view: View) : RecyclerView.ViewHolder(view) {
         this._bind = bindingBlock
     }
 
+    /**
+     * Define here how a payload of type [P] is applied without binding the whole item again.
+     * If all payloads of a partial bind can be applied this way, the [bind] block is not called. Otherwise the
+     * payloads are ignored and the [bind] block is called with all payloads instead.
+     *
+     * @param merge Optionally merges multiple payloads of type [P] so that [block] is called only once
+     * @param block Applies the payload
+     * @throws IllegalArgumentException if a block for [P] is already defined
+     * @since 4.3.3
+     */
+    inline fun <reified P : Any> bindPayload(
+        noinline merge: ((older: P, newer: P) -> P)? = null,
+        noinline block: (payload: P) -> Unit
+    ) = bindPayload(P::class.java, merge, block)
+
+    /**
+     * @see bindPayload
+     * @since 4.3.3
+     */
+    fun <P : Any> bindPayload(
+        payloadClass: Class<P>,
+        merge: ((older: P, newer: P) -> P)?,
+        block: (payload: P) -> Unit
+    ) {
+        val dispatcher = _payloadDispatcher
+            ?: PayloadDispatcher<RecyclerView.ViewHolder>().also { _payloadDispatcher = it }
+        dispatcher.register(
+            payloadClass,
+            merge?.let { PayloadDispatcher.PayloadMerger(it) },
+            PayloadDispatcher.PayloadBinder<Any, P> { _, payload -> block(payload) }
+        )
+    }
+
+    /**
+     * Define here the deferrable part of binding, i.e. loading images. It runs after the [bind] block with the same
+     * item, either right away or some frames later if a [DeferredBindScheduler] is set. It never runs once the
+     * ViewHolder has been bound again or recycled, see [AdapterDelegate.onDeferredBindViewHolder].
+     *
+     * @since 4.3.3
+     */
+    fun bindDeferred(block: () -> Unit) {
+        if (_bindDeferred != null) {
+            throw IllegalStateException(
+                "bindDeferred { ... } is already defined. " +
+                    "Only one bindDeferred { ... } is allowed."
+            )
+        }
+        _bindDeferred = block
+    }
+
     /**
      * @see AdapterDelegate.onViewRecycled
      */
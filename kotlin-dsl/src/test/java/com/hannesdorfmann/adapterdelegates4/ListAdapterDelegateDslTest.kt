@@ -77,6 +77,151 @@ class ListAdapterDelegateDslTest {
         Assert.assertSame(items[1], boundItemInBindBlock)
     }
 
+    @Test
+    fun `bindPayload blocks are used for partial binds`() {
+        val (inflater, viewGroup) = fakeLayoutInflater(0)
+        val items = listOf<Any>(Item("foo"))
+        var viewHolder: AdapterDelegateViewHolder<Item>? = null
+
+        var bindCalled = 0
+        val boundNames = mutableListOf<String>()
+
+        val delegate = adapterDelegate<Item, Any>(
+            layout = 0,
+            layoutInflater = inflater
+        ) {
+            viewHolder = this
+            bind { bindCalled++ }
+            bindPayload<String>(merge = { older, newer -> older + newer }) {
+                boundNames.add(it)
+            }
+        }
+
+        delegate.onCreateViewHolder(viewGroup)
+        Assert.assertNotNull(viewHolder)
+
+        // Payloads with a bindPayload block don't require a full bind
+        delegate.onBindViewHolder(items, 0, viewHolder!!, mutableListOf<Any>("a", "b"))
+        Assert.assertEquals(0, bindCalled)
+        Assert.assertEquals(listOf("ab"), boundNames)
+        Assert.assertSame(items[0], viewHolder!!.item)
+
+        // An unknown payload falls back to a full bind
+        delegate.onBindViewHolder(items, 0, viewHolder!!, mutableListOf<Any>("c", 1))
+        Assert.assertEquals(1, bindCalled)
+        Assert.assertEquals(listOf("ab"), boundNames)
+
+        // No payloads at all is always a full bind
+        delegate.onBindViewHolder(items, 0, viewHolder!!, mutableListOf())
+        Assert.assertEquals(2, bindCalled)
+    }
+
+    @Test
+    fun `bindDeferred block is called for deferred bind`() {
+        val (inflater, viewGroup) = fakeLayoutInflater(0)
+        var viewHolder: AdapterDelegateViewHolder<Any>? = null
+        var called = 0
+        val delegate = adapterDelegate<Any, Any>(
+            layout = 0,
+            layoutInflater = inflater
+        ) {
+            viewHolder = this
+            bindDeferred {
+                called++
+            }
+        }
+        val delegateWithoutDeferredBind = adapterDelegate<Any, Any>(
+            layout = 0,
+            layoutInflater = inflater
+        ) {
+        }
+
+        delegate.onCreateViewHolder(viewGroup)
+        Assert.assertNotNull(viewHolder)
+        Assert.assertTrue(delegate.hasDeferredBind(viewHolder!!))
+        delegate.onDeferredBindViewHolder(viewHolder!!)
+        Assert.assertEquals(1, called)
+
+        val otherViewHolder = delegateWithoutDeferredBind.onCreateViewHolder(viewGroup)
+        Assert.assertFalse(delegateWithoutDeferredBind.hasDeferredBind(otherViewHolder))
+    }
+
+    @Test
+    fun `multiple bindDeferred throws exception`() {
+        val (inflater, viewGroup) = fakeLayoutInflater(0)
+
+        try {
+            val delegate = adapterDelegate<Any, Any>(
+                layout = 0,
+                layoutInflater = inflater
+            ) {
+                bindDeferred { }
+
+                bindDeferred { }
+            }
+            delegate.onCreateViewHolder(viewGroup)
+            Assert.fail("Exception expected")
+        } catch (e: IllegalStateException) {
+            val expectedMsg =
+                "bindDeferred { ... } is already defined. Only one bindDeferred { ... } is allowed."
+            Assert.assertEquals(expectedMsg, e.message)
+        }
+    }
+
+    @Test
+    fun `optional parts are only allocated if used`() {
+        val (inflater, viewGroup) = fakeLayoutInflater(0)
+        val delegate = adapterDelegate<Any, Any>(
+            layout = 0,
+            layoutInflater = inflater
+        ) { }
+        val delegateWithCache = adapterDelegate<Any, Any>(
+            layout = 0,
+            layoutInflater = inflater,
+            cacheResources = true
+        ) {
+            bindPayload<String> { }
+        }
+
+        val viewHolder = delegate.onCreateViewHolder(viewGroup) as AdapterDelegateViewHolder<*>
+        Assert.assertNull(viewHolder._payloadDispatcher)
+        Assert.assertNull(viewHolder._resourceCache)
+        Assert.assertNull(delegate.itemCallback)
+
+        val viewHolder1 = delegateWithCache.onCreateViewHolder(viewGroup) as AdapterDelegateViewHolder<*>
+        val viewHolder2 = delegateWithCache.onCreateViewHolder(viewGroup) as AdapterDelegateViewHolder<*>
+        Assert.assertNotNull(viewHolder1._payloadDispatcher)
+        Assert.assertNotNull(viewHolder1._resourceCache)
+        Assert.assertSame(viewHolder1._resourceCache, viewHolder2._resourceCache)
+    }
+
+    @Test
+    fun `item callbacks are used by CompositeItemCallback`() {
+        data class Other(val id: Int)
+
+        val itemDelegate = adapterDelegate<Item, Any>(
+            layout = 0,
+            areItemsTheSame = { oldItem, newItem -> oldItem.name.first() == newItem.name.first() },
+            getChangePayload = { _, newItem -> newItem.name }
+        ) { }
+        val otherDelegate = adapterDelegate<Other, Any>(
+            layout = 0,
+            areItemsTheSame = { oldItem, newItem -> oldItem.id == newItem.id },
+            areContentsTheSame = { _, _ -> false }
+        ) { }
+        val manager = AdapterDelegatesManager<List<Any>>(itemDelegate, otherDelegate)
+        val itemCallback = CompositeItemCallback<Any>(manager)
+
+        Assert.assertTrue(itemCallback.areItemsTheSame(Item("foo"), Item("far")))
+        Assert.assertFalse(itemCallback.areContentsTheSame(Item("foo"), Item("far")))
+        Assert.assertTrue(itemCallback.areContentsTheSame(Item("foo"), Item("foo")))
+        Assert.assertEquals("far", itemCallback.getChangePayload(Item("foo"), Item("far")))
+
+        Assert.assertTrue(itemCallback.areItemsTheSame(Other(1), Other(1)))
+        Assert.assertFalse(itemCallback.areContentsTheSame(Other(1), Other(1)))
+        Assert.assertFalse(itemCallback.areItemsTheSame(Item("foo"), Other(1)))
+    }
+
     @Test
     fun `isForViewType is determined from generics correctly`() {
 
@@ -169,6 +314,43 @@ class ListAdapterDelegateDslTest {
         Assert.assertEquals(1, called)
     }
 
+    @Test
+    fun `shared lifecycle callbacks are called with the ViewHolder`() {
+        val (inflater, viewGroup) = fakeLayoutInflater(0)
+        val recycled = mutableListOf<AdapterDelegateViewHolder<Any>>()
+        var attached = 0
+        var perViewHolderRecycled = 0
+        var createdViewHolders = 0
+        val delegate = adapterDelegate<Any, Any>(
+            layout = 0,
+            layoutInflater = inflater,
+            onViewRecycled = { recycled.add(this) },
+            onFailedToRecycleView = { true },
+            onViewAttachedToWindow = { attached++ }
+        ) {
+            createdViewHolders++
+            if (createdViewHolders == 2) {
+                onViewRecycled { perViewHolderRecycled++ }
+            }
+        }
+
+        val viewHolder1 = delegate.onCreateViewHolder(viewGroup)
+        val viewHolder2 = delegate.onCreateViewHolder(viewGroup)
+
+        delegate.onViewRecycled(viewHolder1)
+        Assert.assertEquals(listOf(viewHolder1), recycled)
+
+        // A block defined inside the DSL block wins
+        delegate.onViewRecycled(viewHolder2)
+        Assert.assertEquals(listOf(viewHolder1), recycled)
+        Assert.assertEquals(1, perViewHolderRecycled)
+
+        Assert.assertTrue(delegate.onFailedToRecycleView(viewHolder1))
+        delegate.onViewAttachedToWindow(viewHolder2)
+        Assert.assertEquals(1, attached)
+        delegate.onViewDetachedFromWindow(viewHolder2) // no block at all
+    }
+
     @Test
     fun `multiple onViewRecycled throws exception`() {
         val layoutToInflate = 0
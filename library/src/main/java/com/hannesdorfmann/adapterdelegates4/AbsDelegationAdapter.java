@@ -60,6 +60,7 @@ public abstract class AbsDelegationAdapter<T> extends RecyclerView.Adapter {
 
     protected AdapterDelegatesManager<T> delegatesManager;
     @Nullable protected T items;
+    @Nullable private LookAheadPrefetcher<T> prefetcher;
 
     public AbsDelegationAdapter() {
         this(new AdapterDelegatesManager<T>());
@@ -124,6 +125,45 @@ public abstract class AbsDelegationAdapter<T> extends RecyclerView.Adapter {
         delegatesManager.onViewDetachedFromWindow(holder);
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        delegatesManager.onAttachedToRecyclerView(recyclerView);
+        if (delegatesManager.getMaxPrefetchDistance() <= 0) {
+            return;
+        }
+        if (prefetcher == null) {
+            prefetcher = new LookAheadPrefetcher<>(delegatesManager,
+                    new LookAheadPrefetcher.ItemsProvider<T>() {
+                        @Nullable
+                        @Override
+                        public T getItems() {
+                            return items;
+                        }
+
+                        @Override
+                        public int getItemCount() {
+                            return AbsDelegationAdapter.this.getItemCount();
+                        }
+
+                        @Override
+                        public int getItemViewType(int position) {
+                            return AbsDelegationAdapter.this.getItemViewType(position);
+                        }
+                    });
+        }
+        prefetcher.onAttachedToRecyclerView(this, recyclerView);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        delegatesManager.onDetachedFromRecyclerView(recyclerView);
+        if (prefetcher != null) {
+            prefetcher.onDetachedFromRecyclerView(this, recyclerView);
+        }
+    }
+
     /**
      * Get the items / data source of this adapter
      *
@@ -142,4 +182,21 @@ public abstract class AbsDelegationAdapter<T> extends RecyclerView.Adapter {
     public void setItems(@Nullable T items) {
         this.items = items;
     }
+
+    /**
+     * Creates ViewHolders for the registered {@link AdapterDelegate}s while the main thread is idle
+     * and puts them into the {@link RecyclerView.RecycledViewPool} of the given RecyclerView. This
+     * adapter must already be set to the RecyclerView, i.e. call it right after {@link
+     * RecyclerView#setAdapter(RecyclerView.Adapter)} and before the items are set. Add the number of
+     * ViewHolders per AdapterDelegate and call {@link RecycledViewPoolWarmUp#start()}.
+     *
+     * @param recyclerView The RecyclerView this adapter has been set to
+     * @return The not yet started warm up
+     * @throws IllegalStateException if this adapter is not set to the given RecyclerView
+     * @since 4.3.3
+     */
+    @NonNull
+    public RecycledViewPoolWarmUp<T> warmUpRecycledViewPool(@NonNull RecyclerView recyclerView) {
+        return new RecycledViewPoolWarmUp<>(this, delegatesManager, recyclerView);
+    }
 }
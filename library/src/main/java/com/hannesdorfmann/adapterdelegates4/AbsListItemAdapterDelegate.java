@@ -5,6 +5,8 @@ import android.view.ViewGroup;
 import java.util.List;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 /**
@@ -47,6 +49,12 @@ public abstract class AbsListItemAdapterDelegate<I extends T, T, VH extends Recy
         return isForViewType(items.get(position), items, position);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    final boolean isForViewType(@NonNull List<T> items, int position, @Nullable Object item) {
+        return isForViewType((T) item, items, position);
+    }
+
     @Override
     protected final void onBindViewHolder(@NonNull List<T> items, int position,
                                           @NonNull RecyclerView.ViewHolder holder, @NonNull List<Object> payloads) {
@@ -75,6 +83,19 @@ public abstract class AbsListItemAdapterDelegate<I extends T, T, VH extends Recy
     @Override
     protected abstract VH onCreateViewHolder(@NonNull ViewGroup parent);
 
+    /**
+     * Optionally provides the {@link DiffUtil.ItemCallback} for the items of type I, see
+     * {@link CompositeItemCallback}.
+     *
+     * @return The ItemCallback or <code>null</code> (the default)
+     * @since 4.3.3
+     */
+    @Nullable
+    @Override
+    protected DiffUtil.ItemCallback<I> getItemCallback() {
+        return null;
+    }
+
     /**
      * Called to bind the {@link RecyclerView.ViewHolder} to the item of the dataset
      *
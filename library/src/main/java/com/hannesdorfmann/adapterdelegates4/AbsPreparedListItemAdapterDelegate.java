@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.collection.LruCache;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * An {@link AbsListItemAdapterDelegate} that splits binding into two steps: {@link #prepare(Object)}
+ * computes everything that is expensive but doesn't need a View (i.e. formatted dates, spans,
+ * PrecomputedText) into a bind model and {@link #onBindViewHolder(Object, Object,
+ * RecyclerView.ViewHolder, List)} only applies the bind model to the ViewHolder.
+ * <pre>
+ * {@code
+ * class CatAdapterDelegate extends AbsPreparedListItemAdapterDelegate<Cat, Animal, CharSequence, CatViewHolder> {
+ *
+ *    protected CharSequence prepare(Cat cat){
+ *        return formatter.format(cat.getBirthday());
+ *    }
+ *
+ *    protected void onBindViewHolder(Cat cat, CharSequence birthday, CatViewHolder vh, List<Object> payloads){
+ *        vh.birthday.setText(birthday);
+ *    }
+ * }
+ * }
+ * </pre>
+ * <p>
+ * If an {@link Executor} has been set via {@link AdapterDelegatesManager#setBindModelExecutor(Executor)},
+ * the bind models of all items are prepared on that Executor as soon as a new list is set to the
+ * adapter (for {@link AsyncListDifferDelegationAdapter} while the diff is calculated). The bind models
+ * are cached per item (by {@link Object#equals(Object)}), so items must be immutable and implement
+ * equals() and hashCode(). The cache grows with the list, so that the bind models of all items of the
+ * current list stay cached. If a bind model isn't ready when the item is bound, it is prepared on the
+ * main thread.
+ * </p>
+ * <p>
+ * {@link #prepare(Object)} is called from a background thread and therefore must not touch any state
+ * that isn't thread safe. Which items are handled by this AdapterDelegate is determined on the main
+ * thread.
+ * </p>
+ *
+ * @param <I>  The type of the item that is managed by this AdapterDelegate. Must be a subtype of T
+ * @param <T>  The generic type of the list, in other words: {@code List<T>}
+ * @param <M>  The type of the bind model
+ * @param <VH> The type of the ViewHolder
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public abstract class AbsPreparedListItemAdapterDelegate<I extends T, T, M, VH extends RecyclerView.ViewHolder>
+        extends AbsListItemAdapterDelegate<I, T, VH> {
+
+    /**
+     * The number of bind models that are cached at least by default
+     */
+    public static final int DEFAULT_BIND_MODEL_CACHE_SIZE = 256;
+
+    private final int bindModelCacheSize;
+    private final LruCache<Object, Object> bindModels;
+
+    public AbsPreparedListItemAdapterDelegate() {
+        this(DEFAULT_BIND_MODEL_CACHE_SIZE);
+    }
+
+    /**
+     * @param bindModelCacheSize The min. number of bind models that are cached. The cache grows to the
+     *                           number of items of this type in the current list if there are more.
+     */
+    public AbsPreparedListItemAdapterDelegate(int bindModelCacheSize) {
+        if (bindModelCacheSize <= 0) {
+            throw new IllegalArgumentException(
+                    "bindModelCacheSize must be > 0 but is " + bindModelCacheSize);
+        }
+        this.bindModelCacheSize = bindModelCacheSize;
+        this.bindModels = new LruCache<>(bindModelCacheSize);
+    }
+
+    /**
+     * Computes the bind model for the given item. Called from a background thread if a {@link
+     * AdapterDelegatesManager#setBindModelExecutor(Executor)} has been set, otherwise from the main
+     * thread the first time the item is bound.
+     *
+     * @param item The item
+     * @return The bind model
+     */
+    @NonNull
+    @WorkerThread
+    protected abstract M prepare(@NonNull I item);
+
+    /**
+     * Called to bind the {@link RecyclerView.ViewHolder} to the item of the dataset
+     *
+     * @param item      The data item
+     * @param bindModel The bind model {@link #prepare(Object)} has computed for the item
+     * @param holder    The ViewHolder
+     * @param payloads  The payloads
+     */
+    protected abstract void onBindViewHolder(@NonNull I item, @NonNull M bindModel,
+                                             @NonNull VH holder, @NonNull List<Object> payloads);
+
+    @Override
+    protected final void onBindViewHolder(@NonNull I item, @NonNull VH holder,
+                                          @NonNull List<Object> payloads) {
+        onBindViewHolder(item, getBindModel(item), holder, payloads);
+    }
+
+    /**
+     * Get the bind model for the given item. Prepares it on the calling thread if it hasn't been
+     * prepared yet.
+     *
+     * @param item The item
+     * @return The bind model
+     */
+    @NonNull
+    public final M getBindModel(@NonNull I item) {
+        M bindModel = (M) bindModels.get(item);
+        if (bindModel == null) {
+            bindModel = prepareAndCache(item);
+        }
+        return bindModel;
+    }
+
+    /**
+     * Removes all cached bind models, i.e. if something {@link #prepare(Object)} depends on has
+     * changed.
+     */
+    public void clearBindModels() {
+        bindModels.evictAll();
+    }
+
+    /**
+     * Called from a background thread to prepare the bind model of the given item if not cached
+     * already.
+     */
+    @WorkerThread
+    final void prepareIfAbsent(@NonNull Object item) {
+        if (bindModels.get(item) == null) {
+            prepareAndCache((I) item);
+        }
+    }
+
+    /**
+     * Called from a background thread with the number of items of this type in the new list, so
+     * that no bind model of the current list gets evicted.
+     */
+    @WorkerThread
+    final void resizeBindModelCache(int itemCount) {
+        int maxSize = Math.max(bindModelCacheSize, itemCount);
+        if (maxSize != bindModels.maxSize()) {
+            bindModels.resize(maxSize);
+        }
+    }
+
+    /**
+     * Called from a background thread with the number of items of this type a patch has inserted
+     * or updated, so that their bind models don't evict the ones of the other items.
+     */
+    @WorkerThread
+    final void growBindModelCache(int itemCount) {
+        int maxSize = bindModels.size() + itemCount;
+        if (maxSize > bindModels.maxSize()) {
+            bindModels.resize(maxSize);
+        }
+    }
+
+    @NonNull
+    private M prepareAndCache(@NonNull I item) {
+        M bindModel = prepare(item);
+        if (bindModel == null) {
+            throw new NullPointerException(
+                    "prepare() of " + getClass().getName() + " returned null for item " + item);
+        }
+        bindModels.put(item, bindModel);
+        return bindModel;
+    }
+
+    @Override
+    protected void onTrimMemory(int level) {
+        float retainRatio = AdapterDelegatesManager.retainRatioForTrimLevel(level);
+        if (retainRatio < 1f) {
+            bindModels.trimToSize((int) (bindModels.maxSize() * retainRatio));
+        }
+    }
+}
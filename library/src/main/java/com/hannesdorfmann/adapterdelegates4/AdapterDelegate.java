@@ -19,6 +19,8 @@ package com.hannesdorfmann.adapterdelegates4;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.List;
@@ -35,6 +37,12 @@ import java.util.List;
  */
 public abstract class AdapterDelegate<T> {
 
+    /**
+     * Returned by {@link #getMaxRecycledViews()} if the default size of the {@link
+     * RecyclerView.RecycledViewPool} should be used
+     */
+    public static final int NO_MAX_RECYCLED_VIEWS = -1;
+
     /**
      * Called to determine whether this AdapterDelegate is the responsible for the given data
      * element.
@@ -45,6 +53,167 @@ public abstract class AdapterDelegate<T> {
      */
     protected abstract boolean isForViewType(@NonNull T items, int position);
 
+    /**
+     * Called by {@link AdapterDelegatesManager} instead of {@link #isForViewType(Object, int)} if
+     * the data source is a {@link List}. The item at the given position has already been fetched from
+     * the list once and is passed to every AdapterDelegate that is asked, so that lazy loading or
+     * cursor backed lists are accessed only once per dispatch.
+     *
+     * @param items    The data source of the Adapter
+     * @param position The position in the datasource
+     * @param item     The item at the given position
+     * @return true, if this item is responsible,  otherwise false
+     */
+    boolean isForViewType(@NonNull T items, int position, @Nullable Object item) {
+        return isForViewType(items, position);
+    }
+
+    /**
+     * Optionally declares the class of the items this AdapterDelegate is responsible for.
+     * <p>
+     * If a class is returned, {@link AdapterDelegatesManager} assumes that this AdapterDelegate is
+     * responsible for exactly those items of a {@link List} data source that are an instance of the
+     * returned class (or one of its subclasses). The view type is then resolved by a hash lookup on the
+     * item's class and {@link #isForViewType(Object, int)} is not called for {@link List} data
+     * sources anymore. AdapterDelegates that need position or content based checks must return
+     * <code>null</code>, which is the default.
+     * </p>
+     *
+     * @return The class of the items this AdapterDelegate is responsible for or <code>null</code> if
+     * {@link #isForViewType(Object, int)} should be used to determine that.
+     * @since 4.3.3
+     */
+    @Nullable
+    protected Class<?> getItemClass() {
+        return null;
+    }
+
+    /**
+     * Optionally provides the {@link DiffUtil.ItemCallback} for the items this AdapterDelegate is
+     * responsible for. A {@link CompositeItemCallback} routes the items to the ItemCallback of their
+     * AdapterDelegate, so that there is no need for one ItemCallback that handles all items of the
+     * adapter.
+     *
+     * @return The ItemCallback for the items of this AdapterDelegate or <code>null</code> (the
+     * default)
+     * @since 4.3.3
+     */
+    @Nullable
+    protected DiffUtil.ItemCallback<?> getItemCallback() {
+        return null;
+    }
+
+    /**
+     * Optionally declares how many ViewHolders of this AdapterDelegate the {@link
+     * RecyclerView.RecycledViewPool} should keep. {@link AdapterDelegatesManager#configureRecycledViewPool(RecyclerView.RecycledViewPool)}
+     * applies it to the RecycledViewPool of every RecyclerView the adapter gets attached to.
+     * Return a larger number for small rows that are shown many times on screen and a smaller
+     * number for large, memory hungry items.
+     *
+     * @return The maximum number of recycled ViewHolders or {@link #NO_MAX_RECYCLED_VIEWS} (the
+     * default) to keep RecyclerView's default of 5
+     * @since 4.3.3
+     */
+    protected int getMaxRecycledViews() {
+        return NO_MAX_RECYCLED_VIEWS;
+    }
+
+    /**
+     * Optionally declares how often items of this AdapterDelegate are expected in the data source,
+     * as fraction between 0 and 1 of all items. It's used as initial value for the adaptive
+     * ordering of {@link AdapterDelegatesManager#setAdaptiveOrderingEnabled(boolean)} and to size
+     * the {@link RecyclerView.RecycledViewPool} if {@link #getMaxRecycledViews()} is not declared
+     * (see {@link AdapterDelegatesManager#configureRecycledViewPool(RecyclerView.RecycledViewPool)}).
+     *
+     * @return The expected fraction of items or 0 (the default) if unknown
+     * @since 4.3.3
+     */
+    protected float getExpectedFrequency() {
+        return 0f;
+    }
+
+    /**
+     * Optionally declares how expensive (mostly in terms of memory) a ViewHolder of this
+     * AdapterDelegate is compared to the ViewHolders of other AdapterDelegates. If the system is
+     * running low on memory, {@link AdapterDelegatesManager#onTrimMemory(int)} drops pooled
+     * ViewHolders of expensive AdapterDelegates first and keeps more of the cheap and frequent ones
+     * (see {@link #getExpectedFrequency()}).
+     *
+     * @return The relative cost of a ViewHolder, 1 (the default) for an average ViewHolder
+     * @since 4.3.3
+     */
+    protected float getViewHolderCost() {
+        return 1f;
+    }
+
+    /**
+     * Optionally provides the name used for the trace sections of this AdapterDelegate if {@link
+     * AdapterDelegatesManager#setTracingEnabled(boolean)} is enabled. By default the simple name of
+     * the class is used. Return <code>null</code> if many AdapterDelegates share the same class (like
+     * the ones created by a DSL) to name the trace sections after the view type instead.
+     *
+     * @return The name of the trace sections or <code>null</code> to use the view type
+     * @since 4.3.3
+     */
+    @Nullable
+    protected String getTraceName() {
+        String className = getClass().getName();
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Called when the system is running low on memory (see {@link
+     * android.content.ComponentCallbacks2#onTrimMemory(int)}) while the adapter is attached to a
+     * RecyclerView. Release any caches this AdapterDelegate holds. ViewHolders dropped from the
+     * {@link RecyclerView.RecycledViewPool} at the same time have already been passed to {@link
+     * #onViewRecycled(RecyclerView.ViewHolder)} when they have been put into the pool.
+     *
+     * @param level The trim memory level of {@link android.content.ComponentCallbacks2}
+     * @since 4.3.3
+     */
+    protected void onTrimMemory(int level) {
+    }
+
+    /**
+     * Optionally declares how many positions ahead of the visible items in scroll direction {@link
+     * #onPrefetch(Object, int)} is called for items of this AdapterDelegate. Only supported for
+     * RecyclerViews with a {@link androidx.recyclerview.widget.LinearLayoutManager} (or subclasses like
+     * GridLayoutManager). The prefetch distance must not change, it's read once when the
+     * AdapterDelegate is registered and no prefetching is installed if all AdapterDelegates return 0.
+     *
+     * @return The look-ahead distance in positions or 0 (the default) to not prefetch at all
+     * @since 4.3.3
+     */
+    protected int getPrefetchDistance() {
+        return 0;
+    }
+
+    /**
+     * Called while scrolling when the item at the given position is about to become visible soon
+     * (see {@link #getPrefetchDistance()}). Start loading the resources the item needs (i.e. images)
+     * here, so that they are ready when {@link #onBindViewHolder(Object, int, RecyclerView.ViewHolder,
+     * List)} is called. Called at most once per position until the position becomes visible or
+     * {@link #onCancelPrefetch(Object, int)} is called.
+     *
+     * @param items    The data source
+     * @param position The position of the item in the data source
+     * @since 4.3.3
+     */
+    protected void onPrefetch(@NonNull T items, int position) {
+    }
+
+    /**
+     * Called if the item at the given position is not about to become visible anymore, i.e.
+     * because the scroll direction has changed. Cancel the work started in {@link
+     * #onPrefetch(Object, int)} here.
+     *
+     * @param items    The data source that has been passed to {@link #onPrefetch(Object, int)}
+     * @param position The position that has been passed to {@link #onPrefetch(Object, int)}
+     * @since 4.3.3
+     */
+    protected void onCancelPrefetch(@NonNull T items, int position) {
+    }
+
     /**
      * Creates the  {@link RecyclerView.ViewHolder} for the given data source item
      *
@@ -65,6 +234,35 @@ public abstract class AdapterDelegate<T> {
     protected abstract void onBindViewHolder(@NonNull T items, int position,
                                              @NonNull RecyclerView.ViewHolder holder, @NonNull List<Object> payloads);
 
+    /**
+     * Determines whether the given ViewHolder, that has just been bound completely (without
+     * payloads), has a deferrable part of binding, see {@link
+     * #onDeferredBindViewHolder(RecyclerView.ViewHolder)}.
+     *
+     * @param holder The ViewHolder that has just been bound
+     * @return true if {@link #onDeferredBindViewHolder(RecyclerView.ViewHolder)} should be called,
+     * false (the default) otherwise
+     * @since 4.3.3
+     */
+    protected boolean hasDeferredBind(@NonNull RecyclerView.ViewHolder holder) {
+        return false;
+    }
+
+    /**
+     * Called to run the deferrable part of binding (i.e. loading images or building content that is
+     * not visible at first glance) after {@link #onBindViewHolder(Object, int, RecyclerView.ViewHolder,
+     * List)}. If a {@link DeferredBindScheduler} has been set via {@link
+     * AdapterDelegatesManager#setDeferredBindScheduler(DeferredBindScheduler)}, this may be called some
+     * frames later. Otherwise it is called right after onBindViewHolder(). It is never called after the
+     * ViewHolder has been bound again or has been recycled, so everything needed can be taken from
+     * what onBindViewHolder() has stored in the ViewHolder.
+     *
+     * @param holder The ViewHolder to bind
+     * @since 4.3.3
+     */
+    protected void onDeferredBindViewHolder(@NonNull RecyclerView.ViewHolder holder) {
+    }
+
     /**
      * Called when a view created by this adapter has been recycled.
      *
@@ -16,6 +16,10 @@
 
 package com.hannesdorfmann.adapterdelegates4;
 
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.Build;
+import android.os.Trace;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
@@ -23,8 +27,15 @@ import androidx.annotation.Nullable;
 import androidx.collection.SparseArrayCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class is the element that ties {@link RecyclerView.Adapter} together with {@link
@@ -52,6 +63,13 @@ import java.util.List;
  * thrown if no {@link AdapterDelegate} is responsible to handle a certain view type
  * </p>
  *
+ * <p>
+ * {@link AdapterDelegate}s that declare the class of the items they are responsible for (see
+ * {@link AdapterDelegate#getItemClass()}) are resolved by a single hash lookup on the item's class
+ * if the data source is a {@link List}. Only the remaining {@link AdapterDelegate}s are asked one
+ * after another by calling {@link AdapterDelegate#isForViewType(Object, int)}.
+ * </p>
+ *
  * @param <T> The type of the datasource of the adapter
  * @author Hannes Dorfmann
  */
@@ -69,10 +87,135 @@ public class AdapterDelegatesManager<T> {
     private static final List<Object> PAYLOADS_EMPTY_LIST = Collections.emptyList();
 
     /**
-     * Map for ViewType to AdapterDelegate
+     * Used internally in {@link #resolvedItemClasses} for item classes no delegate has declared
+     */
+    private static final int NO_DELEGATE_INDEX = -1;
+
+    /**
+     * View types in the range [0, MAX_DENSE_VIEW_TYPE) are looked up in {@link #denseDelegates}
+     */
+    private static final int MAX_DENSE_VIEW_TYPE = 1024;
+
+    /**
+     * Map for ViewType to AdapterDelegate. Subclasses that add or remove AdapterDelegates directly
+     * instead of calling {@link #addDelegate(int, boolean, AdapterDelegate)} or {@link
+     * #removeDelegate(int)} are detected. Subclasses that replace an AdapterDelegate (same view
+     * type) directly must call {@link #onDelegatesChanged()} afterwards.
      */
     protected SparseArrayCompat<AdapterDelegate<T>> delegates = new SparseArrayCompat();
     protected AdapterDelegate<T> fallbackDelegate;
+
+    /**
+     * {@link #delegates} and its size when everything derived from it has been invalidated the last
+     * time, see {@link #checkDelegatesModified()}
+     */
+    private SparseArrayCompat<AdapterDelegate<T>> indexedDelegates;
+    private int indexedDelegatesSize;
+
+    /**
+     * Index into {@link #delegates} for the AdapterDelegates that have declared an item class, see
+     * {@link AdapterDelegate#getItemClass()}. Lazily rebuilt after the registered delegates changed.
+     */
+    private boolean dispatchIndexDirty = true;
+    private Class<?>[] declaredItemClasses;
+    private int[] predicateDelegateIndexes;
+    private final HashMap<Class<?>, Integer> resolvedItemClasses = new HashMap<>();
+
+    /**
+     * State of the adaptive ordering, see {@link #setAdaptiveOrderingEnabled(boolean)}. Arrays are
+     * indexed like {@link #delegates} and rebuilt together with the dispatch index.
+     */
+    private static final int ADAPTIVE_REORDER_INTERVAL = 256;
+    private boolean adaptiveOrdering = false;
+    private final IdentityHashMap<AdapterDelegate<T>, Integer> priorities = new IdentityHashMap<>();
+    private int[] delegatePriorities;
+    private int[] delegateHits;
+    private int[] adaptiveProbeOrder;
+    private int adaptiveDispatchCount = 0;
+
+    /**
+     * Copy of {@link #delegates} indexed directly by view type for the small non negative view types
+     * that are assigned by {@link #addDelegate(AdapterDelegate)}. Other view types (and the fallback
+     * delegate) are still looked up in {@link #delegates}. Lazily rebuilt after the registered
+     * delegates changed.
+     */
+    private boolean denseDelegatesDirty = true;
+    private AdapterDelegate<T>[] denseDelegates;
+
+    /**
+     * Cached result of {@link #getMaxPrefetchDistance()}
+     */
+    private static final int UNKNOWN_PREFETCH_DISTANCE = -1;
+    private int maxPrefetchDistance = UNKNOWN_PREFETCH_DISTANCE;
+
+    /**
+     * Copy of the values of {@link #delegates} that can be read from any thread, replaced whenever
+     * the registered delegates change, see {@link #getDelegatesSnapshot()}
+     */
+    @SuppressWarnings("unchecked")
+    private volatile AdapterDelegate<T>[] delegatesSnapshot = new AdapterDelegate[0];
+
+    @Nullable
+    private DelegateMetricsListener metricsListener;
+
+    /**
+     * Trace section names must not be longer than 127 characters
+     */
+    private static final int MAX_TRACE_SECTION_NAME_LENGTH = 127;
+
+    /**
+     * The number of ViewHolders a {@link RecyclerView.RecycledViewPool} keeps per view type by
+     * default
+     */
+    static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
+    /**
+     * Capacities per view type raised by a {@link RecycledViewPoolWarmUp}
+     */
+    private final SparseArrayCompat<Integer> warmedUpCapacities = new SparseArrayCompat<>();
+    private boolean tracingEnabled = false;
+
+    @Nullable
+    private ViewHolderPreInflater<T> preInflater;
+
+    /**
+     * What has been bound to a ViewHolder last, see {@link #setBindSkippingEnabled(boolean)}
+     */
+    private static final class BoundItem {
+        Object item;
+        int itemHashCode;
+        int position;
+        long itemId;
+    }
+
+    private boolean bindSkipping = false;
+    private final WeakHashMap<RecyclerView.ViewHolder, BoundItem> boundItems = new WeakHashMap<>();
+    @Nullable
+    private RecyclerView.Adapter<?> bindSkippingAdapter;
+    private final RecyclerView.AdapterDataObserver bindSkippingObserver =
+            new RecyclerView.AdapterDataObserver() {
+                @Override
+                public void onChanged() {
+                    // Without stable ids a ViewHolder may show any item after a full invalidation
+                    if (bindSkippingAdapter == null || !bindSkippingAdapter.hasStableIds()) {
+                        boundItems.clear();
+                    }
+                }
+            };
+
+    private final ArrayList<RecyclerView> attachedRecyclerViews = new ArrayList<>();
+    private boolean trimMemoryEnabled = false;
+    @Nullable
+    private TrimMemoryCallbacks trimMemoryCallbacks;
+    private final IdentityHashMap<AdapterDelegate<T>, String[]> traceSectionNames =
+            new IdentityHashMap<>();
+
+    @Nullable
+    private DeferredBindScheduler deferredBindScheduler;
+
+    @Nullable
+    private Executor bindModelExecutor;
+    private final AtomicInteger bindModelGeneration = new AtomicInteger();
     
     /**
      * Creates a AdapterDelegatesManager without any delegates.
@@ -176,10 +319,51 @@ public class AdapterDelegatesManager<T> {
         }
 
         delegates.put(viewType, delegate);
+        onDelegatesChanged();
 
         return this;
     }
 
+    /**
+     * Adds an {@link AdapterDelegate} with a stable view type that is the same for the given key in
+     * every AdapterDelegatesManager of this process (see {@link StableViewTypes}). Use this together
+     * with a {@link RecyclerView.RecycledViewPool} shared between multiple adapters (i.e. in nested
+     * RecyclerViews or across screens) so that ViewHolders created by one adapter can be reused by
+     * another one. Every AdapterDelegate registered with the same key must be able to bind the
+     * ViewHolders created by the others.
+     *
+     * @param key      The key to look up the view type, i.e. the AdapterDelegate's class
+     * @param delegate the delegate to add
+     * @return self
+     * @throws NullPointerException     if passed key or delegate is null
+     * @throws IllegalArgumentException if another AdapterDelegate is already registered for the view
+     *                                  type of the given key
+     * @see StableViewTypes#getViewType(Object)
+     * @since 4.3.3
+     */
+    public AdapterDelegatesManager<T> addStableDelegate(@NonNull Object key,
+                                                        @NonNull AdapterDelegate<T> delegate) {
+        return addDelegate(StableViewTypes.getViewType(key), false, delegate);
+    }
+
+    /**
+     * Adds an {@link AdapterDelegate} with a stable view type by using the AdapterDelegate's class as
+     * key. Only use this if all instances of the AdapterDelegate's class create the same kind of
+     * ViewHolder. AdapterDelegates created with the kotlin dsl share the same class, use {@link
+     * #addStableDelegate(Object, AdapterDelegate)} with i.e. the layout resource as key instead.
+     *
+     * @param delegate the delegate to add
+     * @return self
+     * @see #addStableDelegate(Object, AdapterDelegate)
+     * @since 4.3.3
+     */
+    public AdapterDelegatesManager<T> addStableDelegate(@NonNull AdapterDelegate<T> delegate) {
+        if (delegate == null) {
+            throw new NullPointerException("AdapterDelegate is null!");
+        }
+        return addStableDelegate(delegate.getClass(), delegate);
+    }
+
     /**
      * Removes a previously registered delegate if and only if the passed delegate is registered
      * (checks the reference of the object). This will not remove any other delegate for the same
@@ -198,6 +382,9 @@ public class AdapterDelegatesManager<T> {
 
         if (indexToRemove >= 0) {
             delegates.removeAt(indexToRemove);
+            priorities.remove(delegate);
+            traceSectionNames.remove(delegate);
+            onDelegatesChanged();
         }
         return this;
     }
@@ -209,10 +396,60 @@ public class AdapterDelegatesManager<T> {
      * @return self
      */
     public AdapterDelegatesManager<T> removeDelegate(int viewType) {
+        AdapterDelegate<T> delegate = delegates.get(viewType);
+        if (delegate != null) {
+            priorities.remove(delegate);
+            traceSectionNames.remove(delegate);
+        }
         delegates.remove(viewType);
+        onDelegatesChanged();
         return this;
     }
 
+    /**
+     * Invalidates everything that is derived from the registered AdapterDelegates, i.e. the index
+     * used to resolve view types. Only subclasses that modify {@link #delegates} directly have to
+     * call this, see {@link #delegates}.
+     *
+     * @since 4.3.3
+     */
+    @SuppressWarnings("unchecked")
+    protected void onDelegatesChanged() {
+        indexedDelegates = delegates;
+        indexedDelegatesSize = delegates.size();
+        dispatchIndexDirty = true;
+        denseDelegatesDirty = true;
+        maxPrefetchDistance = UNKNOWN_PREFETCH_DISTANCE;
+
+        AdapterDelegate<T>[] snapshot = new AdapterDelegate[delegates.size()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = delegates.valueAt(i);
+        }
+        delegatesSnapshot = snapshot;
+    }
+
+    /**
+     * Invalidates everything that is derived from the registered AdapterDelegates if a subclass has
+     * added or removed AdapterDelegates directly or replaced {@link #delegates}.
+     */
+    private void checkDelegatesModified() {
+        if (delegates != indexedDelegates || delegates.size() != indexedDelegatesSize) {
+            onDelegatesChanged();
+        }
+    }
+
+    /**
+     * Get the registered AdapterDelegates (without the fallback delegate) in the order of their
+     * view types. Can be called from any thread. The returned array is never modified, it is
+     * replaced by a new one whenever the registered AdapterDelegates change.
+     *
+     * @return The registered AdapterDelegates
+     */
+    @NonNull
+    AdapterDelegate<T>[] getDelegatesSnapshot() {
+        return delegatesSnapshot;
+    }
+
     /**
      * Must be called from {@link RecyclerView.Adapter#getItemViewType(int)}. Internally it scans all
      * the registered {@link AdapterDelegate} and picks the right one to return the ViewType integer.
@@ -232,10 +469,15 @@ public class AdapterDelegatesManager<T> {
             throw new NullPointerException("Items datasource is null!");
         }
 
+        checkDelegatesModified();
+        if (items instanceof List<?>) {
+            return getItemViewType(items, position, ((List<?>) items).get(position));
+        }
+
         int delegatesCount = delegates.size();
         for (int i = 0; i < delegatesCount; i++) {
-            AdapterDelegate<T> delegate = delegates.valueAt(i);
-            if (delegate.isForViewType(items, position)) {
+            // there is no item for data sources other than List, isForViewType(items, position) is called
+            if (isForViewType(i, items, position, null)) {
                 return delegates.keyAt(i);
             }
         }
@@ -244,16 +486,284 @@ public class AdapterDelegatesManager<T> {
             return FALLBACK_DELEGATE_VIEW_TYPE;
         }
 
-        final String errorMessage;
+        throw new NullPointerException("No AdapterDelegate added for item at position=" + position + ". items=" + items);
+    }
 
-        if (items instanceof List<?>) {
-            String itemString = ((List<?>) items).get(position).toString();
-            errorMessage = "No AdapterDelegate added that matches item=" + itemString + " at position=" + position + " in data source";
-        }  else {
-            errorMessage = "No AdapterDelegate added for item at position=" + position + ". items=" + items;
+    /**
+     * Resolves the view type for an item of a {@link List} data source. The item is fetched only
+     * once from the list and then passed to the AdapterDelegates. AdapterDelegates that have
+     * declared an item class are resolved by looking up the item's class. All other AdapterDelegates
+     * are asked by calling {@link AdapterDelegate#isForViewType(Object, int, Object)}, but only those
+     * that have been registered with a lower view type than the one found by the class lookup (if
+     * any) because they would have been asked first by a linear scan.
+     */
+    private int getItemViewType(@NonNull T items, int position, @Nullable Object item) {
+        if (dispatchIndexDirty) {
+            rebuildDispatchIndex();
+        }
+
+        int classMatchIndex = item == null ? NO_DELEGATE_INDEX : findDelegateIndexForItemClass(item.getClass());
+        int delegateIndex = adaptiveOrdering
+                ? findDelegateIndexAdaptive(items, position, item, classMatchIndex)
+                : findDelegateIndex(items, position, item, classMatchIndex);
+
+        if (delegateIndex != NO_DELEGATE_INDEX) {
+            return delegates.keyAt(delegateIndex);
+        }
+
+        if (fallbackDelegate != null) {
+            return FALLBACK_DELEGATE_VIEW_TYPE;
+        }
+
+        throw new NullPointerException("No AdapterDelegate added that matches item=" + item + " at position=" + position + " in data source");
+    }
+
+    /**
+     * Asks the AdapterDelegates without declared item class in the order of their view types.
+     *
+     * @return the index in {@link #delegates} or {@link #NO_DELEGATE_INDEX}
+     */
+    private int findDelegateIndex(@NonNull T items, int position, @Nullable Object item,
+                                  int classMatchIndex) {
+        int[] predicateIndexes = predicateDelegateIndexes;
+        for (int i = 0; i < predicateIndexes.length; i++) {
+            int delegateIndex = predicateIndexes[i];
+            if (classMatchIndex != NO_DELEGATE_INDEX && delegateIndex > classMatchIndex) {
+                break;
+            }
+            if (isForViewType(delegateIndex, items, position, item)) {
+                return delegateIndex;
+            }
+        }
+        return classMatchIndex;
+    }
+
+    /**
+     * Asks the AdapterDelegates without declared item class ordered by priority first and how often
+     * they have matched second. The order is recalculated every {@link #ADAPTIVE_REORDER_INTERVAL}
+     * matches. Like {@link #findDelegateIndex(Object, int, Object, int)} a class match is only
+     * returned after all AdapterDelegates without declared item class that have been registered with
+     * a lower view type have been asked.
+     *
+     * @return the index in {@link #delegates} or {@link #NO_DELEGATE_INDEX}
+     * @see #setAdaptiveOrderingEnabled(boolean)
+     */
+    private int findDelegateIndexAdaptive(@NonNull T items, int position, @Nullable Object item,
+                                          int classMatchIndex) {
+        int[] order = adaptiveProbeOrder;
+        int remaining = order.length;
+        if (classMatchIndex != NO_DELEGATE_INDEX) {
+            // Not found, so binarySearch() returns -(number of lower predicate indexes) - 1
+            remaining = -Arrays.binarySearch(predicateDelegateIndexes, classMatchIndex) - 1;
+        }
+        int matchIndex = classMatchIndex;
+        for (int i = 0; i < order.length && remaining > 0; i++) {
+            int delegateIndex = order[i];
+            if (classMatchIndex != NO_DELEGATE_INDEX && delegateIndex > classMatchIndex) {
+                continue;
+            }
+            if (isForViewType(delegateIndex, items, position, item)) {
+                matchIndex = delegateIndex;
+                break;
+            }
+            remaining--;
+        }
+
+        if (matchIndex != NO_DELEGATE_INDEX) {
+            delegateHits[matchIndex]++;
+            if (++adaptiveDispatchCount >= ADAPTIVE_REORDER_INTERVAL) {
+                reorderAdaptiveProbeOrder();
+            }
+        }
+        return matchIndex;
+    }
+
+    /**
+     * Asks the AdapterDelegate at the given index in {@link #delegates} whether it is responsible for
+     * the given item.
+     */
+    private boolean isForViewType(int delegateIndex, @NonNull T items, int position,
+                                  @Nullable Object item) {
+        AdapterDelegate<T> delegate = delegates.valueAt(delegateIndex);
+        if (metricsListener == null && !tracingEnabled) {
+            return delegate.isForViewType(items, position, item);
+        }
+
+        int viewType = delegates.keyAt(delegateIndex);
+        long start = beginEvent(delegate, viewType, DelegateMetricsListener.EVENT_IS_FOR_VIEW_TYPE);
+        try {
+            return delegate.isForViewType(items, position, item);
+        } finally {
+            endEvent(delegate, viewType, DelegateMetricsListener.EVENT_IS_FOR_VIEW_TYPE, start);
+        }
+    }
+
+    /**
+     * Starts measuring an event if a {@link DelegateMetricsListener} is set or tracing is enabled.
+     * Must be followed by {@link #endEvent(AdapterDelegate, int, int, long)}.
+     *
+     * @return the start time in nanoseconds
+     */
+    private long beginEvent(@NonNull AdapterDelegate<T> delegate, int viewType, int event) {
+        if (isTracing()) {
+            Trace.beginSection(getTraceSectionName(delegate, viewType, event));
+        }
+        return System.nanoTime();
+    }
+
+    private void endEvent(@NonNull AdapterDelegate<T> delegate, int viewType, int event, long start) {
+        DelegateMetricsListener listener = metricsListener;
+        if (listener != null) {
+            listener.onDelegateEvent(delegate, viewType, event, System.nanoTime() - start);
+        }
+        if (isTracing()) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * {@link Trace} is available since API 18, on older devices tracing is a no-op.
+     */
+    private boolean isTracing() {
+        return tracingEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    /**
+     * Get the trace section name of the given delegate and event. Names are computed only once per
+     * AdapterDelegate. AdapterDelegates without {@link AdapterDelegate#getTraceName()} are named
+     * after their view type.
+     */
+    @NonNull
+    private String getTraceSectionName(@NonNull AdapterDelegate<T> delegate, int viewType,
+                                       int event) {
+        String[] names = traceSectionNames.get(delegate);
+        if (names == null) {
+            String delegateName = delegate.getTraceName();
+            if (delegateName == null) {
+                delegateName = "viewType " + viewType;
+            }
+            names = new String[DelegateMetricsListener.EVENT_COUNT];
+            names[DelegateMetricsListener.EVENT_IS_FOR_VIEW_TYPE] =
+                    traceSectionName(delegateName, "isForViewType");
+            names[DelegateMetricsListener.EVENT_CREATE_VIEW_HOLDER] =
+                    traceSectionName(delegateName, "onCreateViewHolder");
+            names[DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER] =
+                    traceSectionName(delegateName, "onBindViewHolder");
+            names[DelegateMetricsListener.EVENT_VIEW_RECYCLED] =
+                    traceSectionName(delegateName, "onViewRecycled");
+            traceSectionNames.put(delegate, names);
+        }
+        return names[event];
+    }
+
+    @NonNull
+    static String traceSectionName(@NonNull String delegateName, @NonNull String event) {
+        String name = "AD " + delegateName + "." + event;
+        return name.length() > MAX_TRACE_SECTION_NAME_LENGTH
+                ? name.substring(0, MAX_TRACE_SECTION_NAME_LENGTH)
+                : name;
+    }
+
+    /**
+     * Sorts {@link #adaptiveProbeOrder} by priority (descending), hits (descending) and view type
+     * (ascending) and halves the hits afterwards so that the order adapts to a changing data source.
+     */
+    private void reorderAdaptiveProbeOrder() {
+        int[] order = adaptiveProbeOrder;
+        for (int i = 1; i < order.length; i++) {
+            int delegateIndex = order[i];
+            int j = i - 1;
+            while (j >= 0 && probesBefore(delegateIndex, order[j])) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = delegateIndex;
+        }
+
+        for (int i = 0; i < delegateHits.length; i++) {
+            delegateHits[i] >>= 1;
         }
+        adaptiveDispatchCount = 0;
+    }
+
+    private boolean probesBefore(int delegateIndex, int otherDelegateIndex) {
+        if (delegatePriorities[delegateIndex] != delegatePriorities[otherDelegateIndex]) {
+            return delegatePriorities[delegateIndex] > delegatePriorities[otherDelegateIndex];
+        }
+        if (delegateHits[delegateIndex] != delegateHits[otherDelegateIndex]) {
+            return delegateHits[delegateIndex] > delegateHits[otherDelegateIndex];
+        }
+        return delegateIndex < otherDelegateIndex;
+    }
+
+    /**
+     * Finds the index in {@link #delegates} of the first AdapterDelegate that has declared the given
+     * class or one of its super types as item class. Results are cached per class so that subclasses
+     * only have to be resolved once.
+     *
+     * @return the index in {@link #delegates} or {@link #NO_DELEGATE_INDEX}
+     */
+    private int findDelegateIndexForItemClass(@NonNull Class<?> itemClass) {
+        if (declaredItemClasses.length == 0) {
+            return NO_DELEGATE_INDEX;
+        }
+
+        Integer cached = resolvedItemClasses.get(itemClass);
+        if (cached != null) {
+            return cached;
+        }
+
+        int index = NO_DELEGATE_INDEX;
+        for (int i = 0; i < declaredItemClasses.length; i++) {
+            Class<?> declared = declaredItemClasses[i];
+            if (declared != null && declared.isAssignableFrom(itemClass)) {
+                index = i;
+                break;
+            }
+        }
+        resolvedItemClasses.put(itemClass, index);
+        return index;
+    }
+
+    private void rebuildDispatchIndex() {
+        int delegatesCount = delegates.size();
+        Class<?>[] itemClasses = new Class<?>[delegatesCount];
+        int[] predicateIndexes = new int[delegatesCount];
+        int predicateCount = 0;
+        int itemClassCount = 0;
+        for (int i = 0; i < delegatesCount; i++) {
+            Class<?> itemClass = delegates.valueAt(i).getItemClass();
+            if (itemClass == null) {
+                predicateIndexes[predicateCount++] = i;
+            } else {
+                itemClasses[i] = itemClass;
+                itemClassCount++;
+            }
+        }
+
+        declaredItemClasses = itemClassCount == 0 ? new Class<?>[0] : itemClasses;
+        predicateDelegateIndexes = predicateCount == delegatesCount
+                ? predicateIndexes
+                : Arrays.copyOf(predicateIndexes, predicateCount);
+        resolvedItemClasses.clear();
+
+        delegatePriorities = new int[delegatesCount];
+        for (int i = 0; i < delegatesCount; i++) {
+            Integer priority = priorities.get(delegates.valueAt(i));
+            delegatePriorities[i] = priority == null ? 0 : priority;
+        }
+        delegateHits = new int[delegatesCount];
+        for (int i = 0; i < delegatesCount; i++) {
+            float expectedFrequency = delegates.valueAt(i).getExpectedFrequency();
+            if (expectedFrequency > 0) {
+                // doubled because reorderAdaptiveProbeOrder() halves the hits
+                delegateHits[i] = (int) (2 * Math.min(expectedFrequency, 1f) * ADAPTIVE_REORDER_INTERVAL);
+            }
+        }
+        adaptiveProbeOrder = predicateDelegateIndexes.clone();
+        reorderAdaptiveProbeOrder();
 
-        throw new NullPointerException(errorMessage);
+        dispatchIndexDirty = false;
     }
 
     /**
@@ -272,7 +782,25 @@ public class AdapterDelegatesManager<T> {
             throw new NullPointerException("No AdapterDelegate added for ViewType " + viewType);
         }
 
-        RecyclerView.ViewHolder vh = delegate.onCreateViewHolder(parent);
+        if (preInflater != null) {
+            RecyclerView.ViewHolder preInflated = preInflater.poll(viewType);
+            if (preInflated != null) {
+                return preInflated;
+            }
+        }
+
+        RecyclerView.ViewHolder vh;
+        if (metricsListener == null && !tracingEnabled) {
+            vh = delegate.onCreateViewHolder(parent);
+        } else {
+            long start = beginEvent(delegate, viewType,
+                    DelegateMetricsListener.EVENT_CREATE_VIEW_HOLDER);
+            try {
+                vh = delegate.onCreateViewHolder(parent);
+            } finally {
+                endEvent(delegate, viewType, DelegateMetricsListener.EVENT_CREATE_VIEW_HOLDER, start);
+            }
+        }
         if (vh == null) {
             throw new NullPointerException("ViewHolder returned from AdapterDelegate "
                     + delegate
@@ -304,8 +832,79 @@ public class AdapterDelegatesManager<T> {
                     + " for viewType = "
                     + holder.getItemViewType());
         }
-        delegate.onBindViewHolder(items, position, holder,
-                payloads != null ? payloads : PAYLOADS_EMPTY_LIST);
+
+        if (bindSkipping) {
+            if (payloads != null && !payloads.isEmpty()) {
+                // A partial bind changes the views, the next full bind must not be skipped
+                boundItems.remove(holder);
+            } else if (items instanceof List<?>
+                    && isAlreadyBound(holder, position, ((List<?>) items).get(position))) {
+                return;
+            }
+        }
+
+        if (metricsListener == null && !tracingEnabled) {
+            delegate.onBindViewHolder(items, position, holder,
+                    payloads != null ? payloads : PAYLOADS_EMPTY_LIST);
+        } else {
+            int viewType = holder.getItemViewType();
+            long start = beginEvent(delegate, viewType, DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER);
+            try {
+                delegate.onBindViewHolder(items, position, holder,
+                        payloads != null ? payloads : PAYLOADS_EMPTY_LIST);
+            } finally {
+                endEvent(delegate, viewType, DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER, start);
+            }
+        }
+
+        if (payloads == null || payloads.isEmpty()) {
+            onFullBind(delegate, holder);
+        }
+    }
+
+    /**
+     * Runs or schedules the deferred bind after the ViewHolder has been bound completely
+     */
+    private void onFullBind(@NonNull AdapterDelegate<T> delegate,
+                            @NonNull RecyclerView.ViewHolder holder) {
+        if (deferredBindScheduler != null) {
+            deferredBindScheduler.cancel(holder);
+        }
+        if (delegate.hasDeferredBind(holder)) {
+            if (deferredBindScheduler != null) {
+                deferredBindScheduler.schedule(delegate, holder);
+            } else {
+                delegate.onDeferredBindViewHolder(holder);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given ViewHolder already shows the given item at the given position and
+     * remembers the item as bound otherwise.
+     *
+     * @return true if binding can be skipped
+     */
+    private boolean isAlreadyBound(@NonNull RecyclerView.ViewHolder holder, int position,
+                                   @Nullable Object item) {
+        int itemHashCode = item == null ? 0 : item.hashCode();
+        long itemId = holder.getItemId();
+        BoundItem bound = boundItems.get(holder);
+        if (bound == null) {
+            bound = new BoundItem();
+            boundItems.put(holder, bound);
+        } else if (bound.position == position
+                && bound.itemId == itemId
+                && bound.itemHashCode == itemHashCode
+                && (bound.item == item || (item != null && item.equals(bound.item)))) {
+            return true;
+        }
+
+        bound.item = item;
+        bound.itemHashCode = itemHashCode;
+        bound.position = position;
+        bound.itemId = itemId;
+        return false;
     }
 
     /**
@@ -338,7 +937,25 @@ public class AdapterDelegatesManager<T> {
                     + " for viewType = "
                     + holder.getItemViewType());
         }
-        delegate.onViewRecycled(holder);
+
+        if (bindSkipping) {
+            boundItems.remove(holder);
+        }
+        if (deferredBindScheduler != null) {
+            deferredBindScheduler.cancel(holder);
+        }
+
+        if (metricsListener == null && !tracingEnabled) {
+            delegate.onViewRecycled(holder);
+        } else {
+            int viewType = holder.getItemViewType();
+            long start = beginEvent(delegate, viewType, DelegateMetricsListener.EVENT_VIEW_RECYCLED);
+            try {
+                delegate.onViewRecycled(holder);
+            } finally {
+                endEvent(delegate, viewType, DelegateMetricsListener.EVENT_VIEW_RECYCLED, start);
+            }
+        }
     }
 
     /**
@@ -401,6 +1018,554 @@ public class AdapterDelegatesManager<T> {
         delegate.onViewDetachedFromWindow(holder);
     }
 
+    /**
+     * Enables or disables adaptive ordering. By default AdapterDelegates are asked in the order of
+     * their view types whether they are responsible for a given item. If adaptive ordering is
+     * enabled, AdapterDelegates that match more often are asked first. The order is recalculated
+     * periodically while items are dispatched.
+     * <p>
+     * Adaptive ordering only returns the same view type as the default ordering if AdapterDelegates
+     * with the same priority never match the same item. If the checks of some AdapterDelegates
+     * overlap, give the one that should win a higher priority via {@link
+     * #setDelegatePriority(AdapterDelegate, int)}: AdapterDelegates with a higher priority are always
+     * asked first, no matter how often other AdapterDelegates have matched. Adaptive ordering is only
+     * applied to {@link List} data sources and AdapterDelegates that do not declare an item class
+     * (see {@link AdapterDelegate#getItemClass()}). An AdapterDelegate that declares the item's class
+     * is still only used if none of the AdapterDelegates registered with a lower view type matches,
+     * regardless of priorities.
+     * </p>
+     *
+     * @param enabled true to enable adaptive ordering, otherwise false
+     * @return self
+     * @since 4.3.3
+     */
+    public AdapterDelegatesManager<T> setAdaptiveOrderingEnabled(boolean enabled) {
+        this.adaptiveOrdering = enabled;
+        dispatchIndexDirty = true;
+        return this;
+    }
+
+    /**
+     * Set the priority of a registered {@link AdapterDelegate} for adaptive ordering (see {@link
+     * #setAdaptiveOrderingEnabled(boolean)}). AdapterDelegates with a higher priority are asked before
+     * AdapterDelegates with a lower priority. The default priority is 0.
+     *
+     * @param delegate The delegate
+     * @param priority The priority
+     * @return self
+     * @since 4.3.3
+     */
+    public AdapterDelegatesManager<T> setDelegatePriority(@NonNull AdapterDelegate<T> delegate,
+                                                          int priority) {
+        if (delegate == null) {
+            throw new NullPointerException("AdapterDelegate is null");
+        }
+        priorities.put(delegate, priority);
+        dispatchIndexDirty = true;
+        return this;
+    }
+
+    /**
+     * Enables or disables skipping {@link AdapterDelegate#onBindViewHolder(Object, int,
+     * RecyclerView.ViewHolder, List)} for ViewHolders that already show an equal item at the same
+     * position (and with the same stable id). To detect that, the item, its {@link
+     * Object#hashCode()}, its position and its stable id are remembered per ViewHolder until the
+     * ViewHolder gets recycled. Binds with payloads are always forwarded and make the ViewHolder
+     * forget the remembered item, so that the next full bind isn't skipped.
+     * <p>
+     * {@link RecyclerView.Adapter#notifyDataSetChanged()} forgets all remembered items unless the
+     * adapter {@link RecyclerView.Adapter#hasStableIds() has stable ids}, because only then
+     * RecyclerView rebinds every ViewHolder to the item it has shown before. Therefore binding is
+     * only skipped after a full invalidation if the adapter has stable ids.
+     * </p>
+     * <p>
+     * Only enable this for {@link List} data sources of immutable items that implement equals() and
+     * hashCode() based on their content: binding is skipped if the item is the same instance or
+     * equal to the one bound before. An item that is changed in place is not bound again.
+     * </p>
+     *
+     * @param enabled true to skip binding unchanged items, otherwise false
+     * @return self
+     * @since 4.3.3
+     */
+    public AdapterDelegatesManager<T> setBindSkippingEnabled(boolean enabled) {
+        this.bindSkipping = enabled;
+        boundItems.clear();
+        updateBindSkippingObserver();
+        return this;
+    }
+
+    /**
+     * Observes the adapter of the attached RecyclerView for full invalidations while bind skipping
+     * is enabled
+     */
+    private void updateBindSkippingObserver() {
+        RecyclerView.Adapter<?> adapter = bindSkipping && !attachedRecyclerViews.isEmpty()
+                ? attachedRecyclerViews.get(0).getAdapter()
+                : null;
+        if (adapter == bindSkippingAdapter) {
+            return;
+        }
+        if (bindSkippingAdapter != null) {
+            bindSkippingAdapter.unregisterAdapterDataObserver(bindSkippingObserver);
+        }
+        bindSkippingAdapter = adapter;
+        if (adapter != null) {
+            adapter.registerAdapterDataObserver(bindSkippingObserver);
+        }
+    }
+
+    /**
+     * Set a listener that gets notified how long the AdapterDelegates took to handle {@link
+     * AdapterDelegate#isForViewType(Object, int)}, {@link AdapterDelegate#onCreateViewHolder(ViewGroup)},
+     * {@link AdapterDelegate#onBindViewHolder(Object, int, RecyclerView.ViewHolder, List)} and {@link
+     * AdapterDelegate#onViewRecycled(RecyclerView.ViewHolder)}. Timings are only measured while a
+     * listener is set.
+     *
+     * @param metricsListener The listener, i.e. a {@link DelegateMetricsRecorder}, or null to stop
+     *                        measuring
+     * @return self
+     * @since 4.3.3
+     */
+    public AdapterDelegatesManager<T> setMetricsListener(
+            @Nullable DelegateMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+        return this;
+    }
+
+    /**
+     * Enables or disables trace sections. If enabled, every call to {@link
+     * AdapterDelegate#isForViewType(Object, int)}, {@link AdapterDelegate#onCreateViewHolder(ViewGroup)},
+     * {@link AdapterDelegate#onBindViewHolder(Object, int, RecyclerView.ViewHolder, List)} and {@link
+     * AdapterDelegate#onViewRecycled(RecyclerView.ViewHolder)} is wrapped in a {@link Trace} section
+     * named after {@link AdapterDelegate#getTraceName()} (i.e. <code>AD CatAdapterDelegate.onBindViewHolder</code>)
+     * or the view type (i.e. <code>AD viewType 3.onBindViewHolder</code>) so that system traces
+     * (systrace, perfetto) show which AdapterDelegate is responsible. Trace sections require API 18,
+     * on older devices this is a no-op.
+     *
+     * @param enabled true to enable trace sections, otherwise false
+     * @return self
+     * @since 4.3.3
+     */
+    public AdapterDelegatesManager<T> setTracingEnabled(boolean enabled) {
+        this.tracingEnabled = enabled;
+        return this;
+    }
+
+    /**
+     * Sizes the given RecycledViewPool for all registered AdapterDelegates (including the fallback
+     * delegate). {@link AdapterDelegate#getMaxRecycledViews()} is applied as declared. For
+     * AdapterDelegates that don't declare it but declare {@link
+     * AdapterDelegate#getExpectedFrequency()}, the capacity a RecycledViewPool has by default for
+     * all view types together (5 ViewHolders per view type) is shared according to the expected
+     * frequencies. The capacity is only raised that way, never lowered below the default or below
+     * the capacity a {@link RecycledViewPoolWarmUp} has raised it to. Called by
+     * {@link #onAttachedToRecyclerView(RecyclerView)}.
+     *
+     * @param pool The RecycledViewPool of the RecyclerView the adapter is attached to
+     * @since 4.3.3
+     */
+    public void configureRecycledViewPool(@NonNull RecyclerView.RecycledViewPool pool) {
+        for (int i = 0; i < delegates.size(); i++) {
+            int maxRecycledViews =
+                    getRecycledViewPoolCapacity(delegates.keyAt(i), delegates.valueAt(i));
+            if (maxRecycledViews >= 0) {
+                pool.setMaxRecycledViews(delegates.keyAt(i), maxRecycledViews);
+            }
+        }
+
+        if (fallbackDelegate != null) {
+            int maxRecycledViews =
+                    getRecycledViewPoolCapacity(FALLBACK_DELEGATE_VIEW_TYPE, fallbackDelegate);
+            if (maxRecycledViews >= 0) {
+                pool.setMaxRecycledViews(FALLBACK_DELEGATE_VIEW_TYPE, maxRecycledViews);
+            }
+        }
+    }
+
+    /**
+     * Get the capacity {@link #configureRecycledViewPool(RecyclerView.RecycledViewPool)} applies
+     * for the given AdapterDelegate.
+     *
+     * @param viewType The view type of the AdapterDelegate
+     * @param delegate The AdapterDelegate
+     * @return The capacity or {@link AdapterDelegate#NO_MAX_RECYCLED_VIEWS} if the default capacity
+     * of the RecycledViewPool is kept
+     */
+    int getRecycledViewPoolCapacity(int viewType, @NonNull AdapterDelegate<T> delegate) {
+        int maxRecycledViews = delegate.getMaxRecycledViews();
+        if (maxRecycledViews >= 0) {
+            return maxRecycledViews;
+        }
+
+        int capacity = getRecycledViewPoolCapacityByFrequency(delegate);
+        Integer warmedUpCapacity = warmedUpCapacities.get(viewType);
+        if (warmedUpCapacity != null && warmedUpCapacity > capacity) {
+            return warmedUpCapacity;
+        }
+        return capacity;
+    }
+
+    /**
+     * Remembers that a {@link RecycledViewPoolWarmUp} has raised the capacity of the given view
+     * type, so that {@link #configureRecycledViewPool(RecyclerView.RecycledViewPool)} doesn't lower
+     * it again.
+     *
+     * @param viewType The view type
+     * @param capacity The raised capacity
+     */
+    void onRecycledViewPoolCapacityRaised(int viewType, int capacity) {
+        Integer warmedUpCapacity = warmedUpCapacities.get(viewType);
+        if (warmedUpCapacity == null || warmedUpCapacity < capacity) {
+            warmedUpCapacities.put(viewType, capacity);
+        }
+    }
+
+    private int getRecycledViewPoolCapacityByFrequency(@NonNull AdapterDelegate<T> delegate) {
+        float expectedFrequency = Math.min(delegate.getExpectedFrequency(), 1f);
+        if (expectedFrequency > 0f) {
+            int viewTypes = delegates.size() + (fallbackDelegate != null ? 1 : 0);
+            int capacity = (int) Math.ceil(
+                    expectedFrequency * DEFAULT_MAX_RECYCLED_VIEWS * viewTypes);
+            if (capacity > DEFAULT_MAX_RECYCLED_VIEWS) {
+                return capacity;
+            }
+        }
+        return AdapterDelegate.NO_MAX_RECYCLED_VIEWS;
+    }
+
+    /**
+     * Must be called from {@link RecyclerView.Adapter#onAttachedToRecyclerView(RecyclerView)}.
+     * Configures the RecycledViewPool of the given RecyclerView (see {@link
+     * #configureRecycledViewPool(RecyclerView.RecycledViewPool)}) and starts listening for {@link
+     * ComponentCallbacks2#onTrimMemory(int)} if enabled (see {@link #setTrimMemoryEnabled(boolean)}).
+     *
+     * @param recyclerView The RecyclerView the adapter has been attached to
+     * @since 4.3.3
+     */
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        if (recyclerView.getRecycledViewPool() != null) {
+            configureRecycledViewPool(recyclerView.getRecycledViewPool());
+        }
+        attachedRecyclerViews.add(recyclerView);
+        updateBindSkippingObserver();
+        if (deferredBindScheduler != null) {
+            recyclerView.addOnScrollListener(deferredBindScheduler);
+        }
+        if (trimMemoryEnabled && trimMemoryCallbacks == null) {
+            Context context = recyclerView.getContext();
+            if (context != null && context.getApplicationContext() != null) {
+                trimMemoryCallbacks = new TrimMemoryCallbacks(context.getApplicationContext(), this);
+                trimMemoryCallbacks.register();
+            }
+        }
+    }
+
+    /**
+     * Must be called from {@link RecyclerView.Adapter#onDetachedFromRecyclerView(RecyclerView)}
+     *
+     * @param recyclerView The RecyclerView the adapter has been detached from
+     * @since 4.3.3
+     */
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        attachedRecyclerViews.remove(recyclerView);
+        updateBindSkippingObserver();
+        if (deferredBindScheduler != null) {
+            recyclerView.removeOnScrollListener(deferredBindScheduler);
+            if (attachedRecyclerViews.isEmpty()) {
+                deferredBindScheduler.cancelAll();
+            }
+        }
+        if (attachedRecyclerViews.isEmpty() && trimMemoryCallbacks != null) {
+            trimMemoryCallbacks.unregister();
+            trimMemoryCallbacks = null;
+        }
+    }
+
+    /**
+     * Enables or disables reacting on {@link ComponentCallbacks2#onTrimMemory(int)} while the adapter
+     * is attached to a RecyclerView. Disabled by default, so that no {@link ComponentCallbacks2} are
+     * registered unless needed. Only has an effect on RecyclerViews the adapter gets attached to
+     * afterwards. {@link #onTrimMemory(int)} can be called manually in any case.
+     *
+     * @param enabled true to trim the RecycledViewPool when memory is low, otherwise false
+     * @return self
+     * @see #onTrimMemory(int)
+     * @since 4.3.3
+     */
+    public AdapterDelegatesManager<T> setTrimMemoryEnabled(boolean enabled) {
+        this.trimMemoryEnabled = enabled;
+        return this;
+    }
+
+    /**
+     * Called when the system is running low on memory. Drops ViewHolders from the RecycledViewPool
+     * of every RecyclerView the adapter is attached to and calls {@link
+     * AdapterDelegate#onTrimMemory(int)} of all AdapterDelegates afterwards. How many pooled
+     * ViewHolders of an AdapterDelegate are kept depends on the level, on {@link
+     * AdapterDelegate#getViewHolderCost()} and on {@link AdapterDelegate#getExpectedFrequency()}.
+     * Called automatically while the adapter is attached if enabled (see {@link
+     * #setTrimMemoryEnabled(boolean)}).
+     *
+     * @param level The level of {@link ComponentCallbacks2#onTrimMemory(int)}
+     * @since 4.3.3
+     */
+    public void onTrimMemory(int level) {
+        float retainRatio = retainRatioForTrimLevel(level);
+        if (retainRatio < 1f) {
+            IdentityHashMap<RecyclerView.RecycledViewPool, Boolean> trimmedPools = new IdentityHashMap<>();
+            for (int i = 0; i < attachedRecyclerViews.size(); i++) {
+                RecyclerView.RecycledViewPool pool = attachedRecyclerViews.get(i).getRecycledViewPool();
+                if (pool != null && trimmedPools.put(pool, Boolean.TRUE) == null) {
+                    trimRecycledViewPool(pool, retainRatio);
+                }
+            }
+        }
+
+        for (int i = 0; i < delegates.size(); i++) {
+            delegates.valueAt(i).onTrimMemory(level);
+        }
+        if (fallbackDelegate != null) {
+            fallbackDelegate.onTrimMemory(level);
+        }
+    }
+
+    private void trimRecycledViewPool(@NonNull RecyclerView.RecycledViewPool pool, float retainRatio) {
+        for (int i = 0; i < delegates.size(); i++) {
+            trimRecycledViewPool(pool, delegates.keyAt(i), delegates.valueAt(i), retainRatio);
+        }
+        if (fallbackDelegate != null) {
+            trimRecycledViewPool(pool, FALLBACK_DELEGATE_VIEW_TYPE, fallbackDelegate, retainRatio);
+        }
+    }
+
+    private void trimRecycledViewPool(@NonNull RecyclerView.RecycledViewPool pool, int viewType,
+                                      @NonNull AdapterDelegate<T> delegate, float retainRatio) {
+        int pooled = pool.getRecycledViewCount(viewType);
+        int retain = retainedViewHolders(pooled, retainRatio, delegate.getViewHolderCost(),
+                delegate.getExpectedFrequency());
+        for (int i = pooled; i > retain; i--) {
+            pool.getRecycledView(viewType);
+        }
+    }
+
+    /**
+     * Computes how many of the pooled ViewHolders of an AdapterDelegate are kept
+     */
+    static int retainedViewHolders(int pooled, float retainRatio, float cost, float expectedFrequency) {
+        if (retainRatio <= 0f || pooled == 0) {
+            return 0;
+        }
+        float weight = (1f + Math.max(0f, Math.min(expectedFrequency, 1f))) / Math.max(cost, 0.01f);
+        int retain = (int) (pooled * retainRatio * weight);
+        return Math.min(retain, pooled);
+    }
+
+    /**
+     * @return The fraction of pooled ViewHolders to keep for the given trim memory level
+     */
+    static float retainRatioForTrimLevel(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+            return 0f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            return 0.25f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            return 0.5f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            return 1f; // the UI is just not visible anymore, the user may come back soon
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            return 0f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return 0.25f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            return 0.5f;
+        }
+        return 1f;
+    }
+
+    /**
+     * Set a {@link ViewHolderPreInflater} that {@link #onCreateViewHolder(ViewGroup, int)} takes
+     * ViewHolders from before asking the {@link AdapterDelegate} to create a new one.
+     *
+     * @param preInflater The pre inflater or null to remove a previously set one
+     * @return self
+     * @since 4.3.3
+     */
+    public AdapterDelegatesManager<T> setViewHolderPreInflater(
+            @Nullable ViewHolderPreInflater<T> preInflater) {
+        this.preInflater = preInflater;
+        return this;
+    }
+
+    /**
+     * Set a {@link DeferredBindScheduler} that decides when {@link
+     * AdapterDelegate#onDeferredBindViewHolder(RecyclerView.ViewHolder)} is called. Without a
+     * scheduler the deferred bind is run right after {@link AdapterDelegate#onBindViewHolder(Object,
+     * int, RecyclerView.ViewHolder, List)}.
+     *
+     * @param scheduler The scheduler or null to run deferred binds right away
+     * @return self
+     * @since 4.3.3
+     */
+    public AdapterDelegatesManager<T> setDeferredBindScheduler(
+            @Nullable DeferredBindScheduler scheduler) {
+        if (this.deferredBindScheduler != null) {
+            for (int i = 0; i < attachedRecyclerViews.size(); i++) {
+                attachedRecyclerViews.get(i).removeOnScrollListener(this.deferredBindScheduler);
+            }
+            this.deferredBindScheduler.cancelAll();
+        }
+        this.deferredBindScheduler = scheduler;
+        if (scheduler != null) {
+            for (int i = 0; i < attachedRecyclerViews.size(); i++) {
+                attachedRecyclerViews.get(i).addOnScrollListener(scheduler);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Set the {@link Executor} the bind models of {@link AbsPreparedListItemAdapterDelegate}s are
+     * prepared on (see {@link #prepareBindModels(Object)}). Without an Executor, bind models are
+     * prepared on the main thread when an item is bound for the first time.
+     *
+     * @param executor The executor, i.e. a thread pool shared with other background work, or null
+     * @return self
+     * @since 4.3.3
+     */
+    public AdapterDelegatesManager<T> setBindModelExecutor(@Nullable Executor executor) {
+        this.bindModelExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Prepares the bind models of all items that are handled by an {@link
+     * AbsPreparedListItemAdapterDelegate} on the Executor set via {@link
+     * #setBindModelExecutor(Executor)}. The adapters of this library call this whenever a new data
+     * source is set. A preparation that is still running is stopped. Does nothing else if no
+     * Executor has been set, the data source is not a {@link List} or no
+     * AbsPreparedListItemAdapterDelegate is registered.
+     * <p>
+     * If all AdapterDelegates have declared an item class (see {@link
+     * AdapterDelegate#getItemClass()}), the AdapterDelegate of every item is resolved on the
+     * Executor. Otherwise it is resolved on the calling (main) thread and only {@link
+     * AbsPreparedListItemAdapterDelegate#prepare(Object)} is called on the Executor. The bind model
+     * cache of every AbsPreparedListItemAdapterDelegate is resized to hold the bind models of all of
+     * its items in the given list.
+     * </p>
+     *
+     * @param items The new data source of the adapter
+     * @since 4.3.3
+     */
+    public void prepareBindModels(@Nullable T items) {
+        bindModelGeneration.incrementAndGet();
+        if (bindModelExecutor == null || !(items instanceof List)) {
+            return;
+        }
+        executeBindModelPreparation(items, new int[]{0, ((List<?>) items).size()}, true);
+    }
+
+    /**
+     * Like {@link #prepareBindModels(Object)}, but only prepares the bind models of the items the
+     * given patch has inserted or updated. A preparation that is still running is not stopped.
+     *
+     * @param items The data source of the adapter with the patch already applied
+     * @param patch The patch
+     */
+    void prepareBindModels(@Nullable T items, @NonNull ListPatch<?> patch) {
+        if (bindModelExecutor == null || !(items instanceof List)) {
+            return;
+        }
+        int[] changedRanges = patch.getChangedRanges();
+        if (changedRanges.length > 0) {
+            executeBindModelPreparation(items, changedRanges, false);
+        }
+    }
+
+    /**
+     * @param ranges    The positions of the items to prepare as pairs of start position and count
+     * @param wholeList true if the ranges cover the whole list
+     */
+    private void executeBindModelPreparation(@NonNull T items, @NonNull int[] ranges,
+                                             boolean wholeList) {
+        AbsPreparedListItemAdapterDelegate<?, ?, ?, ?>[] preparedDelegates =
+                getPreparedDelegates();
+        if (preparedDelegates.length == 0) {
+            return;
+        }
+
+        checkDelegatesModified();
+        if (dispatchIndexDirty) {
+            rebuildDispatchIndex();
+        }
+        List<?> list = (List<?>) items;
+        int size = 0;
+        for (int i = 1; i < ranges.length; i += 2) {
+            size += ranges[i];
+        }
+
+        if (predicateDelegateIndexes.length == 0) {
+            // Every AdapterDelegate is resolved by the item's class, that's done in background
+            Object[] preparationItems = new Object[size];
+            int count = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                for (int position = ranges[i]; position < ranges[i] + ranges[i + 1]; position++) {
+                    preparationItems[count++] = list.get(position);
+                }
+            }
+            AdapterDelegate<?>[] classDelegates = new AdapterDelegate[delegates.size()];
+            for (int i = 0; i < classDelegates.length; i++) {
+                classDelegates[i] = delegates.valueAt(i);
+            }
+            bindModelExecutor.execute(new BindModelPreparation(preparationItems,
+                    declaredItemClasses, classDelegates, fallbackDelegate, preparedDelegates,
+                    wholeList, bindModelGeneration));
+            return;
+        }
+
+        // Resolve the AdapterDelegates on the main thread, only the items are prepared in background
+        Object[] preparationItems = new Object[size];
+        AbsPreparedListItemAdapterDelegate<?, ?, ?, ?>[] itemDelegates =
+                new AbsPreparedListItemAdapterDelegate[size];
+        int count = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            for (int position = ranges[i]; position < ranges[i] + ranges[i + 1]; position++) {
+                Object item = list.get(position);
+                if (item == null) {
+                    continue;
+                }
+                int delegateIndex = findDelegateIndex(items, position, item,
+                        findDelegateIndexForItemClass(item.getClass()));
+                AdapterDelegate<T> delegate = delegateIndex != NO_DELEGATE_INDEX
+                        ? delegates.valueAt(delegateIndex)
+                        : fallbackDelegate;
+                if (delegate instanceof AbsPreparedListItemAdapterDelegate) {
+                    preparationItems[count] = item;
+                    itemDelegates[count] = (AbsPreparedListItemAdapterDelegate<?, ?, ?, ?>) delegate;
+                    count++;
+                }
+            }
+        }
+        if (count > 0 || wholeList) {
+            bindModelExecutor.execute(new BindModelPreparation(preparationItems, itemDelegates,
+                    count, preparedDelegates, wholeList, bindModelGeneration));
+        }
+    }
+
+    @NonNull
+    private AbsPreparedListItemAdapterDelegate<?, ?, ?, ?>[] getPreparedDelegates() {
+        List<AbsPreparedListItemAdapterDelegate<?, ?, ?, ?>> preparedDelegates = new ArrayList<>();
+        for (int i = 0; i < delegates.size(); i++) {
+            if (delegates.valueAt(i) instanceof AbsPreparedListItemAdapterDelegate) {
+                preparedDelegates.add((AbsPreparedListItemAdapterDelegate<?, ?, ?, ?>) delegates.valueAt(i));
+            }
+        }
+        if (fallbackDelegate instanceof AbsPreparedListItemAdapterDelegate) {
+            preparedDelegates.add((AbsPreparedListItemAdapterDelegate<?, ?, ?, ?>) fallbackDelegate);
+        }
+        return preparedDelegates.toArray(new AbsPreparedListItemAdapterDelegate[0]);
+    }
+
     /**
      * Set a fallback delegate that should be used if no {@link AdapterDelegate} has been found that
      * can handle a certain view type.
@@ -413,9 +1578,32 @@ public class AdapterDelegatesManager<T> {
     public AdapterDelegatesManager<T> setFallbackDelegate(
             @Nullable AdapterDelegate<T> fallbackDelegate) {
         this.fallbackDelegate = fallbackDelegate;
+        onDelegatesChanged();
         return this;
     }
 
+    /**
+     * Get the largest {@link AdapterDelegate#getPrefetchDistance()} of all registered AdapterDelegates
+     * (including the fallback delegate). Only computed again after the registered AdapterDelegates
+     * have changed.
+     *
+     * @return The largest prefetch distance or 0 if no AdapterDelegate prefetches
+     */
+    int getMaxPrefetchDistance() {
+        checkDelegatesModified();
+        if (maxPrefetchDistance == UNKNOWN_PREFETCH_DISTANCE) {
+            int max = 0;
+            for (int i = 0; i < delegates.size(); i++) {
+                max = Math.max(max, delegates.valueAt(i).getPrefetchDistance());
+            }
+            if (fallbackDelegate != null) {
+                max = Math.max(max, fallbackDelegate.getPrefetchDistance());
+            }
+            maxPrefetchDistance = max;
+        }
+        return maxPrefetchDistance;
+    }
+
     /**
      * Get the view type integer for the given {@link AdapterDelegate}
      *
@@ -445,9 +1633,41 @@ public class AdapterDelegatesManager<T> {
      */
     @Nullable
     public AdapterDelegate<T> getDelegateForViewType(int viewType) {
+        checkDelegatesModified();
+        if (denseDelegatesDirty) {
+            rebuildDenseDelegates();
+        }
+
+        if (viewType >= 0 && viewType < denseDelegates.length) {
+            AdapterDelegate<T> delegate = denseDelegates[viewType];
+            return delegate != null ? delegate : fallbackDelegate;
+        }
         return delegates.get(viewType, fallbackDelegate);
     }
 
+    @SuppressWarnings("unchecked")
+    private void rebuildDenseDelegates() {
+        // keys of a SparseArrayCompat are sorted ascending
+        int length = 0;
+        for (int i = delegates.size() - 1; i >= 0; i--) {
+            int viewType = delegates.keyAt(i);
+            if (viewType >= 0 && viewType < MAX_DENSE_VIEW_TYPE) {
+                length = viewType + 1;
+                break;
+            }
+        }
+
+        AdapterDelegate<T>[] dense = new AdapterDelegate[length];
+        for (int i = 0; i < delegates.size(); i++) {
+            int viewType = delegates.keyAt(i);
+            if (viewType >= 0 && viewType < length) {
+                dense[viewType] = delegates.valueAt(i);
+            }
+        }
+        denseDelegates = dense;
+        denseDelegatesDirty = false;
+    }
+
     /**
      * Get the fallback delegate
      *
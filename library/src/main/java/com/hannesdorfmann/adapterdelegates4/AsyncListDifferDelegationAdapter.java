@@ -2,9 +2,11 @@ package com.hannesdorfmann.adapterdelegates4;
 
 import android.view.ViewGroup;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.AdapterListUpdateCallback;
 import androidx.recyclerview.widget.AsyncDifferConfig;
 import androidx.recyclerview.widget.AsyncListDiffer;
@@ -30,6 +32,20 @@ import androidx.recyclerview.widget.RecyclerView;
  *    }
  * }
  * </pre>
+ * <p>
+ * Optionally the view type of each item is cached until a new list is committed or one of the
+ * notifyItem* methods is called (see {@link #setItemViewTypeCacheEnabled(boolean)}).
+ * </p>
+ * <p>
+ * If {@link AdapterDelegatesManager#setBindModelExecutor(java.util.concurrent.Executor)} has been
+ * set, the bind models of {@link AbsPreparedListItemAdapterDelegate}s are prepared on that Executor
+ * while the diff is calculated.
+ * </p>
+ * <p>
+ * Instead of {@link DiffUtil} another {@link DiffEngine} can be used to calculate the diff, see
+ * {@link #AsyncListDifferDelegationAdapter(AsyncDifferConfig, DiffEngine, AdapterDelegatesManager)}.
+ * Small changes don't need a diff at all, they can be applied with {@link #applyPatch(ListPatch)}.
+ * </p>
  *
  * @param <T> The type of the datasource / items. Internally we will use List&lt;T&gt; but you only have
  *            to provide T (and not List&lt;T&gt;). Its safe to use this with
@@ -42,6 +58,11 @@ public class AsyncListDifferDelegationAdapter<T> extends RecyclerView.Adapter {
 
     protected final AdapterDelegatesManager<List<T>> delegatesManager;
     protected final AsyncListDiffer<T> differ;
+    private final ItemViewTypeCache<List<T>> itemViewTypeCache;
+    private LookAheadPrefetcher<List<T>> prefetcher;
+    private List<T> submittedItems;
+    private ConflatingListSubmitter<T> conflatingSubmitter;
+    private long minCommitIntervalMillis;
 
     public AsyncListDifferDelegationAdapter(@NonNull DiffUtil.ItemCallback<T> diffCallback) {
         this(diffCallback, new AdapterDelegatesManager<List<T>>());
@@ -59,6 +80,7 @@ public class AsyncListDifferDelegationAdapter<T> extends RecyclerView.Adapter {
         }
         this.differ = new AsyncListDiffer<T>(this, diffCallback);
         this.delegatesManager = delegatesManager;
+        this.itemViewTypeCache = new ItemViewTypeCache<>(this.delegatesManager);
     }
 
     public AsyncListDifferDelegationAdapter(@NonNull AsyncDifferConfig differConfig,
@@ -74,6 +96,7 @@ public class AsyncListDifferDelegationAdapter<T> extends RecyclerView.Adapter {
 
         this.differ = new AsyncListDiffer<T>(new AdapterListUpdateCallback(this), differConfig);
         this.delegatesManager = delegatesManager;
+        this.itemViewTypeCache = new ItemViewTypeCache<>(this.delegatesManager);
     }
     
     /**
@@ -91,6 +114,7 @@ public class AsyncListDifferDelegationAdapter<T> extends RecyclerView.Adapter {
         
         this.differ = new AsyncListDiffer<T>(this, diffCallback);
         this.delegatesManager = new AdapterDelegatesManager<List<T>>(delegates);
+        this.itemViewTypeCache = new ItemViewTypeCache<>(this.delegatesManager);
     }
 
 
@@ -109,6 +133,55 @@ public class AsyncListDifferDelegationAdapter<T> extends RecyclerView.Adapter {
 
         this.differ = new AsyncListDiffer<T>(new AdapterListUpdateCallback(this), differConfig);
         this.delegatesManager = new AdapterDelegatesManager<List<T>>(delegates);
+        this.itemViewTypeCache = new ItemViewTypeCache<>(this.delegatesManager);
+    }
+
+    /**
+     * Uses the given {@link DiffEngine} instead of {@link DiffUtil} to calculate the diff on the
+     * background thread Executor of the given {@link AsyncDifferConfig}, i.e. a
+     * {@link KeyedDiffEngine} for long lists of items with stable unique keys.
+     *
+     * @param differConfig     The config
+     * @param diffEngine       The DiffEngine
+     * @param delegatesManager The AdapterDelegatesManager
+     * @since 4.3.3
+     */
+    public AsyncListDifferDelegationAdapter(@NonNull AsyncDifferConfig<T> differConfig,
+                                            @NonNull DiffEngine<T> diffEngine,
+                                            @NonNull AdapterDelegatesManager<List<T>> delegatesManager) {
+
+        if (differConfig == null) {
+            throw new NullPointerException("AsyncDifferConfig is null");
+        }
+
+        if (diffEngine == null) {
+            throw new NullPointerException("DiffEngine is null");
+        }
+
+        if (delegatesManager == null) {
+            throw new NullPointerException("AdapterDelegatesManager is null");
+        }
+
+        this.differ = new DiffEngineListDiffer<T>(new AdapterListUpdateCallback(this), differConfig,
+                diffEngine);
+        this.delegatesManager = delegatesManager;
+        this.itemViewTypeCache = new ItemViewTypeCache<>(this.delegatesManager);
+    }
+
+    /**
+     * Uses the given {@link DiffEngine} instead of {@link DiffUtil} to calculate the diff on the
+     * background thread Executor of the given {@link AsyncDifferConfig}, i.e. a
+     * {@link KeyedDiffEngine} for long lists of items with stable unique keys.
+     *
+     * @param differConfig The config
+     * @param diffEngine   The DiffEngine
+     * @param delegates    The AdapterDelegates
+     * @since 4.3.3
+     */
+    public AsyncListDifferDelegationAdapter(@NonNull AsyncDifferConfig<T> differConfig,
+                                            @NonNull DiffEngine<T> diffEngine,
+                                            @NonNull AdapterDelegate<List<T>>... delegates) {
+        this(differConfig, diffEngine, new AdapterDelegatesManager<List<T>>(delegates));
     }
 
     @NonNull
@@ -129,7 +202,47 @@ public class AsyncListDifferDelegationAdapter<T> extends RecyclerView.Adapter {
 
     @Override
     public int getItemViewType(int position) {
-        return delegatesManager.getItemViewType(differ.getCurrentList(), position);
+        return itemViewTypeCache.getItemViewType(differ.getCurrentList(), position);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        itemViewTypeCache.onAttachedToRecyclerView(this);
+        delegatesManager.onAttachedToRecyclerView(recyclerView);
+        if (delegatesManager.getMaxPrefetchDistance() <= 0) {
+            return;
+        }
+        if (prefetcher == null) {
+            prefetcher = new LookAheadPrefetcher<>(delegatesManager,
+                    new LookAheadPrefetcher.ItemsProvider<List<T>>() {
+                        @Override
+                        public List<T> getItems() {
+                            return differ.getCurrentList();
+                        }
+
+                        @Override
+                        public int getItemCount() {
+                            return differ.getCurrentList().size();
+                        }
+
+                        @Override
+                        public int getItemViewType(int position) {
+                            return AsyncListDifferDelegationAdapter.this.getItemViewType(position);
+                        }
+                    });
+        }
+        prefetcher.onAttachedToRecyclerView(this, recyclerView);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        itemViewTypeCache.onDetachedFromRecyclerView(this);
+        delegatesManager.onDetachedFromRecyclerView(recyclerView);
+        if (prefetcher != null) {
+            prefetcher.onDetachedFromRecyclerView(this, recyclerView);
+        }
     }
 
     @Override
@@ -167,7 +280,7 @@ public class AsyncListDifferDelegationAdapter<T> extends RecyclerView.Adapter {
      * @param items The items / data source
      */
     public void setItems(List<T> items) {
-        differ.submitList(items);
+        setItems(items, null);
     }
 
     /**
@@ -177,11 +290,147 @@ public class AsyncListDifferDelegationAdapter<T> extends RecyclerView.Adapter {
      * @param commitCallback Runnable that is executed when the List is committed, if it is committed
      */
     public void setItems(List<T> items, Runnable commitCallback) {
-        differ.submitList(items, commitCallback);
+        delegatesManager.prepareBindModels(items);
+        submitItems(items, commitCallback);
+    }
+
+    private void submitItems(List<T> items, Runnable commitCallback) {
+        submittedItems = items;
+        if (conflatingSubmitter != null) {
+            conflatingSubmitter.submitList(items, commitCallback);
+        } else {
+            differ.submitList(items, commitCallback);
+        }
+    }
+
+    /**
+     * Applies the changes of the given patch to the items, see
+     * {@link #applyPatch(ListPatch, Runnable)}.
+     *
+     * @param patch The changes
+     * @since 4.3.3
+     */
+    public void applyPatch(@NonNull ListPatch<T> patch) {
+        applyPatch(patch, null);
+    }
+
+    /**
+     * Applies the changes of the given patch to the latest items passed to
+     * {@link #setItems(List)} or {@link #applyPatch(ListPatch)}, so patches and new lists are
+     * committed in the order they have been submitted in.
+     * <p>
+     * If this adapter has been created with a {@link DiffEngine} (use {@link DiffUtilDiffEngine}
+     * for the default diff behavior), no diff is calculated as long as the latest items have been
+     * committed already and no submission is pending (see
+     * {@link #setConflatedSubmissionEnabled(boolean)}): The patched items are committed right away and the notifyItem* methods
+     * matching the changes are called. Otherwise the patched items are submitted like
+     * {@link #setItems(List, Runnable)} does.
+     * </p>
+     *
+     * @param patch          The changes
+     * @param commitCallback Runnable that is executed when the patched items are committed
+     * @throws IndexOutOfBoundsException if a position of the patch is out of bounds
+     * @since 4.3.3
+     */
+    public void applyPatch(@NonNull ListPatch<T> patch, @Nullable Runnable commitCallback) {
+        if (patch == null) {
+            throw new NullPointerException("ListPatch is null");
+        }
+
+        if (differ instanceof DiffEngineListDiffer
+                && (conflatingSubmitter == null || !conflatingSubmitter.isBusy())) {
+            submittedItems = ((DiffEngineListDiffer<T>) differ).submitPatch(patch, commitCallback);
+            delegatesManager.prepareBindModels(submittedItems, patch);
+        } else {
+            List<T> items = new ArrayList<>(submittedItems != null
+                    ? submittedItems
+                    : differ.getCurrentList());
+            patch.applyTo(items);
+            delegatesManager.prepareBindModels(items, patch);
+            submitItems(items, commitCallback);
+        }
+    }
+
+    /**
+     * Enables or disables conflated submission. It is disabled by default. If enabled, only one
+     * diff is calculated at a time: Lists passed to {@link #setItems(List)} while a diff is
+     * calculated are not diffed, except the latest one, which is diffed against the current items
+     * once the diff in flight has been committed. Use this if the items change faster than the
+     * diffs can be calculated.
+     * <p>
+     * The commit callbacks passed to {@link #setItems(List, Runnable)} for skipped lists are
+     * executed when the list that replaced them is committed. If conflated submission gets disabled
+     * while a list is waiting, that list is submitted right away.
+     * </p>
+     *
+     * @param enabled true to conflate submissions, otherwise false
+     * @see #setMinCommitIntervalMillis(long)
+     * @since 4.3.3
+     */
+    public void setConflatedSubmissionEnabled(boolean enabled) {
+        if (enabled && conflatingSubmitter == null) {
+            conflatingSubmitter = new ConflatingListSubmitter<>(differ);
+            conflatingSubmitter.setMinCommitIntervalMillis(minCommitIntervalMillis);
+        } else if (!enabled && conflatingSubmitter != null) {
+            ConflatingListSubmitter<T> submitter = conflatingSubmitter;
+            conflatingSubmitter = null;
+            submitter.flush();
+        }
+    }
+
+    /**
+     * Set the minimum time between two commits if conflated submission is enabled (see
+     * {@link #setConflatedSubmissionEnabled(boolean)}). Lists submitted meanwhile are conflated. 0
+     * by default.
+     *
+     * @param minCommitIntervalMillis The time in milliseconds
+     * @since 4.3.3
+     */
+    public void setMinCommitIntervalMillis(long minCommitIntervalMillis) {
+        if (minCommitIntervalMillis < 0) {
+            throw new IllegalArgumentException(
+                    "Negative min commit interval: " + minCommitIntervalMillis);
+        }
+        this.minCommitIntervalMillis = minCommitIntervalMillis;
+        if (conflatingSubmitter != null) {
+            conflatingSubmitter.setMinCommitIntervalMillis(minCommitIntervalMillis);
+        }
     }
 
     @Override
     public int getItemCount() {
         return differ.getCurrentList().size();
     }
+
+    /**
+     * Enables or disables caching of view types. The cache is disabled by default. If enabled, the
+     * view type of a position is resolved once on the main thread when RecyclerView asks for it and
+     * cached until another list is set, the size of the list changes or one of the notifyItem*
+     * methods is called. Only enable it if the result of
+     * {@link AdapterDelegate#isForViewType(Object, int)} doesn't change without notifying the
+     * adapter, i.e. if items are never changed in place without a notifyItem* call.
+     *
+     * @param enabled true to cache view types, otherwise false
+     * @since 4.3.3
+     */
+    public void setItemViewTypeCacheEnabled(boolean enabled) {
+        itemViewTypeCache.setEnabled(enabled);
+    }
+
+    /**
+     * Creates ViewHolders for the registered {@link AdapterDelegate}s while the main thread is idle
+     * and puts them into the {@link RecyclerView.RecycledViewPool} of the given RecyclerView. This
+     * adapter must already be set to the RecyclerView, i.e. call it right after {@link
+     * RecyclerView#setAdapter(RecyclerView.Adapter)} and before the items are set. Add the number of
+     * ViewHolders per AdapterDelegate and call {@link RecycledViewPoolWarmUp#start()}.
+     *
+     * @param recyclerView The RecyclerView this adapter has been set to
+     * @return The not yet started warm up
+     * @throws IllegalStateException if this adapter is not set to the given RecyclerView
+     * @since 4.3.3
+     */
+    @NonNull
+    public RecycledViewPoolWarmUp<List<T>> warmUpRecycledViewPool(@NonNull RecyclerView recyclerView) {
+        return new RecycledViewPoolWarmUp<>(this, delegatesManager, recyclerView);
+    }
 }
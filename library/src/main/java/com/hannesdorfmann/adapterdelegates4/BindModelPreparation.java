@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Prepares the bind models of {@link AbsPreparedListItemAdapterDelegate}s for the items of a list on
+ * a background thread. Stops as soon as a newer list has been submitted.
+ * <p>
+ * No AdapterDelegate is asked from the background thread: Either the AdapterDelegate of each item
+ * has already been resolved on the main thread or all AdapterDelegates have declared an item class
+ * (see {@link AdapterDelegate#getItemClass()}), so that the AdapterDelegate of each item is looked
+ * up by its class in a snapshot of the declared item classes taken on the main thread.
+ * </p>
+ * <p>
+ * The bind model caches are resized to the number of items of each AdapterDelegate if the items are
+ * a whole list, or grown by that number if the items are the inserted and updated items of a
+ * {@link ListPatch}.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+class BindModelPreparation implements Runnable {
+
+    private final Object[] items;
+    private AbsPreparedListItemAdapterDelegate<?, ?, ?, ?>[] itemDelegates;
+    private final int count;
+    private final AbsPreparedListItemAdapterDelegate<?, ?, ?, ?>[] preparedDelegates;
+    private final boolean wholeList;
+    private final AtomicInteger currentGeneration;
+    private final int generation;
+
+    @Nullable
+    private Class<?>[] declaredItemClasses;
+    @Nullable
+    private AdapterDelegate<?>[] classDelegates;
+    @Nullable
+    private AdapterDelegate<?> fallbackDelegate;
+
+    /**
+     * @param items             The items to prepare the bind models for
+     * @param itemDelegates     The AdapterDelegate of the item at the same index in items
+     * @param count             The number of items
+     * @param preparedDelegates All registered AbsPreparedListItemAdapterDelegates
+     * @param wholeList         true if the items are all items of the list
+     * @param currentGeneration Incremented whenever a newer list has been submitted
+     */
+    BindModelPreparation(@NonNull Object[] items,
+                         @NonNull AbsPreparedListItemAdapterDelegate<?, ?, ?, ?>[] itemDelegates,
+                         int count,
+                         @NonNull AbsPreparedListItemAdapterDelegate<?, ?, ?, ?>[] preparedDelegates,
+                         boolean wholeList, @NonNull AtomicInteger currentGeneration) {
+        this.items = items;
+        this.itemDelegates = itemDelegates;
+        this.count = count;
+        this.preparedDelegates = preparedDelegates;
+        this.wholeList = wholeList;
+        this.currentGeneration = currentGeneration;
+        this.generation = currentGeneration.get();
+    }
+
+    /**
+     * @param items               The items to prepare the bind models for, may contain null
+     * @param declaredItemClasses The item class declared by the AdapterDelegate at the same index
+     *                            in classDelegates
+     * @param classDelegates      The registered AdapterDelegates, all of them have declared an
+     *                            item class
+     * @param fallbackDelegate    The AdapterDelegate of items whose class hasn't been declared
+     * @param preparedDelegates   All registered AbsPreparedListItemAdapterDelegates
+     * @param wholeList           true if the items are all items of the list
+     * @param currentGeneration   Incremented whenever a newer list has been submitted
+     */
+    BindModelPreparation(@NonNull Object[] items, @NonNull Class<?>[] declaredItemClasses,
+                         @NonNull AdapterDelegate<?>[] classDelegates,
+                         @Nullable AdapterDelegate<?> fallbackDelegate,
+                         @NonNull AbsPreparedListItemAdapterDelegate<?, ?, ?, ?>[] preparedDelegates,
+                         boolean wholeList, @NonNull AtomicInteger currentGeneration) {
+        this(items, null, items.length, preparedDelegates, wholeList, currentGeneration);
+        this.declaredItemClasses = declaredItemClasses;
+        this.classDelegates = classDelegates;
+        this.fallbackDelegate = fallbackDelegate;
+    }
+
+    @Override
+    public void run() {
+        if (itemDelegates == null) {
+            resolveDelegatesByItemClass();
+        }
+
+        IdentityHashMap<AbsPreparedListItemAdapterDelegate<?, ?, ?, ?>, int[]> itemCounts =
+                new IdentityHashMap<>();
+        for (int i = 0; i < count; i++) {
+            AbsPreparedListItemAdapterDelegate<?, ?, ?, ?> delegate = itemDelegates[i];
+            if (delegate != null) {
+                int[] itemCount = itemCounts.get(delegate);
+                if (itemCount == null) {
+                    itemCount = new int[1];
+                    itemCounts.put(delegate, itemCount);
+                }
+                itemCount[0]++;
+            }
+        }
+        if (currentGeneration.get() != generation) {
+            return; // A newer list has been submitted
+        }
+        for (AbsPreparedListItemAdapterDelegate<?, ?, ?, ?> delegate : preparedDelegates) {
+            int[] itemCount = itemCounts.get(delegate);
+            if (wholeList) {
+                delegate.resizeBindModelCache(itemCount == null ? 0 : itemCount[0]);
+            } else if (itemCount != null) {
+                delegate.growBindModelCache(itemCount[0]);
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (currentGeneration.get() != generation) {
+                return; // A newer list has been submitted
+            }
+            if (itemDelegates[i] != null) {
+                itemDelegates[i].prepareIfAbsent(items[i]);
+            }
+        }
+    }
+
+    private void resolveDelegatesByItemClass() {
+        itemDelegates = new AbsPreparedListItemAdapterDelegate[count];
+        HashMap<Class<?>, AdapterDelegate<?>> resolved = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            Object item = items[i];
+            if (item == null) {
+                continue;
+            }
+            Class<?> itemClass = item.getClass();
+            AdapterDelegate<?> delegate = resolved.get(itemClass);
+            if (delegate == null && !resolved.containsKey(itemClass)) {
+                delegate = fallbackDelegate;
+                for (int j = 0; j < declaredItemClasses.length; j++) {
+                    if (declaredItemClasses[j].isAssignableFrom(itemClass)) {
+                        delegate = classDelegates[j];
+                        break;
+                    }
+                }
+                resolved.put(itemClass, delegate);
+            }
+            if (delegate instanceof AbsPreparedListItemAdapterDelegate) {
+                itemDelegates[i] = (AbsPreparedListItemAdapterDelegate<?, ?, ?, ?>) delegate;
+            }
+        }
+    }
+}
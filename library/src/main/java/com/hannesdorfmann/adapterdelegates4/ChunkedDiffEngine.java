@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.BatchingListUpdateCallback;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+/**
+ * A {@link DiffEngine} for very long lists where most changes are local. It splits the lists into
+ * independent chunks and diffs them with {@link DiffUtil} in parallel:
+ * <ul>
+ * <li>The unchanged prefix and suffix of both lists are not diffed at all, only their contents
+ * are compared.</li>
+ * <li>The remaining range of the new list is split every {@link #setChunkSize(int)} items at an
+ * item whose key is found in the remaining range of the old list, behind the previous split.
+ * These items are anchors that are the same in both lists, so the ranges between the anchors can
+ * be diffed independently. Like the prefix and suffix, the run of aligned items around an anchor
+ * is not diffed.</li>
+ * </ul>
+ * The results of the chunks are stitched together to one ordered stream of operations. Unlike
+ * plain DiffUtil, an item that is moved from one chunk to another is removed and inserted instead
+ * of moved.
+ *
+ * @param <T> The type of the items
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public class ChunkedDiffEngine<T> implements DiffEngine<T> {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private static ExecutorService defaultExecutor;
+
+    private final KeyedDiffEngine.KeyProvider<T> keyProvider;
+    private final DiffUtil.ItemCallback<T> itemCallback;
+    private final DiffUtilDiffEngine<T> chunkDiffEngine;
+    private final Executor executor;
+    private final int parallelism;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * Creates a ChunkedDiffEngine that diffs the chunks on a shared thread pool with one thread per
+     * CPU core.
+     *
+     * @param keyProvider  Provides the stable keys of the items that are used to find anchors
+     * @param itemCallback Used to compare the items
+     */
+    public ChunkedDiffEngine(@NonNull KeyedDiffEngine.KeyProvider<T> keyProvider,
+                             @NonNull DiffUtil.ItemCallback<T> itemCallback) {
+        this(keyProvider, itemCallback, getDefaultExecutor(),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a ChunkedDiffEngine
+     *
+     * @param keyProvider  Provides the stable keys of the items that are used to find anchors
+     * @param itemCallback Used to compare the items
+     * @param executor     The Executor the chunks are diffed on. The thread that calculates the
+     *                     diff diffs chunks too, so it is fine to pass the background thread
+     *                     Executor of the {@link androidx.recyclerview.widget.AsyncDifferConfig}.
+     * @param parallelism  The max number of chunks that are diffed at the same time
+     */
+    public ChunkedDiffEngine(@NonNull KeyedDiffEngine.KeyProvider<T> keyProvider,
+                             @NonNull DiffUtil.ItemCallback<T> itemCallback,
+                             @NonNull Executor executor, int parallelism) {
+        if (keyProvider == null) {
+            throw new NullPointerException("KeyProvider is null");
+        }
+        if (itemCallback == null) {
+            throw new NullPointerException("ItemCallback is null");
+        }
+        if (executor == null) {
+            throw new NullPointerException("Executor is null");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.keyProvider = keyProvider;
+        this.itemCallback = itemCallback;
+        this.chunkDiffEngine = new DiffUtilDiffEngine<>(itemCallback);
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Set the number of items of the new list after which the next anchor is searched.
+     * {@link #DEFAULT_CHUNK_SIZE} by default.
+     *
+     * @param chunkSize The chunk size
+     * @return this
+     */
+    @NonNull
+    public ChunkedDiffEngine<T> setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public Result calculateDiff(@NonNull List<T> oldList, @NonNull List<T> newList) {
+        List<Segment> segments = split(oldList, newList);
+        calculateSegments(segments, oldList, newList);
+        return new ChunkedResult(segments);
+    }
+
+    /**
+     * Splits the lists into segments of aligned items, which are the same in both lists, and
+     * segments that have to be diffed. Both are ordered by position.
+     */
+    @NonNull
+    List<Segment> split(@NonNull List<T> oldList, @NonNull List<T> newList) {
+        int oldSize = oldList.size();
+        int newSize = newList.size();
+
+        int prefix = 0;
+        while (prefix < oldSize && prefix < newSize
+                && areItemsTheSame(oldList.get(prefix), newList.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+                && areItemsTheSame(oldList.get(oldSize - 1 - suffix),
+                newList.get(newSize - 1 - suffix))) {
+            suffix++;
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        addAlignedSegments(segments, 0, 0, prefix);
+
+        int oldStart = prefix;
+        int newStart = prefix;
+        int oldEnd = oldSize - suffix;
+        int newEnd = newSize - suffix;
+        if (newEnd - newStart >= 2 * chunkSize && oldEnd > oldStart) {
+            Map<Object, Integer> oldPositions = new HashMap<>();
+            for (int i = oldStart; i < oldEnd; i++) {
+                T item = oldList.get(i);
+                if (item != null) {
+                    oldPositions.put(keyProvider.getKey(item), i);
+                }
+            }
+
+            int newPosition = newStart + chunkSize;
+            while (newPosition < newEnd - chunkSize) {
+                T item = newList.get(newPosition);
+                Integer oldPosition = item == null
+                        ? null
+                        : oldPositions.get(keyProvider.getKey(item));
+                if (oldPosition == null || oldPosition < oldStart
+                        || !areItemsTheSame(oldList.get(oldPosition), item)) {
+                    newPosition += chunkSize;
+                    continue;
+                }
+
+                // Extend the anchor to the whole run of aligned items around it
+                int oldAnchor = oldPosition;
+                int newAnchor = newPosition;
+                while (oldAnchor > oldStart && newAnchor > newStart
+                        && areItemsTheSame(oldList.get(oldAnchor - 1), newList.get(newAnchor - 1))) {
+                    oldAnchor--;
+                    newAnchor--;
+                }
+                int count = oldPosition - oldAnchor + 1;
+                while (oldAnchor + count < oldEnd && newAnchor + count < newEnd
+                        && areItemsTheSame(oldList.get(oldAnchor + count),
+                        newList.get(newAnchor + count))) {
+                    count++;
+                }
+
+                addDiffSegment(segments, oldStart, oldAnchor, newStart, newAnchor);
+                addAlignedSegments(segments, oldAnchor, newAnchor, count);
+                oldStart = oldAnchor + count;
+                newStart = newAnchor + count;
+                newPosition = newStart + chunkSize;
+            }
+        }
+        addDiffSegment(segments, oldStart, oldEnd, newStart, newEnd);
+
+        addAlignedSegments(segments, oldEnd, newEnd, suffix);
+        return segments;
+    }
+
+    /**
+     * Aligned ranges are split too, so that their contents are compared in parallel
+     */
+    private void addAlignedSegments(@NonNull List<Segment> segments, int oldStart, int newStart,
+                                    int count) {
+        for (int offset = 0; offset < count; offset += chunkSize) {
+            int size = Math.min(chunkSize, count - offset);
+            segments.add(new Segment(false, oldStart + offset, newStart + offset, size, size));
+        }
+    }
+
+    private static void addDiffSegment(@NonNull List<Segment> segments, int oldStart, int oldEnd,
+                                       int newStart, int newEnd) {
+        if (oldEnd > oldStart || newEnd > newStart) {
+            segments.add(new Segment(true, oldStart, newStart, oldEnd - oldStart,
+                    newEnd - newStart));
+        }
+    }
+
+    /**
+     * Calculates the segments on the Executor and on the calling thread. The calling thread takes
+     * all segments that no worker has started yet, so it never waits for a worker that doesn't
+     * get a thread.
+     */
+    private void calculateSegments(@NonNull final List<Segment> segments,
+                                   @NonNull final List<T> oldList,
+                                   @NonNull final List<T> newList) {
+        final AtomicInteger nextSegment = new AtomicInteger();
+        final AtomicInteger calculatedSegments = new AtomicInteger();
+        final Object lock = new Object();
+        final Throwable[] error = new Throwable[1];
+
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int i;
+                while ((i = nextSegment.getAndIncrement()) < segments.size()) {
+                    try {
+                        segments.get(i).calculate(ChunkedDiffEngine.this, oldList, newList);
+                    } catch (Throwable t) {
+                        synchronized (lock) {
+                            error[0] = t;
+                        }
+                    }
+                    if (calculatedSegments.incrementAndGet() == segments.size()) {
+                        synchronized (lock) {
+                            lock.notifyAll();
+                        }
+                    }
+                }
+            }
+        };
+
+        int workers = Math.min(parallelism, segments.size()) - 1;
+        for (int i = 0; i < workers; i++) {
+            executor.execute(worker);
+        }
+        worker.run();
+
+        synchronized (lock) {
+            while (calculatedSegments.get() < segments.size()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while calculating the diff", e);
+                }
+            }
+            if (error[0] instanceof RuntimeException) {
+                throw (RuntimeException) error[0];
+            } else if (error[0] instanceof Error) {
+                throw (Error) error[0];
+            }
+        }
+    }
+
+    private boolean areItemsTheSame(@Nullable T oldItem, @Nullable T newItem) {
+        if (oldItem != null && newItem != null) {
+            return itemCallback.areItemsTheSame(oldItem, newItem);
+        }
+        return oldItem == null && newItem == null;
+    }
+
+    @NonNull
+    private static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            defaultExecutor = Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull Runnable runnable) {
+                            Thread thread = new Thread(runnable,
+                                    "ChunkedDiffEngine-" + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * A range of the old and the new list that is either aligned or diffed
+     */
+    static final class Segment {
+        final boolean diff;
+        final int oldStart;
+        final int newStart;
+        final int oldCount;
+        final int newCount;
+
+        /**
+         * The result if diffed
+         */
+        Result result;
+
+        /**
+         * The offsets of the items with changed contents and their payloads if aligned
+         */
+        int[] changed;
+        Object[] payloads;
+
+        Segment(boolean diff, int oldStart, int newStart, int oldCount, int newCount) {
+            this.diff = diff;
+            this.oldStart = oldStart;
+            this.newStart = newStart;
+            this.oldCount = oldCount;
+            this.newCount = newCount;
+        }
+
+        <T> void calculate(@NonNull ChunkedDiffEngine<T> engine, @NonNull List<T> oldList,
+                           @NonNull List<T> newList) {
+            if (diff) {
+                result = engine.chunkDiffEngine.calculateDiff(
+                        oldList.subList(oldStart, oldStart + oldCount),
+                        newList.subList(newStart, newStart + newCount));
+                return;
+            }
+
+            int changedCount = 0;
+            int[] changedOffsets = new int[oldCount];
+            Object[] changedPayloads = new Object[oldCount];
+            for (int i = 0; i < oldCount; i++) {
+                T oldItem = oldList.get(oldStart + i);
+                T newItem = newList.get(newStart + i);
+                if (oldItem != null && newItem != null
+                        && !engine.itemCallback.areContentsTheSame(oldItem, newItem)) {
+                    changedOffsets[changedCount] = i;
+                    changedPayloads[changedCount] =
+                            engine.itemCallback.getChangePayload(oldItem, newItem);
+                    changedCount++;
+                }
+            }
+            changed = Arrays.copyOf(changedOffsets, changedCount);
+            payloads = Arrays.copyOf(changedPayloads, changedCount);
+        }
+    }
+
+    /**
+     * Dispatches the segments from the last to the first one, so that the operations of a segment
+     * don't move the positions of the segments in front of it. The current position of a segment
+     * is therefore its position in the old list.
+     */
+    private static final class ChunkedResult implements Result {
+        private final List<Segment> segments;
+
+        ChunkedResult(@NonNull List<Segment> segments) {
+            this.segments = segments;
+        }
+
+        @Override
+        public void dispatchUpdatesTo(@NonNull ListUpdateCallback callback) {
+            BatchingListUpdateCallback batchingCallback =
+                    callback instanceof BatchingListUpdateCallback
+                            ? (BatchingListUpdateCallback) callback
+                            : new BatchingListUpdateCallback(callback);
+
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                Segment segment = segments.get(i);
+                if (segment.diff) {
+                    segment.result.dispatchUpdatesTo(
+                            new OffsetListUpdateCallback(batchingCallback, segment.oldStart));
+                } else {
+                    for (int j = segment.changed.length - 1; j >= 0; j--) {
+                        batchingCallback.onChanged(segment.oldStart + segment.changed[j], 1,
+                                segment.payloads[j]);
+                    }
+                }
+            }
+            batchingCallback.dispatchLastEvent();
+        }
+    }
+
+    private static final class OffsetListUpdateCallback implements ListUpdateCallback {
+        private final ListUpdateCallback callback;
+        private final int offset;
+
+        OffsetListUpdateCallback(@NonNull ListUpdateCallback callback, int offset) {
+            this.callback = callback;
+            this.offset = offset;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            callback.onInserted(position + offset, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            callback.onRemoved(position + offset, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            callback.onMoved(fromPosition + offset, toPosition + offset);
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            callback.onChanged(position + offset, count, payload);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+/**
+ * A {@link DiffUtil.ItemCallback} that routes the items to the ItemCallbacks of their
+ * {@link AdapterDelegate}s (see {@link AdapterDelegate#getItemCallback()}), so that there is no
+ * need to write one ItemCallback with an instanceof check per type of items:
+ * <pre>
+ * {@code
+ *    AdapterDelegatesManager<List<Animal>> manager = new AdapterDelegatesManager<>(
+ *            new CatAdapterDelegate(),
+ *            new DogAdapterDelegate());
+ *    new AsyncListDifferDelegationAdapter<>(new CompositeItemCallback<>(manager), manager);
+ * }
+ * </pre>
+ * <p>
+ * The ItemCallback is resolved once per class of items and cached. It is the ItemCallback of the
+ * AdapterDelegate that declares a matching {@link AdapterDelegate#getItemClass()}, otherwise the
+ * fallback ItemCallback passed to the constructor. AdapterDelegates that don't declare their item
+ * class are never asked, because {@link AdapterDelegate#isForViewType(Object, int)} may depend on
+ * the position and is not called from the background thread the diff is calculated on. Two items
+ * of different classes with different ItemCallbacks are never the same. The cache is dropped
+ * whenever AdapterDelegates are added to or removed from the AdapterDelegatesManager.
+ * </p>
+ *
+ * @param <T> The type of the items
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public class CompositeItemCallback<T> extends DiffUtil.ItemCallback<T> {
+
+    private final AdapterDelegatesManager<List<T>> delegatesManager;
+    private final DiffUtil.ItemCallback<T> fallbackItemCallback;
+    private final Map<Class<?>, DiffUtil.ItemCallback<Object>> resolvedItemCallbacks =
+            new ConcurrentHashMap<>();
+    /**
+     * The AdapterDelegates {@link #resolvedItemCallbacks} have been resolved from
+     */
+    private volatile AdapterDelegate<List<T>>[] resolvedDelegates;
+
+    /**
+     * Creates a CompositeItemCallback that throws an exception for items whose AdapterDelegate
+     * doesn't declare an item class and ItemCallback
+     *
+     * @param delegatesManager The AdapterDelegatesManager that contains the AdapterDelegates
+     */
+    public CompositeItemCallback(@NonNull AdapterDelegatesManager<List<T>> delegatesManager) {
+        this(delegatesManager, null);
+    }
+
+    /**
+     * Creates a CompositeItemCallback
+     *
+     * @param delegatesManager     The AdapterDelegatesManager that contains the AdapterDelegates
+     * @param fallbackItemCallback The ItemCallback for items whose AdapterDelegate doesn't declare
+     *                             an item class and ItemCallback or null to throw an exception for
+     *                             such items
+     */
+    public CompositeItemCallback(@NonNull AdapterDelegatesManager<List<T>> delegatesManager,
+                                 @Nullable DiffUtil.ItemCallback<T> fallbackItemCallback) {
+        if (delegatesManager == null) {
+            throw new NullPointerException("AdapterDelegatesManager is null");
+        }
+        this.delegatesManager = delegatesManager;
+        this.fallbackItemCallback = fallbackItemCallback;
+    }
+
+    @Override
+    public boolean areItemsTheSame(@NonNull T oldItem, @NonNull T newItem) {
+        DiffUtil.ItemCallback<Object> itemCallback = getItemCallback(oldItem);
+        if (oldItem.getClass() != newItem.getClass() && itemCallback != getItemCallback(newItem)) {
+            return false;
+        }
+        return itemCallback.areItemsTheSame(oldItem, newItem);
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull T oldItem, @NonNull T newItem) {
+        return getItemCallback(oldItem).areContentsTheSame(oldItem, newItem);
+    }
+
+    @Nullable
+    @Override
+    public Object getChangePayload(@NonNull T oldItem, @NonNull T newItem) {
+        return getItemCallback(oldItem).getChangePayload(oldItem, newItem);
+    }
+
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private DiffUtil.ItemCallback<Object> getItemCallback(@NonNull T item) {
+        AdapterDelegate<List<T>>[] delegates = delegatesManager.getDelegatesSnapshot();
+        if (delegates != resolvedDelegates) {
+            synchronized (this) {
+                if (delegates != resolvedDelegates) {
+                    resolvedItemCallbacks.clear();
+                    resolvedDelegates = delegates;
+                }
+            }
+        }
+
+        DiffUtil.ItemCallback<Object> itemCallback = resolvedItemCallbacks.get(item.getClass());
+        if (itemCallback != null) {
+            return itemCallback;
+        }
+
+        itemCallback = (DiffUtil.ItemCallback<Object>) resolveItemCallback(delegates, item);
+        if (itemCallback == null) {
+            itemCallback = (DiffUtil.ItemCallback<Object>) fallbackItemCallback;
+        }
+        if (itemCallback == null) {
+            throw new NullPointerException("No AdapterDelegate declares the item class and an "
+                    + "ItemCallback for " + item.getClass() + " and no fallback ItemCallback has been set");
+        }
+        resolvedItemCallbacks.put(item.getClass(), itemCallback);
+        return itemCallback;
+    }
+
+    @Nullable
+    private DiffUtil.ItemCallback<?> resolveItemCallback(
+            @NonNull AdapterDelegate<List<T>>[] delegates, @NonNull T item) {
+        for (AdapterDelegate<List<T>> delegate : delegates) {
+            Class<?> itemClass = delegate.getItemClass();
+            if (itemClass != null && itemClass.isInstance(item)) {
+                return delegate.getItemCallback();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AsyncListDiffer;
+
+/**
+ * Submits lists to an {@link AsyncListDiffer} so that only one diff is calculated at a time. Lists
+ * that are submitted while a diff is calculated are not diffed at all, except the latest one which
+ * is diffed against the current list once the diff in flight has been committed. Optionally
+ * commits are at least {@link #setMinCommitIntervalMillis(long)} apart.
+ * <p>
+ * The commit callbacks of lists that are replaced by a later list before they have been submitted
+ * to the AsyncListDiffer are executed when the later list is committed. The same applies to the
+ * list in flight if {@link #flush()} submits a list before it has been committed, because the
+ * AsyncListDiffer never commits a list that has been replaced.
+ * </p>
+ *
+ * @param <T> The type of the items
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+class ConflatingListSubmitter<T> {
+
+    private final AsyncListDiffer<T> differ;
+    private final List<Runnable> pendingCommitCallbacks = new ArrayList<>();
+    private List<Runnable> inFlightCommitCallbacks = new ArrayList<>();
+    private int submissionCount;
+    private final Runnable submitPending = new Runnable() {
+        @Override
+        public void run() {
+            waiting = false;
+            submitPending();
+        }
+    };
+
+    private long minCommitIntervalMillis;
+    private long lastCommitMillis = -1;
+    private List<T> pendingList;
+    private boolean hasPendingList;
+    private boolean inFlight;
+    private boolean waiting;
+    private Handler handler;
+
+    ConflatingListSubmitter(@NonNull AsyncListDiffer<T> differ) {
+        this.differ = differ;
+    }
+
+    /**
+     * Set the minimum time between two commits. 0 by default.
+     *
+     * @param minCommitIntervalMillis The time in milliseconds
+     */
+    void setMinCommitIntervalMillis(long minCommitIntervalMillis) {
+        this.minCommitIntervalMillis = minCommitIntervalMillis;
+    }
+
+    /**
+     * Submits the list once the diff in flight has been committed and the minimum commit
+     * interval has passed.
+     *
+     * @param list           The list
+     * @param commitCallback Runnable that is executed when the list or a list submitted afterwards
+     *                       is committed
+     */
+    void submitList(@Nullable List<T> list, @Nullable Runnable commitCallback) {
+        pendingList = list;
+        hasPendingList = true;
+        if (commitCallback != null) {
+            pendingCommitCallbacks.add(commitCallback);
+        }
+        if (!inFlight && !waiting) {
+            scheduleSubmit();
+        }
+    }
+
+    /**
+     * @return true if a list is waiting to be submitted or its diff is calculated
+     */
+    boolean isBusy() {
+        return hasPendingList || inFlight;
+    }
+
+    /**
+     * Submits the pending list right away, i.e. if conflation is disabled. If a list is in flight,
+     * its commit callbacks are executed when the pending list is committed instead.
+     */
+    void flush() {
+        if (waiting) {
+            waiting = false;
+            removeCallbacks(submitPending);
+        }
+        if (hasPendingList) {
+            if (inFlight) {
+                pendingCommitCallbacks.addAll(0, inFlightCommitCallbacks);
+            }
+            submitPending();
+        }
+    }
+
+    private void scheduleSubmit() {
+        long delay = lastCommitMillis + minCommitIntervalMillis - uptimeMillis();
+        if (lastCommitMillis >= 0 && delay > 0) {
+            waiting = true;
+            postDelayed(submitPending, delay);
+        } else {
+            submitPending();
+        }
+    }
+
+    private void submitPending() {
+        List<T> list = pendingList;
+        final List<Runnable> commitCallbacks = new ArrayList<>(pendingCommitCallbacks);
+        final int submission = ++submissionCount;
+        pendingList = null;
+        hasPendingList = false;
+        pendingCommitCallbacks.clear();
+
+        inFlight = true;
+        inFlightCommitCallbacks = commitCallbacks;
+        submitToDiffer(list, new Runnable() {
+            @Override
+            public void run() {
+                if (submission != submissionCount) {
+                    return; // replaced by flush(), the callbacks run with the later list
+                }
+                inFlight = false;
+                lastCommitMillis = uptimeMillis();
+                for (Runnable commitCallback : commitCallbacks) {
+                    commitCallback.run();
+                }
+                if (hasPendingList && !waiting) {
+                    scheduleSubmit();
+                }
+            }
+        });
+    }
+
+    void submitToDiffer(@Nullable List<T> list, @NonNull Runnable commitCallback) {
+        differ.submitList(list, commitCallback);
+    }
+
+    void postDelayed(@NonNull Runnable runnable, long delayMillis) {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+        handler.postDelayed(runnable, delayMillis);
+    }
+
+    void removeCallbacks(@NonNull Runnable runnable) {
+        if (handler != null) {
+            handler.removeCallbacks(runnable);
+        }
+    }
+
+    long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+}
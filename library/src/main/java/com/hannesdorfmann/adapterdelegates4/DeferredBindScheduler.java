@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Runs the deferrable part of binding a ViewHolder (see {@link
+ * AdapterDelegate#onDeferredBindViewHolder(RecyclerView.ViewHolder)}) right away as long as the
+ * current frame is within its budget. Otherwise the deferred bind is postponed to one of the next
+ * frames. While the RecyclerView is flinging ({@link RecyclerView#SCROLL_STATE_SETTLING}) all
+ * deferred binds are postponed until the fling has settled, because most of the ViewHolders bound
+ * during a fling are scrolled out of the screen again immediately.
+ * <p>
+ * A pending deferred bind is dropped as soon as the ViewHolder is bound again or recycled, so a
+ * ViewHolder never gets the deferred bind of an item it doesn't show anymore.
+ * </p>
+ * <pre>
+ * {@code
+ *    adapter.delegatesManager.setDeferredBindScheduler(new DeferredBindScheduler());
+ * }
+ * </pre>
+ * <p>
+ * Like RecyclerView itself, this class must only be used from the main thread.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public class DeferredBindScheduler extends RecyclerView.OnScrollListener
+        implements Choreographer.FrameCallback {
+
+    /**
+     * The default budget per frame: half of a frame at 60 fps, the other half is left for layout
+     * and drawing.
+     */
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 8_000_000L;
+
+    private static final long FRAME_DELAY_MILLIS = 16;
+    private static final long UNKNOWN_FRAME_START = -1;
+
+    private final LinkedHashMap<RecyclerView.ViewHolder, AdapterDelegate<?>> pending =
+            new LinkedHashMap<>();
+    private long frameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+    private long frameStartNanos = UNKNOWN_FRAME_START;
+    private boolean frameCallbackPosted = false;
+    private boolean scheduledSinceLastFrame = false;
+    private boolean settling = false;
+    private Handler handler;
+    private Runnable frameRunnable;
+
+    /**
+     * Set the time per frame that may be spent for deferred binds.
+     *
+     * @param frameBudgetNanos The budget in nano seconds
+     * @return self
+     */
+    public DeferredBindScheduler setFrameBudgetNanos(long frameBudgetNanos) {
+        if (frameBudgetNanos < 0) {
+            throw new IllegalArgumentException("frameBudgetNanos must be >= 0 but is "
+                    + frameBudgetNanos);
+        }
+        this.frameBudgetNanos = frameBudgetNanos;
+        return this;
+    }
+
+    /**
+     * Runs the deferred bind of the given ViewHolder now or schedules it for a later frame. A
+     * previously scheduled deferred bind of the same ViewHolder is dropped.
+     *
+     * @param delegate The AdapterDelegate that has bound the ViewHolder
+     * @param holder   The ViewHolder
+     */
+    void schedule(@NonNull AdapterDelegate<?> delegate, @NonNull RecyclerView.ViewHolder holder) {
+        pending.remove(holder);
+        if (frameStartNanos == UNKNOWN_FRAME_START) {
+            // Not ticking yet, so this is the first bind of the current frame
+            frameStartNanos = nanoTime();
+        }
+        scheduledSinceLastFrame = true;
+        ensureFrameCallback();
+
+        if (!settling && nanoTime() - frameStartNanos < frameBudgetNanos) {
+            delegate.onDeferredBindViewHolder(holder);
+        } else {
+            pending.put(holder, delegate);
+        }
+    }
+
+    /**
+     * Drops the pending deferred bind of the given ViewHolder, if any
+     *
+     * @param holder The ViewHolder
+     */
+    void cancel(@NonNull RecyclerView.ViewHolder holder) {
+        pending.remove(holder);
+    }
+
+    /**
+     * Drops all pending deferred binds
+     */
+    public void cancelAll() {
+        pending.clear();
+    }
+
+    /**
+     * @return The number of deferred binds that have not run yet
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        settling = newState == RecyclerView.SCROLL_STATE_SETTLING;
+        if (!settling && !pending.isEmpty()) {
+            ensureFrameCallback();
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameCallbackPosted = false;
+        frameStartNanos = frameTimeNanos;
+
+        if (!settling) {
+            // At least one deferred bind per frame, so that there is progress even if the frame
+            // is already over budget
+            Iterator<Map.Entry<RecyclerView.ViewHolder, AdapterDelegate<?>>> iterator =
+                    pending.entrySet().iterator();
+            do {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                Map.Entry<RecyclerView.ViewHolder, AdapterDelegate<?>> entry = iterator.next();
+                iterator.remove();
+                entry.getValue().onDeferredBindViewHolder(entry.getKey());
+            } while (nanoTime() - frameTimeNanos < frameBudgetNanos);
+        }
+
+        if (scheduledSinceLastFrame || (!settling && !pending.isEmpty())) {
+            // Keep ticking to know when the next frame starts
+            scheduledSinceLastFrame = false;
+            ensureFrameCallback();
+        } else {
+            frameStartNanos = UNKNOWN_FRAME_START;
+        }
+    }
+
+    private void ensureFrameCallback() {
+        if (!frameCallbackPosted) {
+            frameCallbackPosted = true;
+            postFrameCallback();
+        }
+    }
+
+    void postFrameCallback() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Choreographer.getInstance().postFrameCallback(this);
+        } else {
+            if (handler == null) {
+                handler = new Handler(Looper.getMainLooper());
+                frameRunnable = new Runnable() {
+                    @Override
+                    public void run() {
+                        doFrame(System.nanoTime());
+                    }
+                };
+            }
+            handler.postDelayed(frameRunnable, FRAME_DELAY_MILLIS);
+        }
+    }
+
+    long nanoTime() {
+        return System.nanoTime();
+    }
+}
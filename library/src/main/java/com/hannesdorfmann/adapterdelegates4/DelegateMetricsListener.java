@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Listener that gets notified by {@link AdapterDelegatesManager} about how long an {@link
+ * AdapterDelegate} took to handle a certain event. Set it with {@link
+ * AdapterDelegatesManager#setMetricsListener(DelegateMetricsListener)}.
+ * <p>
+ * This method is called on the main thread for every event, so implementations must not allocate
+ * or do any expensive work. See {@link DelegateMetricsRecorder} for an implementation that
+ * aggregates the timings into histograms.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public interface DelegateMetricsListener {
+
+    /**
+     * {@link AdapterDelegate#isForViewType(Object, int)} has been called
+     */
+    int EVENT_IS_FOR_VIEW_TYPE = 0;
+
+    /**
+     * {@link AdapterDelegate#onCreateViewHolder(android.view.ViewGroup)} has been called
+     */
+    int EVENT_CREATE_VIEW_HOLDER = 1;
+
+    /**
+     * {@link AdapterDelegate#onBindViewHolder(Object, int, androidx.recyclerview.widget.RecyclerView.ViewHolder,
+     * java.util.List)} has been called
+     */
+    int EVENT_BIND_VIEW_HOLDER = 2;
+
+    /**
+     * {@link AdapterDelegate#onViewRecycled(androidx.recyclerview.widget.RecyclerView.ViewHolder)}
+     * has been called
+     */
+    int EVENT_VIEW_RECYCLED = 3;
+
+    /**
+     * The number of different events
+     */
+    int EVENT_COUNT = 4;
+
+    /**
+     * Called after an {@link AdapterDelegate} has handled an event
+     *
+     * @param delegate      The AdapterDelegate that has handled the event
+     * @param viewType      The view type of the AdapterDelegate
+     * @param event         One of the EVENT_* constants
+     * @param durationNanos How long the AdapterDelegate took in nanoseconds
+     */
+    void onDelegateEvent(@NonNull AdapterDelegate<?> delegate, int viewType, int event,
+                         long durationNanos);
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.SparseArrayCompat;
+
+/**
+ * A {@link DelegateMetricsListener} that counts the events per view type and aggregates the
+ * durations into histograms with a fixed number of buckets. Bucket <code>i</code> contains the
+ * events that took [2^i, 2^(i+1)) nanoseconds, the last bucket contains everything that took
+ * longer. Memory is only allocated the first time an event for a new view type is recorded.
+ * <p>
+ * Like the adapter itself this class is not thread safe and must be used from the main thread.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public class DelegateMetricsRecorder implements DelegateMetricsListener {
+
+    /**
+     * The number of histogram buckets. The last bucket contains all events that took longer than
+     * about one second.
+     */
+    public static final int BUCKET_COUNT = 31;
+
+    /**
+     * The metrics of a single view type
+     */
+    public static final class Stats {
+        private final int viewType;
+        private AdapterDelegate<?> delegate;
+        private final long[] counts = new long[EVENT_COUNT];
+        private final long[] totalNanos = new long[EVENT_COUNT];
+        private final long[] maxNanos = new long[EVENT_COUNT];
+        private final long[] histograms = new long[EVENT_COUNT * BUCKET_COUNT];
+
+        Stats(int viewType) {
+            this.viewType = viewType;
+        }
+
+        public int getViewType() {
+            return viewType;
+        }
+
+        /**
+         * @return The AdapterDelegate that has handled the last recorded event
+         */
+        @Nullable
+        public AdapterDelegate<?> getDelegate() {
+            return delegate;
+        }
+
+        public long getCount(int event) {
+            return counts[event];
+        }
+
+        public long getTotalNanos(int event) {
+            return totalNanos[event];
+        }
+
+        public long getMaxNanos(int event) {
+            return maxNanos[event];
+        }
+
+        public long getAverageNanos(int event) {
+            return counts[event] == 0 ? 0 : totalNanos[event] / counts[event];
+        }
+
+        /**
+         * @return The number of events that took [2^bucket, 2^(bucket+1)) nanoseconds
+         */
+        public long getBucketCount(int event, int bucket) {
+            return histograms[event * BUCKET_COUNT + bucket];
+        }
+
+        /**
+         * Get an upper bound of the given percentile based on the histogram.
+         *
+         * @param event      One of the EVENT_* constants
+         * @param percentile The percentile between 0 and 100, i.e. 99 for the 99th percentile
+         * @return The upper bound of the histogram bucket that contains the percentile in
+         * nanoseconds or 0 if no event has been recorded
+         */
+        public long getPercentileNanos(int event, double percentile) {
+            long count = counts[event];
+            if (count == 0) {
+                return 0;
+            }
+
+            long threshold = (long) Math.ceil(count * percentile / 100d);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKET_COUNT - 1; bucket++) {
+                seen += histograms[event * BUCKET_COUNT + bucket];
+                if (seen >= threshold) {
+                    return Math.min(1L << (bucket + 1), maxNanos[event]);
+                }
+            }
+            return maxNanos[event];
+        }
+
+        void record(AdapterDelegate<?> delegate, int event, long durationNanos) {
+            this.delegate = delegate;
+            counts[event]++;
+            totalNanos[event] += durationNanos;
+            if (durationNanos > maxNanos[event]) {
+                maxNanos[event] = durationNanos;
+            }
+            histograms[event * BUCKET_COUNT + bucketOf(durationNanos)]++;
+        }
+
+        void reset() {
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                counts[i] = 0;
+                totalNanos[i] = 0;
+                maxNanos[i] = 0;
+            }
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = 0;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{viewType=" + viewType
+                    + ", delegate=" + delegate
+                    + ", isForViewType=" + format(EVENT_IS_FOR_VIEW_TYPE)
+                    + ", create=" + format(EVENT_CREATE_VIEW_HOLDER)
+                    + ", bind=" + format(EVENT_BIND_VIEW_HOLDER)
+                    + ", recycled=" + format(EVENT_VIEW_RECYCLED)
+                    + "}";
+        }
+
+        private String format(int event) {
+            return "[count=" + counts[event]
+                    + ", avg=" + getAverageNanos(event)
+                    + "ns, p99=" + getPercentileNanos(event, 99)
+                    + "ns, max=" + maxNanos[event] + "ns]";
+        }
+    }
+
+    private final SparseArrayCompat<Stats> stats = new SparseArrayCompat<>();
+
+    @Override
+    public void onDelegateEvent(@NonNull AdapterDelegate<?> delegate, int viewType, int event,
+                                long durationNanos) {
+        Stats viewTypeStats = stats.get(viewType);
+        if (viewTypeStats == null) {
+            viewTypeStats = new Stats(viewType);
+            stats.put(viewType, viewTypeStats);
+        }
+        viewTypeStats.record(delegate, event, durationNanos);
+    }
+
+    /**
+     * Get the metrics for the given view type
+     *
+     * @param viewType The view type
+     * @return The metrics or null if no event has been recorded for the given view type
+     */
+    @Nullable
+    public Stats getStats(int viewType) {
+        return stats.get(viewType);
+    }
+
+    /**
+     * @return The number of view types for which events have been recorded
+     */
+    public int getStatsCount() {
+        return stats.size();
+    }
+
+    /**
+     * @param index Index between 0 and {@link #getStatsCount()}
+     * @return The metrics at the given index, ordered by view type
+     */
+    @NonNull
+    public Stats getStatsAt(int index) {
+        return stats.valueAt(index);
+    }
+
+    /**
+     * Resets all counters and histograms
+     */
+    public void reset() {
+        for (int i = 0; i < stats.size(); i++) {
+            stats.valueAt(i).reset();
+        }
+    }
+
+    static int bucketOf(long durationNanos) {
+        if (durationNanos <= 1) {
+            return 0;
+        }
+        int bucket = 63 - Long.numberOfLeadingZeros(durationNanos);
+        return bucket < BUCKET_COUNT ? bucket : BUCKET_COUNT - 1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("DelegateMetricsRecorder{");
+        for (int i = 0; i < stats.size(); i++) {
+            builder.append('\n').append(stats.valueAt(i));
+        }
+        return builder.append('}').toString();
+    }
+}
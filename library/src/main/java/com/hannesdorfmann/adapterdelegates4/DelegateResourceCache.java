@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.ColorRes;
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.StringRes;
+import androidx.collection.SparseArrayCompat;
+
+/**
+ * Caches strings, colors, {@link ColorStateList}s and the {@link Drawable.ConstantState} of drawables
+ * that are looked up while binding, so that binding the same kind of item again and again doesn't go
+ * through {@link Resources} every time. Usually one instance is shared by all ViewHolders of an
+ * {@link AdapterDelegate}.
+ * <p>
+ * The cache is cleared if the {@link Configuration} changes (i.e. another locale or night mode), if
+ * it is used with a {@link Context} that has another {@link Resources.Theme} than before (i.e. another
+ * Activity) and if the system is running low on memory.
+ * </p>
+ * <p>
+ * Like RecyclerView itself, this class must only be used from the main thread.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public class DelegateResourceCache {
+
+    private final SparseArrayCompat<String> strings = new SparseArrayCompat<>();
+    private final SparseArrayCompat<Integer> colors = new SparseArrayCompat<>();
+    private final SparseArrayCompat<ColorStateList> colorStateLists = new SparseArrayCompat<>();
+    private final SparseArrayCompat<Drawable.ConstantState> drawables = new SparseArrayCompat<>();
+    private Resources.Theme theme;
+    private boolean registered = false;
+
+    /**
+     * Returns a localized string, see {@link Context#getString(int)}.
+     *
+     * @param context The context of the ViewHolder
+     * @param resId   Resource id for the string
+     * @return The string
+     */
+    @NonNull
+    public String getString(@NonNull Context context, @StringRes int resId) {
+        checkTheme(context);
+        String string = strings.get(resId);
+        if (string == null) {
+            string = context.getString(resId);
+            strings.put(resId, string);
+        }
+        return string;
+    }
+
+    /**
+     * Returns a color styled for the current theme, see {@link Context#getColor(int)}.
+     *
+     * @param context The context of the ViewHolder
+     * @param id      Resource id of the color
+     * @return A single color value in the form 0xAARRGGBB.
+     */
+    @ColorInt
+    public int getColor(@NonNull Context context, @ColorRes int id) {
+        checkTheme(context);
+        Integer color = colors.get(id);
+        if (color == null) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                color = context.getColor(id);
+            } else {
+                color = context.getResources().getColor(id);
+            }
+            colors.put(id, color);
+        }
+        return color;
+    }
+
+    /**
+     * Returns a color state list styled for the current theme, see {@link
+     * Context#getColorStateList(int)}.
+     *
+     * @param context The context of the ViewHolder
+     * @param id      Resource id of the color state list
+     * @return The color state list
+     */
+    @NonNull
+    public ColorStateList getColorStateList(@NonNull Context context, @ColorRes int id) {
+        checkTheme(context);
+        ColorStateList colorStateList = colorStateLists.get(id);
+        if (colorStateList == null) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                colorStateList = context.getColorStateList(id);
+            } else {
+                colorStateList = context.getResources().getColorStateList(id);
+            }
+            colorStateLists.put(id, colorStateList);
+        }
+        return colorStateList;
+    }
+
+    /**
+     * Returns a new drawable styled for the current theme, see {@link Context#getDrawable(int)}.
+     * The drawable is created from a cached {@link Drawable.ConstantState}, so like drawables
+     * returned by {@link Resources} it shares its state with other drawables of the same resource
+     * until {@link Drawable#mutate()} is called.
+     *
+     * @param context The context of the ViewHolder
+     * @param id      Resource id of the drawable
+     * @return A new drawable
+     */
+    @NonNull
+    public Drawable getDrawable(@NonNull Context context, @DrawableRes int id) {
+        checkTheme(context);
+        Drawable.ConstantState constantState = drawables.get(id);
+        if (constantState != null) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                return constantState.newDrawable(context.getResources(), context.getTheme());
+            } else {
+                return constantState.newDrawable(context.getResources());
+            }
+        }
+
+        Drawable drawable;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            drawable = context.getDrawable(id);
+        } else {
+            drawable = context.getResources().getDrawable(id);
+        }
+        if (drawable.getConstantState() != null) {
+            drawables.put(id, drawable.getConstantState());
+        }
+        return drawable;
+    }
+
+    /**
+     * Removes everything from this cache
+     */
+    public void clear() {
+        strings.clear();
+        colors.clear();
+        colorStateLists.clear();
+        drawables.clear();
+    }
+
+    private void checkTheme(@NonNull Context context) {
+        Resources.Theme contextTheme = context.getTheme();
+        if (contextTheme != theme) {
+            clear();
+            theme = contextTheme;
+        }
+
+        if (!registered && context.getApplicationContext() != null) {
+            ConfigurationCallbacks.add(context.getApplicationContext(), this);
+            registered = true;
+        }
+    }
+
+    /**
+     * Clears the caches on configuration changes. Only one instance is registered per application
+     * context, no matter how many caches there are. The caches are only weakly referenced, so that
+     * they (and the AdapterDelegates holding them) can be garbage collected.
+     */
+    private static final class ConfigurationCallbacks implements ComponentCallbacks {
+
+        private static final WeakHashMap<Context, ConfigurationCallbacks> instances =
+                new WeakHashMap<>();
+
+        private final ArrayList<WeakReference<DelegateResourceCache>> caches = new ArrayList<>();
+
+        static void add(@NonNull Context applicationContext,
+                        @NonNull DelegateResourceCache cache) {
+            ConfigurationCallbacks callbacks = instances.get(applicationContext);
+            if (callbacks == null) {
+                callbacks = new ConfigurationCallbacks();
+                instances.put(applicationContext, callbacks);
+                applicationContext.registerComponentCallbacks(callbacks);
+            }
+            callbacks.removeCollectedCaches();
+            callbacks.caches.add(new WeakReference<>(cache));
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+            clearCaches();
+        }
+
+        @Override
+        public void onLowMemory() {
+            clearCaches();
+        }
+
+        private void clearCaches() {
+            removeCollectedCaches();
+            for (int i = 0; i < caches.size(); i++) {
+                DelegateResourceCache cache = caches.get(i).get();
+                if (cache != null) {
+                    cache.clear();
+                }
+            }
+        }
+
+        private void removeCollectedCaches() {
+            for (int i = caches.size() - 1; i >= 0; i--) {
+                if (caches.get(i).get() == null) {
+                    caches.remove(i);
+                }
+            }
+        }
+    }
+}
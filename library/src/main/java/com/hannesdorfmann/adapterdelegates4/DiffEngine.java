@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+/**
+ * Calculates the difference between two lists. By default {@link AsyncListDifferDelegationAdapter}
+ * uses {@link AsyncListDiffer} and therefore {@link DiffUtil}, but another algorithm can be plugged
+ * in by passing a DiffEngine to the constructor of {@link AsyncListDifferDelegationAdapter}, i.e. a
+ * {@link KeyedDiffEngine} for long lists of items with stable unique keys.
+ *
+ * @param <T> The type of the items
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public interface DiffEngine<T> {
+
+    /**
+     * The operations that turn the old list into the new list
+     */
+    interface Result {
+
+        /**
+         * Dispatches the operations to the given callback, in the same way as
+         * {@link DiffUtil.DiffResult#dispatchUpdatesTo(ListUpdateCallback)} does.
+         *
+         * @param callback The callback to dispatch the operations to
+         */
+        void dispatchUpdatesTo(@NonNull ListUpdateCallback callback);
+    }
+
+    /**
+     * Calculates the difference between the two lists. This is called on a background thread, the
+     * lists must not be modified meanwhile.
+     *
+     * @param oldList The list that is currently displayed
+     * @param newList The list that will be displayed
+     * @return The operations that turn the old list into the new list
+     */
+    @WorkerThread
+    @NonNull
+    Result calculateDiff(@NonNull List<T> oldList, @NonNull List<T> newList);
+}
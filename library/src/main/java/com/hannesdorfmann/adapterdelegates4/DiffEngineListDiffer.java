@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+/**
+ * An {@link AsyncListDiffer} that calculates the diff with a {@link DiffEngine} instead of
+ * {@link androidx.recyclerview.widget.DiffUtil}. Apart from that it behaves like AsyncListDiffer:
+ * The diff is calculated on the background thread Executor of the {@link AsyncDifferConfig} and
+ * only the latest submitted list is committed on the main thread. In addition changes can be
+ * applied without calculating a diff, see {@link #submitPatch(ListPatch, Runnable)}.
+ *
+ * @param <T> The type of the items
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+class DiffEngineListDiffer<T> extends AsyncListDiffer<T> {
+
+    private final ListUpdateCallback updateCallback;
+    private final DiffEngine<T> diffEngine;
+    private final Executor backgroundThreadExecutor;
+    private final Executor mainThreadExecutor;
+    private final List<ListListener<T>> listeners = new CopyOnWriteArrayList<>();
+
+    @Nullable
+    private List<T> list;
+    @Nullable
+    private List<T> submittedList;
+    @NonNull
+    private List<T> readOnlyList = Collections.emptyList();
+    private int maxScheduledGeneration;
+
+    DiffEngineListDiffer(@NonNull ListUpdateCallback updateCallback,
+                         @NonNull AsyncDifferConfig<T> config,
+                         @NonNull DiffEngine<T> diffEngine) {
+        this(updateCallback, config, diffEngine, config.getBackgroundThreadExecutor(),
+                new MainThreadExecutor());
+    }
+
+    DiffEngineListDiffer(@NonNull ListUpdateCallback updateCallback,
+                         @NonNull AsyncDifferConfig<T> config,
+                         @NonNull DiffEngine<T> diffEngine,
+                         @NonNull Executor backgroundThreadExecutor,
+                         @NonNull Executor mainThreadExecutor) {
+        super(updateCallback, config);
+        if (diffEngine == null) {
+            throw new NullPointerException("DiffEngine is null");
+        }
+        this.updateCallback = updateCallback;
+        this.diffEngine = diffEngine;
+        this.backgroundThreadExecutor = backgroundThreadExecutor;
+        this.mainThreadExecutor = mainThreadExecutor;
+    }
+
+    @NonNull
+    @Override
+    public List<T> getCurrentList() {
+        return readOnlyList;
+    }
+
+    @Override
+    public void submitList(@Nullable List<T> newList) {
+        submitList(newList, null);
+    }
+
+    @Override
+    public void submitList(@Nullable final List<T> newList, @Nullable final Runnable commitCallback) {
+        final int runGeneration = ++maxScheduledGeneration;
+        submittedList = newList;
+
+        if (newList == list) {
+            if (commitCallback != null) {
+                commitCallback.run();
+            }
+            return;
+        }
+
+        List<T> previousList = readOnlyList;
+
+        if (newList == null) {
+            int countRemoved = list.size();
+            list = null;
+            readOnlyList = Collections.emptyList();
+            updateCallback.onRemoved(0, countRemoved);
+            onCurrentListChanged(previousList, commitCallback);
+            return;
+        }
+
+        if (list == null) {
+            list = newList;
+            readOnlyList = Collections.unmodifiableList(newList);
+            updateCallback.onInserted(0, newList.size());
+            onCurrentListChanged(previousList, commitCallback);
+            return;
+        }
+
+        final List<T> oldList = list;
+        backgroundThreadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffEngine.Result result = diffEngine.calculateDiff(oldList, newList);
+                mainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (maxScheduledGeneration == runGeneration) {
+                            latchList(newList, result, commitCallback);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Applies the patch to the latest submitted list. If that list is committed already, the
+     * patched list is committed right away and the changes of the patch are dispatched directly.
+     * Otherwise the diff of the submitted list is still being calculated, so the patched list is
+     * submitted instead and replaces the submitted list like a regular {@link #submitList(List)}.
+     *
+     * @param patch          The patch
+     * @param commitCallback Runnable that is executed when the patched list is committed
+     * @return The patched list
+     */
+    @NonNull
+    List<T> submitPatch(@NonNull ListPatch<T> patch, @Nullable Runnable commitCallback) {
+        List<T> newList = new ArrayList<>(submittedList == null
+                ? Collections.<T>emptyList()
+                : submittedList);
+        patch.applyTo(newList);
+
+        if (submittedList != list) {
+            submitList(newList, commitCallback);
+            return newList;
+        }
+
+        maxScheduledGeneration++;
+        submittedList = newList;
+        latchList(newList, patch, commitCallback);
+        return newList;
+    }
+
+    private void latchList(@NonNull List<T> newList, @NonNull DiffEngine.Result result,
+                           @Nullable Runnable commitCallback) {
+        List<T> previousList = readOnlyList;
+        list = newList;
+        readOnlyList = Collections.unmodifiableList(newList);
+        result.dispatchUpdatesTo(updateCallback);
+        onCurrentListChanged(previousList, commitCallback);
+    }
+
+    private void onCurrentListChanged(@NonNull List<T> previousList,
+                                      @Nullable Runnable commitCallback) {
+        for (ListListener<T> listener : listeners) {
+            listener.onCurrentListChanged(previousList, readOnlyList);
+        }
+        if (commitCallback != null) {
+            commitCallback.run();
+        }
+    }
+
+    @Override
+    public void addListListener(@NonNull ListListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListListener(@NonNull ListListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    private static final class MainThreadExecutor implements Executor {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            handler.post(command);
+        }
+    }
+}
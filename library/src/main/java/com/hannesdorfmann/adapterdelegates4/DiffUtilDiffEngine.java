@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+/**
+ * A {@link DiffEngine} that calculates the diff with {@link DiffUtil} exactly like
+ * {@link AsyncListDiffer} does. Use it to get the default behavior of
+ * {@link AsyncListDifferDelegationAdapter} together with features that require a DiffEngine, like
+ * dispatching the changes of a {@link ListPatch} directly.
+ *
+ * @param <T> The type of the items
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public class DiffUtilDiffEngine<T> implements DiffEngine<T> {
+
+    private final DiffUtil.ItemCallback<T> itemCallback;
+
+    public DiffUtilDiffEngine(@NonNull DiffUtil.ItemCallback<T> itemCallback) {
+        if (itemCallback == null) {
+            throw new NullPointerException("ItemCallback is null");
+        }
+        this.itemCallback = itemCallback;
+    }
+
+    @NonNull
+    @Override
+    public Result calculateDiff(@NonNull final List<T> oldList, @NonNull final List<T> newList) {
+        final DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldList.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                T oldItem = oldList.get(oldItemPosition);
+                T newItem = newList.get(newItemPosition);
+                if (oldItem != null && newItem != null) {
+                    return itemCallback.areItemsTheSame(oldItem, newItem);
+                }
+                // If both items are null we consider them the same.
+                return oldItem == null && newItem == null;
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                T oldItem = oldList.get(oldItemPosition);
+                T newItem = newList.get(newItemPosition);
+                if (oldItem != null && newItem != null) {
+                    return itemCallback.areContentsTheSame(oldItem, newItem);
+                }
+                if (oldItem == null && newItem == null) {
+                    return true;
+                }
+                throw new AssertionError();
+            }
+
+            @Nullable
+            @Override
+            public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                T oldItem = oldList.get(oldItemPosition);
+                T newItem = newList.get(newItemPosition);
+                if (oldItem != null && newItem != null) {
+                    return itemCallback.getChangePayload(oldItem, newItem);
+                }
+                throw new AssertionError();
+            }
+        });
+
+        return new Result() {
+            @Override
+            public void dispatchUpdatesTo(@NonNull ListUpdateCallback callback) {
+                diffResult.dispatchUpdatesTo(callback);
+            }
+        };
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import java.util.Arrays;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Caches the view types of a {@link List} data source in a primitive int array so that {@link
+ * AdapterDelegatesManager#getItemViewType(Object, int)} is called at most once per position for a
+ * given list. The cache is dropped as soon as another list instance is set as data source or the
+ * size of the list changes. Changes made to the list in place are picked up by observing the
+ * adapter's notifyItem* calls, which is why the cache is only used while the adapter is attached to
+ * a {@link RecyclerView} (see {@link #onAttachedToRecyclerView(RecyclerView.Adapter)}).
+ * <p>
+ * The view types are resolved lazily on the main thread when RecyclerView asks for them, not
+ * eagerly in the background when a list is submitted: AsyncListDiffer offers no hook into its
+ * background thread and resolving lazily never resolves positions that are not shown. The cache
+ * is disabled until {@link #setEnabled(boolean)} is called.
+ * </p>
+ *
+ * @param <L> The type of the list data source
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+final class ItemViewTypeCache<L extends List<?>> extends RecyclerView.AdapterDataObserver {
+
+    private static final int[] EMPTY_VIEW_TYPES = new int[0];
+    private static final long[] EMPTY_RESOLVED = new long[0];
+
+    private final AdapterDelegatesManager<L> delegatesManager;
+    private boolean enabled = false;
+    private int attachedRecyclerViews = 0;
+
+    @Nullable
+    private L items;
+    private int size = 0;
+    private int[] viewTypes = EMPTY_VIEW_TYPES;
+    private long[] resolved = EMPTY_RESOLVED; // bitset of positions already stored in viewTypes
+
+    ItemViewTypeCache(@NonNull AdapterDelegatesManager<L> delegatesManager) {
+        this.delegatesManager = delegatesManager;
+    }
+
+    /**
+     * Returns the view type for the item at the given position. Only asks the {@link
+     * AdapterDelegatesManager} if the view type for the given position is not cached yet.
+     */
+    int getItemViewType(@NonNull L items, int position) {
+        if (!enabled || attachedRecyclerViews == 0) {
+            return delegatesManager.getItemViewType(items, position);
+        }
+
+        if (items != this.items || items.size() != size) {
+            reset(items);
+        }
+
+        int word = position >>> 6;
+        long mask = 1L << position;
+        if ((resolved[word] & mask) != 0) {
+            return viewTypes[position];
+        }
+
+        int viewType = delegatesManager.getItemViewType(items, position);
+        viewTypes[position] = viewType;
+        resolved[word] |= mask;
+        return viewType;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        invalidate();
+    }
+
+    void onAttachedToRecyclerView(@NonNull RecyclerView.Adapter<?> adapter) {
+        if (attachedRecyclerViews++ == 0) {
+            invalidate();
+            adapter.registerAdapterDataObserver(this);
+        }
+    }
+
+    void onDetachedFromRecyclerView(@NonNull RecyclerView.Adapter<?> adapter) {
+        if (attachedRecyclerViews > 0 && --attachedRecyclerViews == 0) {
+            adapter.unregisterAdapterDataObserver(this);
+            invalidate();
+        }
+    }
+
+    /**
+     * Drops all cached view types
+     */
+    void invalidate() {
+        items = null;
+        size = 0;
+    }
+
+    private void reset(@NonNull L items) {
+        this.items = items;
+        size = items.size();
+        if (viewTypes.length < size) {
+            viewTypes = new int[size];
+            resolved = new long[(size + 63) >>> 6];
+        } else {
+            Arrays.fill(resolved, 0L);
+        }
+    }
+
+    @Override
+    public void onChanged() {
+        invalidate();
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+        if (items == null) {
+            return;
+        }
+        int end = Math.min(positionStart + itemCount, size);
+        for (int position = positionStart; position < end; position++) {
+            resolved[position >>> 6] &= ~(1L << position);
+        }
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+        onItemRangeChanged(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+        invalidate();
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+        invalidate();
+    }
+
+    @Override
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        invalidate();
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.BatchingListUpdateCallback;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+/**
+ * A {@link DiffEngine} for lists whose items have stable unique keys, i.e. the id of an entity.
+ * <p>
+ * Instead of searching the shortest edit script like {@link DiffUtil} does, which takes O(N + D^2)
+ * time with D being the number of changes, items are matched by their keys through a hash map. The
+ * items that don't have to be moved are the longest increasing subsequence of the new positions of
+ * the items that are in both lists, all other items are moved. This takes O(N log N) time, no
+ * matter how much the lists differ, and is therefore much faster for long lists with a lot of
+ * moves.
+ * </p>
+ * <p>
+ * Like {@link DiffUtil}, the removals are dispatched first, followed by moves, insertions and
+ * changes. {@link DiffUtil.ItemCallback#areItemsTheSame(Object, Object)} is not used, two items are
+ * the same if their keys are equal. Keys must be unique within a list, otherwise an {@link
+ * IllegalArgumentException} is thrown. Items must not be null.
+ * </p>
+ *
+ * @param <T> The type of the items
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public class KeyedDiffEngine<T> implements DiffEngine<T> {
+
+    /**
+     * Provides the stable unique key of an item
+     *
+     * @param <T> The type of the items
+     */
+    public interface KeyProvider<T> {
+
+        /**
+         * Get the key of the given item. Keys are compared with {@link Object#equals(Object)} and
+         * {@link Object#hashCode()}.
+         *
+         * @param item The item
+         * @return The key of the item
+         */
+        @NonNull
+        Object getKey(@NonNull T item);
+    }
+
+    private final KeyProvider<T> keyProvider;
+    private final DiffUtil.ItemCallback<T> itemCallback;
+
+    /**
+     * Creates a new KeyedDiffEngine
+     *
+     * @param keyProvider  Provides the keys of the items
+     * @param itemCallback Used to check if the contents of two items with the same key are the same
+     *                     and to get the change payload
+     */
+    public KeyedDiffEngine(@NonNull KeyProvider<T> keyProvider,
+                           @NonNull DiffUtil.ItemCallback<T> itemCallback) {
+        if (keyProvider == null) {
+            throw new NullPointerException("KeyProvider is null");
+        }
+        if (itemCallback == null) {
+            throw new NullPointerException("ItemCallback is null");
+        }
+        this.keyProvider = keyProvider;
+        this.itemCallback = itemCallback;
+    }
+
+    @NonNull
+    @Override
+    public Result calculateDiff(@NonNull List<T> oldList, @NonNull List<T> newList) {
+        int oldSize = oldList.size();
+        int newSize = newList.size();
+
+        Map<Object, Integer> newPositions = new HashMap<>(Math.max(16, (int) (newSize / .75f) + 1));
+        for (int i = 0; i < newSize; i++) {
+            Object key = getKey(newList, i);
+            if (newPositions.put(key, i) != null) {
+                throw new IllegalArgumentException(
+                        "Duplicate key " + key + " in the new list at position " + i);
+            }
+        }
+
+        int[] oldToNew = new int[oldSize];
+        int[] newToOld = new int[newSize];
+        Arrays.fill(newToOld, -1);
+        int keptCount = 0;
+        for (int i = 0; i < oldSize; i++) {
+            Object key = getKey(oldList, i);
+            Integer newPosition = newPositions.get(key);
+            if (newPosition == null) {
+                oldToNew[i] = -1;
+            } else {
+                if (newToOld[newPosition] != -1) {
+                    throw new IllegalArgumentException(
+                            "Duplicate key " + key + " in the old list at position " + i);
+                }
+                oldToNew[i] = newPosition;
+                newToOld[newPosition] = i;
+                keptCount++;
+            }
+        }
+
+        Operations operations = new Operations();
+
+        // Removals, from the end so that the positions of the items before are not affected
+        for (int i = oldSize - 1; i >= 0; i--) {
+            if (oldToNew[i] == -1) {
+                int end = i;
+                while (i > 0 && oldToNew[i - 1] == -1) {
+                    i--;
+                }
+                operations.add(Operations.REMOVE, i, end - i + 1);
+            }
+        }
+
+        // Now the list contains the kept items in the old order. Kept item k is identified by its
+        // index in this order.
+        int[] keptNewPositions = new int[keptCount];
+        int[] newToKept = new int[newSize];
+        Arrays.fill(newToKept, -1);
+        for (int i = 0, k = 0; i < oldSize; i++) {
+            if (oldToNew[i] != -1) {
+                keptNewPositions[k] = oldToNew[i];
+                newToKept[oldToNew[i]] = k;
+                k++;
+            }
+        }
+        addMoves(operations, keptNewPositions, newToKept);
+
+        // Now the list contains the kept items in the new order
+        for (int i = 0; i < newSize; i++) {
+            if (newToOld[i] == -1) {
+                int start = i;
+                while (i < newSize - 1 && newToOld[i + 1] == -1) {
+                    i++;
+                }
+                operations.add(Operations.INSERT, start, i - start + 1);
+            }
+        }
+
+        for (int i = 0; i < newSize; i++) {
+            if (newToOld[i] != -1) {
+                T oldItem = oldList.get(newToOld[i]);
+                T newItem = newList.get(i);
+                if (!itemCallback.areContentsTheSame(oldItem, newItem)) {
+                    operations.addChange(i, itemCallback.getChangePayload(oldItem, newItem));
+                }
+            }
+        }
+
+        return operations;
+    }
+
+    @NonNull
+    private Object getKey(@NonNull List<T> list, int position) {
+        T item = list.get(position);
+        if (item == null) {
+            throw new NullPointerException("Item at position " + position + " is null");
+        }
+        return keyProvider.getKey(item);
+    }
+
+    /**
+     * Moves the kept items that are not part of the longest increasing subsequence of new
+     * positions. Every moved item is put right behind the kept item that precedes it in the new
+     * list, which has either not been moved or has been moved before. To track the current
+     * positions while moving, every item gets a fixed slot and a Fenwick tree counts the occupied
+     * slots in front of a slot: The slot of each kept item is followed by the slots of the moved
+     * items that end up behind it.
+     *
+     * @param operations       Where the moves are added to
+     * @param keptNewPositions The new position of each kept item in the old order
+     * @param newToKept        The kept item for each new position or -1 if inserted
+     */
+    private static void addMoves(@NonNull Operations operations, @NonNull int[] keptNewPositions,
+                                 @NonNull int[] newToKept) {
+        int keptCount = keptNewPositions.length;
+        boolean[] stays = longestIncreasingSubsequence(keptNewPositions);
+
+        // Moved items behind the kept item k are in bucket k + 1, bucket 0 is in front of all items
+        int[] bucketSizes = new int[keptCount + 1];
+        int anchor = -1;
+        for (int k : newToKept) {
+            if (k == -1) {
+                continue;
+            }
+            if (stays[k]) {
+                anchor = k;
+            } else {
+                bucketSizes[anchor + 1]++;
+            }
+        }
+
+        int[] keptSlots = new int[keptCount];
+        int[] bucketStarts = new int[keptCount + 1];
+        int slotCount = bucketSizes[0];
+        for (int k = 0; k < keptCount; k++) {
+            keptSlots[k] = slotCount++;
+            bucketStarts[k + 1] = slotCount;
+            slotCount += bucketSizes[k + 1];
+        }
+
+        int[] occupied = new int[slotCount + 1];
+        for (int slot : keptSlots) {
+            fenwickAdd(occupied, slot, 1);
+        }
+
+        anchor = -1;
+        for (int k : newToKept) {
+            if (k == -1) {
+                continue;
+            }
+            if (stays[k]) {
+                anchor = k;
+            } else {
+                int from = fenwickCount(occupied, keptSlots[k]) - 1;
+                fenwickAdd(occupied, keptSlots[k], -1);
+                int slot = bucketStarts[anchor + 1]++;
+                int to = fenwickCount(occupied, slot);
+                fenwickAdd(occupied, slot, 1);
+                operations.add(Operations.MOVE, from, to);
+            }
+        }
+    }
+
+    /**
+     * Finds a longest increasing subsequence in O(N log N).
+     *
+     * @param values Distinct values
+     * @return true for each value that is part of the subsequence
+     */
+    @NonNull
+    static boolean[] longestIncreasingSubsequence(@NonNull int[] values) {
+        int[] tails = new int[values.length]; // index of the smallest tail per subsequence length
+        int[] predecessors = new int[values.length];
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            predecessors[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        boolean[] result = new boolean[values.length];
+        for (int i = length > 0 ? tails[length - 1] : -1; i != -1; i = predecessors[i]) {
+            result[i] = true;
+        }
+        return result;
+    }
+
+    private static void fenwickAdd(@NonNull int[] tree, int slot, int delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * @return The number of occupied slots up to and including the given slot
+     */
+    private static int fenwickCount(@NonNull int[] tree, int slot) {
+        int count = 0;
+        for (int i = slot + 1; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+
+    /**
+     * The recorded operations, three ints (type and two arguments) per operation
+     */
+    private static final class Operations implements Result {
+        static final int REMOVE = 0;
+        static final int MOVE = 1;
+        static final int INSERT = 2;
+        static final int CHANGE = 3;
+
+        private int[] operations = new int[48];
+        private int size;
+        private final List<Object> payloads = new ArrayList<>();
+
+        void add(int type, int first, int second) {
+            if (size + 3 > operations.length) {
+                operations = Arrays.copyOf(operations, operations.length * 2);
+            }
+            operations[size++] = type;
+            operations[size++] = first;
+            operations[size++] = second;
+        }
+
+        void addChange(int position, @Nullable Object payload) {
+            add(CHANGE, position, payloads.size());
+            payloads.add(payload);
+        }
+
+        @Override
+        public void dispatchUpdatesTo(@NonNull ListUpdateCallback callback) {
+            BatchingListUpdateCallback batchingCallback =
+                    callback instanceof BatchingListUpdateCallback
+                            ? (BatchingListUpdateCallback) callback
+                            : new BatchingListUpdateCallback(callback);
+
+            for (int i = 0; i < size; i += 3) {
+                int first = operations[i + 1];
+                int second = operations[i + 2];
+                switch (operations[i]) {
+                    case REMOVE:
+                        batchingCallback.onRemoved(first, second);
+                        break;
+                    case MOVE:
+                        batchingCallback.onMoved(first, second);
+                        break;
+                    case INSERT:
+                        batchingCallback.onInserted(first, second);
+                        break;
+                    default:
+                        batchingCallback.onChanged(first, 1, payloads.get(second));
+                        break;
+                }
+            }
+            batchingCallback.dispatchLastEvent();
+        }
+    }
+}
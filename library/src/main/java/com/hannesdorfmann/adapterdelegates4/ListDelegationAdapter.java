@@ -19,6 +19,9 @@ package com.hannesdorfmann.adapterdelegates4;
 import java.util.List;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.RecyclerView;
 
 /**
  * An adapter implementation designed for items organized in a {@link List}. This adapter
@@ -35,12 +38,19 @@ import androidx.annotation.NonNull;
  *    }
  * }
  * </pre>
+ * <p>
+ * Optionally the view type of each item is cached until another list is set via
+ * {@link #setItems(Object)} or one of the notifyItem* methods is called (see
+ * {@link #setItemViewTypeCacheEnabled(boolean)}).
+ * </p>
  *
  * @param <T> The type of the items. Must be something that extends from List like List<Foo>
  * @author Hannes Dorfmann
  */
 public class ListDelegationAdapter<T extends List<?>> extends AbsDelegationAdapter<T> {
 
+    private final ItemViewTypeCache<T> itemViewTypeCache = new ItemViewTypeCache<>(delegatesManager);
+
     public ListDelegationAdapter() {
         super();
     }
@@ -59,8 +69,79 @@ public class ListDelegationAdapter<T extends List<?>> extends AbsDelegationAdapt
         super(delegates);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Bind models of {@link AbsPreparedListItemAdapterDelegate}s are prepared in the background if
+     * {@link AdapterDelegatesManager#setBindModelExecutor(java.util.concurrent.Executor)} has been set.
+     * </p>
+     */
+    @Override
+    public void setItems(@Nullable T items) {
+        super.setItems(items);
+        delegatesManager.prepareBindModels(items);
+    }
+
+    /**
+     * Applies the changes of the given patch to the items and calls the notifyItem* methods
+     * matching the changes. The items are modified in place, so the list passed to
+     * {@link #setItems(List)} must be mutable.
+     *
+     * @param patch The changes, the type of its items must be the type of the items of this adapter
+     * @throws IndexOutOfBoundsException if a position of the patch is out of bounds
+     * @since 4.3.3
+     */
+    @SuppressWarnings("unchecked")
+    public void applyPatch(@NonNull ListPatch<?> patch) {
+        if (patch == null) {
+            throw new NullPointerException("ListPatch is null");
+        }
+        if (items == null) {
+            throw new NullPointerException("Items are null, call setItems() first");
+        }
+
+        ((ListPatch<Object>) patch).applyTo((List<Object>) items);
+        patch.dispatchUpdatesTo(new AdapterListUpdateCallback(this));
+        delegatesManager.prepareBindModels(items, patch);
+    }
+
     @Override
     public int getItemCount() {
         return items == null ? 0 : items.size();
     }
+
+    @Override
+    public int getItemViewType(int position) {
+        if (items == null) {
+            return super.getItemViewType(position);
+        }
+        return itemViewTypeCache.getItemViewType(items, position);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        itemViewTypeCache.onAttachedToRecyclerView(this);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        itemViewTypeCache.onDetachedFromRecyclerView(this);
+    }
+
+    /**
+     * Enables or disables caching of view types. The cache is disabled by default. If enabled, the
+     * view type of a position is resolved once on the main thread when RecyclerView asks for it and
+     * cached until another list is set, the size of the list changes or one of the notifyItem*
+     * methods is called. Only enable it if the result of
+     * {@link AdapterDelegate#isForViewType(Object, int)} doesn't change without notifying the
+     * adapter, i.e. if items are never changed in place without a notifyItem* call.
+     *
+     * @param enabled true to cache view types, otherwise false
+     * @since 4.3.3
+     */
+    public void setItemViewTypeCacheEnabled(boolean enabled) {
+        itemViewTypeCache.setEnabled(enabled);
+    }
 }
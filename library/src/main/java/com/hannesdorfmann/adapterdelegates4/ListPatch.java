@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+/**
+ * A batch of changes to the items of an adapter: insertions, removals, moves and updates. Instead
+ * of calculating the diff between the whole old and new list, the changes are applied to the items
+ * and the matching notifyItem* methods are called directly, see
+ * {@link AsyncListDifferDelegationAdapter#applyPatch(ListPatch)} and
+ * {@link ListDelegationAdapter#applyPatch(ListPatch)}.
+ * <p>
+ * The changes are applied in the order they have been added. Like the positions passed to
+ * {@link ListUpdateCallback}, each position refers to the list with all previous changes of this
+ * patch already applied.
+ * </p>
+ * <pre>
+ * {@code
+ *    adapter.applyPatch(new ListPatch<Message>()
+ *                 .remove(3, 1)
+ *                 .insert(0, newMessage)
+ *                 .update(5, editedMessage, EDITED));
+ * }
+ * </pre>
+ *
+ * @param <T> The type of the items
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public final class ListPatch<T> implements DiffEngine.Result {
+
+    private static final int INSERT = 0;
+    private static final int REMOVE = 1;
+    private static final int MOVE = 2;
+    private static final int UPDATE = 3;
+
+    private static final class Operation<T> {
+        final int type;
+        final int position;
+        final int countOrTarget;
+        final List<? extends T> items;
+        final Object payload;
+
+        Operation(int type, int position, int countOrTarget, List<? extends T> items,
+                  Object payload) {
+            this.type = type;
+            this.position = position;
+            this.countOrTarget = countOrTarget;
+            this.items = items;
+            this.payload = payload;
+        }
+    }
+
+    private final List<Operation<T>> operations = new ArrayList<>();
+
+    /**
+     * Inserts an item
+     *
+     * @param position The position to insert the item at
+     * @param item     The item
+     * @return this
+     */
+    @NonNull
+    public ListPatch<T> insert(int position, T item) {
+        return insert(position, Collections.singletonList(item));
+    }
+
+    /**
+     * Inserts a range of items
+     *
+     * @param position The position to insert the first item at
+     * @param items    The items
+     * @return this
+     */
+    @NonNull
+    public ListPatch<T> insert(int position, @NonNull List<? extends T> items) {
+        if (items == null) {
+            throw new NullPointerException("Items are null");
+        }
+        checkNotNegative(position);
+        if (!items.isEmpty()) {
+            operations.add(new Operation<T>(INSERT, position, items.size(),
+                    new ArrayList<>(items), null));
+        }
+        return this;
+    }
+
+    /**
+     * Removes a range of items
+     *
+     * @param position The position of the first item to remove
+     * @param count    The number of items to remove
+     * @return this
+     */
+    @NonNull
+    public ListPatch<T> remove(int position, int count) {
+        checkNotNegative(position);
+        checkNotNegative(count);
+        if (count > 0) {
+            operations.add(new Operation<T>(REMOVE, position, count, null, null));
+        }
+        return this;
+    }
+
+    /**
+     * Moves an item
+     *
+     * @param fromPosition The current position of the item
+     * @param toPosition   The position of the item after the move
+     * @return this
+     */
+    @NonNull
+    public ListPatch<T> move(int fromPosition, int toPosition) {
+        checkNotNegative(fromPosition);
+        checkNotNegative(toPosition);
+        if (fromPosition != toPosition) {
+            operations.add(new Operation<T>(MOVE, fromPosition, toPosition, null, null));
+        }
+        return this;
+    }
+
+    /**
+     * Replaces an item
+     *
+     * @param position The position of the item
+     * @param item     The new item
+     * @param payload  The payload that is passed to
+     *                 {@link AdapterDelegate#onBindViewHolder(Object, int, androidx.recyclerview.widget.RecyclerView.ViewHolder, List)}
+     *                 or null to rebind the item completely
+     * @return this
+     */
+    @NonNull
+    public ListPatch<T> update(int position, T item, @Nullable Object payload) {
+        checkNotNegative(position);
+        operations.add(new Operation<T>(UPDATE, position, 1, Collections.singletonList(item),
+                payload));
+        return this;
+    }
+
+    /**
+     * @return true if this patch doesn't change anything
+     */
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    /**
+     * Applies the changes to the given list. All positions are checked before the list is
+     * modified, so that the list stays untouched if one of them is out of bounds.
+     *
+     * @param list The list to modify
+     * @throws IndexOutOfBoundsException if a position is out of the bounds of the list
+     */
+    void applyTo(@NonNull List<T> list) {
+        int size = list.size();
+        for (int i = 0; i < operations.size(); i++) {
+            Operation<T> operation = operations.get(i);
+            switch (operation.type) {
+                case INSERT:
+                    checkBounds(operation.position, size, i);
+                    size += operation.countOrTarget;
+                    break;
+                case REMOVE:
+                    checkBounds(operation.position + operation.countOrTarget, size, i);
+                    size -= operation.countOrTarget;
+                    break;
+                case MOVE:
+                    checkBounds(operation.position, size - 1, i);
+                    checkBounds(operation.countOrTarget, size - 1, i);
+                    break;
+                default:
+                    checkBounds(operation.position, size - 1, i);
+                    break;
+            }
+        }
+
+        for (Operation<T> operation : operations) {
+            switch (operation.type) {
+                case INSERT:
+                    list.addAll(operation.position, operation.items);
+                    break;
+                case REMOVE:
+                    list.subList(operation.position, operation.position + operation.countOrTarget)
+                            .clear();
+                    break;
+                case MOVE:
+                    list.add(operation.countOrTarget, list.remove(operation.position));
+                    break;
+                default:
+                    list.set(operation.position, operation.items.get(0));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Get the positions of the inserted and updated items in the list this patch has been applied
+     * to, so that only these items have to be looked at instead of the whole list.
+     *
+     * @return Ranges as pairs of start position and item count, sorted by start position and not
+     * overlapping
+     */
+    @NonNull
+    int[] getChangedRanges() {
+        // [start, end) of each range, positions refer to the list with all operations so far applied
+        List<int[]> ranges = new ArrayList<>();
+        for (Operation<T> operation : operations) {
+            switch (operation.type) {
+                case INSERT:
+                    shiftForInsert(ranges, operation.position, operation.countOrTarget);
+                    ranges.add(new int[]{operation.position,
+                            operation.position + operation.countOrTarget});
+                    break;
+                case REMOVE:
+                    shiftForRemove(ranges, operation.position, operation.countOrTarget);
+                    break;
+                case MOVE:
+                    boolean changed = contains(ranges, operation.position);
+                    shiftForRemove(ranges, operation.position, 1);
+                    shiftForInsert(ranges, operation.countOrTarget, 1);
+                    if (changed && !contains(ranges, operation.countOrTarget)) {
+                        ranges.add(new int[]{operation.countOrTarget, operation.countOrTarget + 1});
+                    }
+                    break;
+                default:
+                    ranges.add(new int[]{operation.position, operation.position + 1});
+                    break;
+            }
+        }
+
+        Collections.sort(ranges, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] range1, int[] range2) {
+                return range1[0] < range2[0] ? -1 : (range1[0] == range2[0] ? 0 : 1);
+            }
+        });
+        int[] result = new int[ranges.size() * 2];
+        int count = 0;
+        int end = -1;
+        for (int[] range : ranges) {
+            if (range[0] >= range[1]) {
+                continue; // completely removed
+            }
+            if (count > 0 && range[0] <= end) {
+                end = Math.max(end, range[1]);
+                result[count - 1] = end - result[count - 2];
+            } else {
+                end = range[1];
+                result[count++] = range[0];
+                result[count++] = end - range[0];
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private static void shiftForInsert(@NonNull List<int[]> ranges, int position, int count) {
+        for (int[] range : ranges) {
+            if (position <= range[0]) {
+                range[0] += count;
+                range[1] += count;
+            } else if (position < range[1]) {
+                range[1] += count;
+            }
+        }
+    }
+
+    private static void shiftForRemove(@NonNull List<int[]> ranges, int position, int count) {
+        for (int[] range : ranges) {
+            range[0] = positionAfterRemove(range[0], position, count);
+            range[1] = positionAfterRemove(range[1], position, count);
+        }
+    }
+
+    private static int positionAfterRemove(int boundary, int position, int count) {
+        if (boundary <= position) {
+            return boundary;
+        }
+        return boundary >= position + count ? boundary - count : position;
+    }
+
+    private static boolean contains(@NonNull List<int[]> ranges, int position) {
+        for (int[] range : ranges) {
+            if (position >= range[0] && position < range[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void dispatchUpdatesTo(@NonNull ListUpdateCallback callback) {
+        for (Operation<T> operation : operations) {
+            switch (operation.type) {
+                case INSERT:
+                    callback.onInserted(operation.position, operation.countOrTarget);
+                    break;
+                case REMOVE:
+                    callback.onRemoved(operation.position, operation.countOrTarget);
+                    break;
+                case MOVE:
+                    callback.onMoved(operation.position, operation.countOrTarget);
+                    break;
+                default:
+                    callback.onChanged(operation.position, 1, operation.payload);
+                    break;
+            }
+        }
+    }
+
+    private static void checkNotNegative(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative position or count: " + value);
+        }
+    }
+
+    private static void checkBounds(int position, int max, int operationIndex) {
+        if (position > max) {
+            throw new IndexOutOfBoundsException("Position " + position + " of operation "
+                    + operationIndex + " is out of bounds, max is " + max);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import java.util.ArrayList;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.SparseArrayCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Calls {@link AdapterDelegate#onPrefetch(Object, int)} for the positions ahead of the visible items
+ * in scroll direction, up to {@link AdapterDelegate#getPrefetchDistance()} positions per
+ * AdapterDelegate, and {@link AdapterDelegate#onCancelPrefetch(Object, int)} for prefetched positions
+ * the visible items are moving away from.
+ * <p>
+ * RecyclerView's own prefetching (GapWorker) only creates and binds the very next ViewHolder in
+ * idle time of a frame. This class looks further ahead, but only notifies the AdapterDelegates
+ * without binding anything. It runs in {@link #onScrolled(RecyclerView, int, int)}, that is in the
+ * same frame RecyclerView schedules its own prefetch in. The delegation adapters of this library
+ * install it automatically while attached to a RecyclerView if any AdapterDelegate has a prefetch
+ * distance. Only {@link LinearLayoutManager} is supported.
+ * </p>
+ * <p>
+ * Prefetched positions follow the changes the adapter is notified about. Prefetches of changed or
+ * removed items are cancelled, unless the items have been modified in place: then the prefetched
+ * item isn't available anymore and the prefetch is dropped without {@link
+ * AdapterDelegate#onCancelPrefetch(Object, int)}.
+ * </p>
+ *
+ * @param <T> The type of the datasource of the adapter
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+class LookAheadPrefetcher<T> extends RecyclerView.OnScrollListener {
+
+    /**
+     * Gives access to the current data source of the adapter
+     */
+    interface ItemsProvider<T> {
+        @Nullable
+        T getItems();
+
+        int getItemCount();
+
+        /**
+         * The view type as returned by the adapter, so that its view type cache is used
+         */
+        int getItemViewType(int position);
+    }
+
+    /**
+     * A position that has been prefetched
+     */
+    private static final class Prefetched<T> {
+        final T items;
+        final AdapterDelegate<T> delegate;
+
+        Prefetched(T items, AdapterDelegate<T> delegate) {
+            this.items = items;
+            this.delegate = delegate;
+        }
+    }
+
+    private final AdapterDelegatesManager<T> delegatesManager;
+    private final ItemsProvider<T> itemsProvider;
+    private final SparseArrayCompat<Prefetched<T>> prefetched = new SparseArrayCompat<>();
+    private boolean scrollingForward = true;
+    private final ArrayList<RecyclerView> attachedRecyclerViews = new ArrayList<>();
+    private final RecyclerView.AdapterDataObserver dataObserver =
+            new RecyclerView.AdapterDataObserver() {
+                @Override
+                public void onChanged() {
+                    forget(0, Integer.MAX_VALUE);
+                }
+
+                @Override
+                public void onItemRangeChanged(int positionStart, int itemCount) {
+                    forget(positionStart, itemCount);
+                }
+
+                @Override
+                public void onItemRangeInserted(int positionStart, int itemCount) {
+                    shift(positionStart, itemCount);
+                }
+
+                @Override
+                public void onItemRangeRemoved(int positionStart, int itemCount) {
+                    forget(positionStart, itemCount);
+                    shift(positionStart + itemCount, -itemCount);
+                }
+
+                @Override
+                public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                    forget(0, Integer.MAX_VALUE);
+                }
+            };
+
+    LookAheadPrefetcher(@NonNull AdapterDelegatesManager<T> delegatesManager,
+                        @NonNull ItemsProvider<T> itemsProvider) {
+        this.delegatesManager = delegatesManager;
+        this.itemsProvider = itemsProvider;
+    }
+
+    /**
+     * Starts prefetching while the given RecyclerView scrolls and follows the changes of the data
+     * of the given adapter.
+     *
+     * @param adapter      The adapter that has been attached
+     * @param recyclerView The RecyclerView the adapter has been attached to
+     */
+    void onAttachedToRecyclerView(@NonNull RecyclerView.Adapter<?> adapter,
+                                  @NonNull RecyclerView recyclerView) {
+        if (attachedRecyclerViews.contains(recyclerView)) {
+            return;
+        }
+        if (attachedRecyclerViews.isEmpty()) {
+            adapter.registerAdapterDataObserver(dataObserver);
+        }
+        attachedRecyclerViews.add(recyclerView);
+        recyclerView.addOnScrollListener(this);
+    }
+
+    /**
+     * Stops prefetching for the given RecyclerView and cancels all prefetched positions.
+     *
+     * @param adapter      The adapter that has been detached
+     * @param recyclerView The RecyclerView the adapter has been detached from
+     */
+    void onDetachedFromRecyclerView(@NonNull RecyclerView.Adapter<?> adapter,
+                                    @NonNull RecyclerView recyclerView) {
+        if (attachedRecyclerViews.remove(recyclerView)) {
+            recyclerView.removeOnScrollListener(this);
+            if (attachedRecyclerViews.isEmpty()) {
+                adapter.unregisterAdapterDataObserver(dataObserver);
+            }
+        }
+        cancelAll();
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager)) {
+            return;
+        }
+
+        LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+        int delta = linearLayoutManager.getOrientation() == LinearLayoutManager.VERTICAL ? dy : dx;
+        if (delta != 0) {
+            scrollingForward = (delta > 0) != linearLayoutManager.getReverseLayout();
+        }
+
+        int first = linearLayoutManager.findFirstVisibleItemPosition();
+        int last = linearLayoutManager.findLastVisibleItemPosition();
+        if (first != RecyclerView.NO_POSITION && last != RecyclerView.NO_POSITION) {
+            onVisibleRangeChanged(first, last, scrollingForward);
+        }
+    }
+
+    /**
+     * Cancels prefetches that are not ahead of the visible items anymore and prefetches the
+     * positions that are ahead now.
+     *
+     * @param first   The first visible position
+     * @param last    The last visible position
+     * @param forward true if scrolling towards higher positions, otherwise false
+     */
+    void onVisibleRangeChanged(int first, int last, boolean forward) {
+        int maxDistance = delegatesManager.getMaxPrefetchDistance();
+        if (maxDistance <= 0 && prefetched.size() == 0) {
+            return;
+        }
+
+        int lookAheadStart = forward ? last + 1 : first - maxDistance;
+        int lookAheadEnd = forward ? last + maxDistance : first - 1;
+
+        for (int i = prefetched.size() - 1; i >= 0; i--) {
+            int position = prefetched.keyAt(i);
+            if (position >= first && position <= last) {
+                prefetched.removeAt(i); // visible now, so it's bound already
+            } else if (position < lookAheadStart || position > lookAheadEnd) {
+                Prefetched<T> p = prefetched.valueAt(i);
+                prefetched.removeAt(i);
+                p.delegate.onCancelPrefetch(p.items, position);
+            }
+        }
+
+        T items = itemsProvider.getItems();
+        if (items == null || maxDistance <= 0) {
+            return;
+        }
+
+        int itemCount = itemsProvider.getItemCount();
+        for (int distance = 1; distance <= maxDistance; distance++) {
+            int position = forward ? last + distance : first - distance;
+            if (position < 0 || position >= itemCount) {
+                break;
+            }
+            if (prefetched.get(position) != null) {
+                continue;
+            }
+
+            AdapterDelegate<T> delegate = delegatesManager.getDelegateForViewType(
+                    itemsProvider.getItemViewType(position));
+            if (delegate != null && delegate.getPrefetchDistance() >= distance) {
+                prefetched.put(position, new Prefetched<>(items, delegate));
+                delegate.onPrefetch(items, position);
+            }
+        }
+    }
+
+    /**
+     * Forgets the prefetched positions in the given range because their items have changed.
+     */
+    private void forget(int positionStart, int itemCount) {
+        T items = itemsProvider.getItems();
+        int i = 0;
+        while (i < prefetched.size()) {
+            int position = prefetched.keyAt(i);
+            if (position >= positionStart && position - positionStart < itemCount) {
+                Prefetched<T> p = prefetched.valueAt(i);
+                prefetched.removeAt(i);
+                if (p.items != items) {
+                    // The prefetched items have been replaced, not modified, so they are still intact
+                    p.delegate.onCancelPrefetch(p.items, position);
+                }
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Moves the prefetched positions starting at the given position by the given offset. The
+     * moved positions refer to the current items from now on.
+     */
+    private void shift(int positionStart, int offset) {
+        if (prefetched.size() == 0) {
+            return;
+        }
+        T items = itemsProvider.getItems();
+        SparseArrayCompat<Prefetched<T>> shifted = new SparseArrayCompat<>(prefetched.size());
+        for (int i = 0; i < prefetched.size(); i++) {
+            int position = prefetched.keyAt(i);
+            Prefetched<T> p = prefetched.valueAt(i);
+            if (position >= positionStart) {
+                shifted.put(position + offset, new Prefetched<>(items, p.delegate));
+            } else {
+                shifted.put(position, p);
+            }
+        }
+        prefetched.clear();
+        prefetched.putAll(shifted);
+    }
+
+    /**
+     * Cancels all prefetched positions, i.e. when the adapter gets detached.
+     */
+    void cancelAll() {
+        for (int i = 0; i < prefetched.size(); i++) {
+            Prefetched<T> p = prefetched.valueAt(i);
+            p.delegate.onCancelPrefetch(p.items, prefetched.keyAt(i));
+        }
+        prefetched.clear();
+    }
+}
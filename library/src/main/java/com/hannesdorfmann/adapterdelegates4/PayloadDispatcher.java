@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Routes the payloads passed to {@link AdapterDelegate#onBindViewHolder(Object, int,
+ * RecyclerView.ViewHolder, List)} to a {@link PayloadBinder} registered for the class of the
+ * payload, so that a partial update doesn't need hand written instanceof checks:
+ * <pre>
+ * {@code
+ *    payloadDispatcher = new PayloadDispatcher<CatViewHolder>()
+ *        .register(NameChanged.class, (holder, payload) -> holder.name.setText(payload.name))
+ *        .register(LikesChanged.class, LikesChanged::merge, (holder, payload) -> holder.showLikes(payload));
+ *
+ *    protected void onBindViewHolder(Cat item, CatViewHolder holder, List<Object> payloads) {
+ *        if (!payloadDispatcher.dispatch(holder, payloads)) {
+ *            // full bind
+ *        }
+ *    }
+ * }
+ * </pre>
+ * <p>
+ * {@link #dispatch(RecyclerView.ViewHolder, List)} only applies the payloads if there is a
+ * PayloadBinder for every single payload. Otherwise nothing is applied and a full bind is required.
+ * If a {@link PayloadMerger} has been registered for a payload class, multiple payloads of that class
+ * are merged into one before the PayloadBinder is called once.
+ * </p>
+ * <p>
+ * Like RecyclerView itself, this class must only be used from the main thread.
+ * </p>
+ *
+ * @param <VH> The type of the ViewHolder
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public class PayloadDispatcher<VH extends RecyclerView.ViewHolder> {
+
+    /**
+     * Applies a payload to a ViewHolder
+     *
+     * @param <VH> The type of the ViewHolder
+     * @param <P>  The type of the payload
+     */
+    public interface PayloadBinder<VH, P> {
+        void bindPayload(@NonNull VH holder, @NonNull P payload);
+    }
+
+    /**
+     * Merges two payloads of the same type into one
+     *
+     * @param <P> The type of the payload
+     */
+    public interface PayloadMerger<P> {
+        /**
+         * @param older The payload that has been dispatched first
+         * @param newer The payload that has been dispatched afterwards
+         * @return The merged payload
+         */
+        @NonNull
+        P merge(@NonNull P older, @NonNull P newer);
+    }
+
+    private static final class Registration {
+        final int index;
+        final Class<?> payloadClass;
+        @Nullable
+        final PayloadMerger<Object> merger;
+        final PayloadBinder<Object, Object> binder;
+
+        Registration(int index, Class<?> payloadClass, @Nullable PayloadMerger<Object> merger,
+                     PayloadBinder<Object, Object> binder) {
+            this.index = index;
+            this.payloadClass = payloadClass;
+            this.merger = merger;
+            this.binder = binder;
+        }
+    }
+
+    private static final Registration NOT_REGISTERED = new Registration(-1, Void.class, null, null);
+
+    private final ArrayList<Registration> registrations = new ArrayList<>();
+    private final HashMap<Class<?>, Registration> resolvedClasses = new HashMap<>();
+
+    // Reused by dispatch() to not allocate for every bind
+    private Registration[] payloadRegistrations = new Registration[4];
+    private Object[] mergedPayloads = new Object[0];
+
+    /**
+     * Registers a {@link PayloadBinder} for the given payload class (and its subclasses). Every
+     * payload of this class is applied one after another.
+     *
+     * @param payloadClass The class of the payload
+     * @param binder       The binder
+     * @return self
+     * @throws IllegalArgumentException if a binder is already registered for the given class
+     */
+    public <P> PayloadDispatcher<VH> register(@NonNull Class<P> payloadClass,
+                                              @NonNull PayloadBinder<? super VH, ? super P> binder) {
+        return register(payloadClass, null, binder);
+    }
+
+    /**
+     * Registers a {@link PayloadBinder} for the given payload class (and its subclasses). Multiple
+     * payloads of this class are merged with the given {@link PayloadMerger} before they are
+     * applied.
+     *
+     * @param payloadClass The class of the payload
+     * @param merger       The merger or null to apply every payload one after another
+     * @param binder       The binder
+     * @return self
+     * @throws IllegalArgumentException if a binder is already registered for the given class
+     */
+    @SuppressWarnings("unchecked")
+    public <P> PayloadDispatcher<VH> register(@NonNull Class<P> payloadClass,
+                                              @Nullable PayloadMerger<P> merger,
+                                              @NonNull PayloadBinder<? super VH, ? super P> binder) {
+        if (payloadClass == null) {
+            throw new NullPointerException("Payload class is null!");
+        }
+        if (binder == null) {
+            throw new NullPointerException("PayloadBinder is null!");
+        }
+        for (int i = 0; i < registrations.size(); i++) {
+            if (registrations.get(i).payloadClass == payloadClass) {
+                throw new IllegalArgumentException(
+                        "A PayloadBinder is already registered for " + payloadClass);
+            }
+        }
+
+        registrations.add(new Registration(registrations.size(), payloadClass,
+                (PayloadMerger<Object>) merger, (PayloadBinder<Object, Object>) binder));
+        mergedPayloads = new Object[registrations.size()];
+        resolvedClasses.clear();
+        return this;
+    }
+
+    /**
+     * Applies the given payloads to the given ViewHolder.
+     *
+     * @param holder   The ViewHolder
+     * @param payloads The payloads as passed to onBindViewHolder()
+     * @return true if all payloads have been applied, false if the payloads are empty or at least
+     * one payload has no registered {@link PayloadBinder}. In that case no payload has been applied
+     * and a full bind is required.
+     */
+    public boolean dispatch(@NonNull VH holder, @NonNull List<?> payloads) {
+        int size = payloads.size();
+        if (size == 0) {
+            return false;
+        }
+        if (payloadRegistrations.length < size) {
+            payloadRegistrations = new Registration[Math.max(size, payloadRegistrations.length * 2)];
+        }
+
+        for (int i = 0; i < size; i++) {
+            Object payload = payloads.get(i);
+            Registration registration = payload == null ? null : resolve(payload.getClass());
+            if (registration == null) {
+                clearPayloadRegistrations(i);
+                return false;
+            }
+            payloadRegistrations[i] = registration;
+        }
+
+        boolean hasMergedPayloads = false;
+        for (int i = 0; i < size; i++) {
+            Registration registration = payloadRegistrations[i];
+            Object payload = payloads.get(i);
+            if (registration.merger == null) {
+                registration.binder.bindPayload(holder, payload);
+            } else {
+                Object merged = mergedPayloads[registration.index];
+                mergedPayloads[registration.index] =
+                        merged == null ? payload : registration.merger.merge(merged, payload);
+                hasMergedPayloads = true;
+            }
+        }
+        clearPayloadRegistrations(size);
+
+        if (hasMergedPayloads) {
+            for (int i = 0; i < mergedPayloads.length; i++) {
+                Object merged = mergedPayloads[i];
+                if (merged != null) {
+                    mergedPayloads[i] = null;
+                    registrations.get(i).binder.bindPayload(holder, merged);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    private Registration resolve(@NonNull Class<?> payloadClass) {
+        Registration registration = resolvedClasses.get(payloadClass);
+        if (registration == null) {
+            registration = NOT_REGISTERED;
+            for (int i = 0; i < registrations.size(); i++) {
+                if (registrations.get(i).payloadClass.isAssignableFrom(payloadClass)) {
+                    registration = registrations.get(i);
+                    break;
+                }
+            }
+            resolvedClasses.put(payloadClass, registration);
+        }
+        return registration == NOT_REGISTERED ? null : registration;
+    }
+
+    private void clearPayloadRegistrations(int count) {
+        for (int i = 0; i < count; i++) {
+            payloadRegistrations[i] = null;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.collection.SparseArrayCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Creates ViewHolders while the main thread is idle and puts them into the {@link
+ * RecyclerView.RecycledViewPool} of a {@link RecyclerView}, so that the first screen of items
+ * doesn't have to inflate all layouts while being laid out. Get an instance from {@link
+ * AbsDelegationAdapter#warmUpRecycledViewPool(RecyclerView)} or {@link
+ * AsyncListDifferDelegationAdapter#warmUpRecycledViewPool(RecyclerView)} after the adapter has
+ * been set to the RecyclerView, i.e. right after {@link RecyclerView#setAdapter(RecyclerView.Adapter)}
+ * but before the items are set:
+ * <pre>
+ * {@code
+ *    recyclerView.setAdapter(adapter);
+ *    adapter.warmUpRecycledViewPool(recyclerView)
+ *        .add(catAdapterDelegate, 6)
+ *        .add(dogAdapterDelegate, 2)
+ *        .start();
+ * }
+ * </pre>
+ * <p>
+ * The adapter must be set first because {@link RecyclerView#setAdapter(RecyclerView.Adapter)}
+ * clears a RecycledViewPool that is not used by any other adapter, so ViewHolders created before
+ * would be thrown away.
+ * </p>
+ * <p>
+ * Only one ViewHolder is created per idle callback so that the main thread is never blocked for
+ * longer than a single inflation. Counts larger than the default capacity of a
+ * RecycledViewPool (5 ViewHolders per view type) increase the capacity with {@link
+ * RecyclerView.RecycledViewPool#setMaxRecycledViews(int, int)}, the capacity is never decreased,
+ * neither by the warm up nor by {@link
+ * AdapterDelegatesManager#configureRecycledViewPool(RecyclerView.RecycledViewPool)}.
+ * If the AdapterDelegate declares {@link AdapterDelegate#getMaxRecycledViews()} that capacity
+ * wins and at most that many ViewHolders are created.
+ * </p>
+ *
+ * @param <T> The type of the datasource of the adapter
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public class RecycledViewPoolWarmUp<T> implements MessageQueue.IdleHandler {
+
+    private final RecyclerView.Adapter<?> adapter;
+    private final AdapterDelegatesManager<T> delegatesManager;
+    private final ViewGroup parent;
+    private final RecyclerView.RecycledViewPool pool;
+    private final SparseArrayCompat<Integer> remaining = new SparseArrayCompat<>();
+    private Handler handler;
+    private final Runnable wakeUp = new Runnable() {
+        @Override
+        public void run() {
+            // Nothing to do, just makes the MessageQueue go idle again
+        }
+    };
+    private boolean started = false;
+
+    RecycledViewPoolWarmUp(@NonNull RecyclerView.Adapter<?> adapter,
+                           @NonNull AdapterDelegatesManager<T> delegatesManager,
+                           @NonNull RecyclerView recyclerView) {
+        this(adapter, delegatesManager, recyclerView, getRecycledViewPool(adapter, recyclerView));
+    }
+
+    RecycledViewPoolWarmUp(@NonNull RecyclerView.Adapter<?> adapter,
+                           @NonNull AdapterDelegatesManager<T> delegatesManager,
+                           @NonNull ViewGroup parent,
+                           @NonNull RecyclerView.RecycledViewPool pool) {
+        if (pool == null) {
+            throw new NullPointerException("RecycledViewPool is null!");
+        }
+        this.adapter = adapter;
+        this.delegatesManager = delegatesManager;
+        this.parent = parent;
+        this.pool = pool;
+    }
+
+    @NonNull
+    private static RecyclerView.RecycledViewPool getRecycledViewPool(
+            @NonNull RecyclerView.Adapter<?> adapter, @NonNull RecyclerView recyclerView) {
+        if (recyclerView == null) {
+            throw new NullPointerException("RecyclerView is null!");
+        }
+        if (recyclerView.getAdapter() != adapter) {
+            throw new IllegalStateException("The adapter is not set to the RecyclerView. "
+                    + "Call RecyclerView.setAdapter() before warming up its RecycledViewPool, "
+                    + "otherwise setAdapter() clears the RecycledViewPool again.");
+        }
+        return recyclerView.getRecycledViewPool();
+    }
+
+    /**
+     * Creates as many ViewHolders for the given {@link AdapterDelegate} as are missing in the
+     * RecycledViewPool to contain the given number of ViewHolders for its view type.
+     *
+     * @param delegate The registered AdapterDelegate
+     * @param count    The number of ViewHolders
+     * @return self
+     * @throws IllegalArgumentException if the AdapterDelegate is not registered
+     */
+    public RecycledViewPoolWarmUp<T> add(@NonNull AdapterDelegate<T> delegate, int count) {
+        int viewType = delegatesManager.getViewType(delegate);
+        if (viewType == -1) {
+            throw new IllegalArgumentException("AdapterDelegate " + delegate + " is not registered");
+        }
+        return add(viewType, count);
+    }
+
+    /**
+     * Creates as many ViewHolders for the given view type as are missing in the RecycledViewPool to
+     * contain the given number of ViewHolders for the view type.
+     *
+     * @param viewType The view type
+     * @param count    The number of ViewHolders
+     * @return self
+     */
+    public RecycledViewPoolWarmUp<T> add(int viewType, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must be >= 0 but was " + count);
+        }
+        AdapterDelegate<T> delegate = delegatesManager.getDelegateForViewType(viewType);
+        int declaredMax = delegate != null
+                ? delegate.getMaxRecycledViews()
+                : AdapterDelegate.NO_MAX_RECYCLED_VIEWS;
+        int currentMax = delegate != null
+                ? delegatesManager.getRecycledViewPoolCapacity(viewType, delegate)
+                : AdapterDelegate.NO_MAX_RECYCLED_VIEWS;
+        if (currentMax == AdapterDelegate.NO_MAX_RECYCLED_VIEWS) {
+            currentMax = AdapterDelegatesManager.DEFAULT_MAX_RECYCLED_VIEWS;
+        }
+        if (declaredMax != AdapterDelegate.NO_MAX_RECYCLED_VIEWS) {
+            count = Math.min(count, declaredMax);
+        } else if (count > currentMax) {
+            delegatesManager.onRecycledViewPoolCapacityRaised(viewType, count);
+            pool.setMaxRecycledViews(viewType, count);
+        }
+        remaining.put(viewType, Math.max(0, count - pool.getRecycledViewCount(viewType)));
+        return this;
+    }
+
+    /**
+     * Starts creating ViewHolders whenever the main thread is idle. Must be called from the main
+     * thread.
+     */
+    public void start() {
+        if (!started) {
+            started = true;
+            if (handler == null) {
+                handler = new Handler(Looper.getMainLooper());
+            }
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    /**
+     * Stops creating ViewHolders. ViewHolders that have already been put into the RecycledViewPool
+     * stay there.
+     */
+    public void cancel() {
+        if (started) {
+            started = false;
+            Looper.myQueue().removeIdleHandler(this);
+            handler.removeCallbacks(wakeUp);
+        }
+    }
+
+    /**
+     * @return true if all requested ViewHolders have been created
+     */
+    public boolean isFinished() {
+        for (int i = 0; i < remaining.size(); i++) {
+            if (remaining.valueAt(i) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean queueIdle() {
+        if (!started) {
+            return false;
+        }
+
+        if (warmUpNext()) {
+            // idle handlers are only called again after the next message has been handled
+            handler.post(wakeUp);
+            return true;
+        }
+
+        started = false;
+        return false;
+    }
+
+    /**
+     * Creates the next missing ViewHolder
+     *
+     * @return true if there are more ViewHolders left to create
+     */
+    boolean warmUpNext() {
+        for (int i = 0; i < remaining.size(); i++) {
+            int missing = remaining.valueAt(i);
+            if (missing > 0) {
+                int viewType = remaining.keyAt(i);
+                remaining.setValueAt(i, missing - 1);
+                pool.putRecycledView(adapter.createViewHolder(parent, viewType));
+                return !isFinished();
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import java.util.HashMap;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Process wide registry that assigns a stable view type integer to a key. Every {@link
+ * AdapterDelegatesManager} that registers an {@link AdapterDelegate} with the same key via {@link
+ * AdapterDelegatesManager#addStableDelegate(Object, AdapterDelegate)} uses the same view type for
+ * it, so that the ViewHolders can be shared with a {@link RecyclerView.RecycledViewPool} across
+ * adapters.
+ * <p>
+ * Stable view types start at {@link #FIRST_STABLE_VIEW_TYPE} so that they don't get in conflict
+ * with the view types assigned by {@link AdapterDelegatesManager#addDelegate(AdapterDelegate)}.
+ * Don't use view types in this range for {@link AdapterDelegatesManager#addDelegate(int,
+ * AdapterDelegate)}.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public final class StableViewTypes {
+
+    /**
+     * The first view type assigned by this registry
+     */
+    public static final int FIRST_STABLE_VIEW_TYPE = 1 << 24;
+
+    private static final HashMap<Object, Integer> viewTypes = new HashMap<>();
+    private static int nextViewType = FIRST_STABLE_VIEW_TYPE;
+
+    private StableViewTypes() {
+    }
+
+    /**
+     * Get the stable view type for the given key. The first call for a key assigns a new view type,
+     * all further calls with an equal key return the same view type.
+     *
+     * @param key The key, i.e. the class of an {@link AdapterDelegate} or any other object that
+     *            implements equals() and hashCode()
+     * @return The stable view type
+     * @throws NullPointerException     if key is null
+     * @throws IllegalArgumentException if no more view types are left
+     */
+    public static synchronized int getViewType(@NonNull Object key) {
+        if (key == null) {
+            throw new NullPointerException("Key is null!");
+        }
+
+        Integer viewType = viewTypes.get(key);
+        if (viewType == null) {
+            if (nextViewType == AdapterDelegatesManager.FALLBACK_DELEGATE_VIEW_TYPE) {
+                throw new IllegalArgumentException(
+                        "There are no more free and unused stable view type integers left to register the key " + key);
+            }
+            viewType = nextViewType++;
+            viewTypes.put(key, viewType);
+        }
+        return viewType;
+    }
+}
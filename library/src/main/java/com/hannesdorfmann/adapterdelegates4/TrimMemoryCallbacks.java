@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import java.lang.ref.WeakReference;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Forwards {@link ComponentCallbacks2#onTrimMemory(int)} of the application to an {@link
+ * AdapterDelegatesManager}. The manager is only weakly referenced because the callbacks are
+ * registered at the application context and would otherwise leak the manager (and the
+ * RecyclerView and Activity it references) if the adapter is never detached from the
+ * RecyclerView. The callbacks unregister themselves once the manager has been garbage collected.
+ *
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+final class TrimMemoryCallbacks implements ComponentCallbacks2 {
+
+    private final Context applicationContext;
+    private final WeakReference<AdapterDelegatesManager<?>> delegatesManager;
+
+    TrimMemoryCallbacks(@NonNull Context applicationContext,
+                        @NonNull AdapterDelegatesManager<?> delegatesManager) {
+        this.applicationContext = applicationContext;
+        this.delegatesManager = new WeakReference<AdapterDelegatesManager<?>>(delegatesManager);
+    }
+
+    void register() {
+        applicationContext.registerComponentCallbacks(this);
+    }
+
+    void unregister() {
+        applicationContext.unregisterComponentCallbacks(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        AdapterDelegatesManager<?> manager = delegatesManager.get();
+        if (manager == null) {
+            unregister();
+        } else {
+            manager.onTrimMemory(level);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+}
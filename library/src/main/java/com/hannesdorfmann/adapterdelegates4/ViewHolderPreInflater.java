@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4;
+
+import android.view.ViewGroup;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.SparseArrayCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Creates ViewHolders ahead of time on a background thread so that {@link
+ * AdapterDelegatesManager#onCreateViewHolder(ViewGroup, int)} can hand them out instead of
+ * inflating the layout on the main thread while scrolling. Define how many ViewHolders should be
+ * created per view type with {@link #setTarget(int, int)}, register it with {@link
+ * AdapterDelegatesManager#setViewHolderPreInflater(ViewHolderPreInflater)} and start creating
+ * ViewHolders with {@link #start(ViewGroup)}. If no pre inflated ViewHolder is available (yet)
+ * the ViewHolder is created synchronously as usual.
+ * <p>
+ * <b>{@link AdapterDelegate#onCreateViewHolder(ViewGroup)} is called on the thread of the given
+ * {@link Executor}</b>. Only use this for AdapterDelegates that inflate plain layouts and don't
+ * touch anything that must be accessed from the main thread (i.e. creating a Handler). If the
+ * creation of a ViewHolder throws an exception in the background, that view type isn't pre
+ * inflated anymore and its ViewHolders are created synchronously on the main thread as usual. The
+ * exception is available from {@link #getFailure(int)}.
+ * </p>
+ *
+ * @param <T> The type of the datasource of the adapter
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public class ViewHolderPreInflater<T> {
+
+    private final AdapterDelegatesManager<T> delegatesManager;
+    private final Executor executor;
+    private final SparseArrayCompat<Integer> targets = new SparseArrayCompat<>();
+
+    // guarded by this
+    private final SparseArrayCompat<ArrayDeque<RecyclerView.ViewHolder>> viewHolders =
+            new SparseArrayCompat<>();
+    private final SparseArrayCompat<Integer> pendingCounts = new SparseArrayCompat<>();
+    private final SparseArrayCompat<RuntimeException> failures = new SparseArrayCompat<>();
+    private int generation = 0;
+
+    /**
+     * @param delegatesManager The AdapterDelegatesManager that owns the AdapterDelegates
+     * @param executor         The executor that runs the creation of the ViewHolders in the
+     *                         background
+     */
+    public ViewHolderPreInflater(@NonNull AdapterDelegatesManager<T> delegatesManager,
+                                 @NonNull Executor executor) {
+        if (delegatesManager == null) {
+            throw new NullPointerException("AdapterDelegatesManager is null!");
+        }
+        if (executor == null) {
+            throw new NullPointerException("Executor is null!");
+        }
+        this.delegatesManager = delegatesManager;
+        this.executor = executor;
+    }
+
+    /**
+     * Set how many ViewHolders should be created for the given view type by {@link
+     * #start(ViewGroup)}.
+     *
+     * @param viewType The view type
+     * @param count    The number of ViewHolders to create, 0 to remove the target
+     * @return self
+     */
+    public ViewHolderPreInflater<T> setTarget(int viewType, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must be >= 0 but was " + count);
+        }
+        if (count == 0) {
+            targets.remove(viewType);
+        } else {
+            targets.put(viewType, count);
+        }
+        return this;
+    }
+
+    /**
+     * Starts creating ViewHolders in the background until the targets set with {@link
+     * #setTarget(int, int)} are reached. ViewHolders that are already available, currently
+     * created in the background or held by the {@link RecyclerView.RecycledViewPool} of the given
+     * RecyclerView count towards the targets. Must be called from the main thread.
+     *
+     * @param parent The parent the ViewHolders' views will be attached to, usually the RecyclerView
+     */
+    public void start(@NonNull final ViewGroup parent) {
+        final int startGeneration;
+        synchronized (this) {
+            startGeneration = generation;
+        }
+        RecyclerView.RecycledViewPool pool = parent instanceof RecyclerView
+                ? ((RecyclerView) parent).getRecycledViewPool()
+                : null;
+
+        for (int i = 0; i < targets.size(); i++) {
+            final int viewType = targets.keyAt(i);
+            if (getFailure(viewType) != null) {
+                continue;
+            }
+            // resolve the delegate on the main thread, AdapterDelegatesManager is not thread safe
+            final AdapterDelegate<T> delegate = delegatesManager.getDelegateForViewType(viewType);
+            if (delegate == null) {
+                throw new NullPointerException("No AdapterDelegate added for ViewType " + viewType);
+            }
+
+            int missing = targets.valueAt(i)
+                    - (pool != null ? pool.getRecycledViewCount(viewType) : 0);
+            synchronized (this) {
+                missing -= getAvailableCount(viewType) + pendingCounts.get(viewType, 0);
+                if (missing > 0) {
+                    pendingCounts.put(viewType, pendingCounts.get(viewType, 0) + missing);
+                }
+            }
+            for (int j = 0; j < missing; j++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        preInflate(startGeneration, viewType, delegate, parent);
+                    }
+                });
+            }
+        }
+    }
+
+    private void preInflate(int startGeneration, int viewType, @NonNull AdapterDelegate<T> delegate,
+                            @NonNull ViewGroup parent) {
+        synchronized (this) {
+            if (startGeneration != generation) {
+                return;
+            }
+            if (failures.get(viewType) != null) {
+                // Another ViewHolder of this view type has failed already, don't try again
+                pendingCounts.put(viewType, pendingCounts.get(viewType, 0) - 1);
+                return;
+            }
+        }
+
+        RecyclerView.ViewHolder viewHolder = null;
+        RuntimeException failure = null;
+        try {
+            viewHolder = delegate.onCreateViewHolder(parent);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+
+        synchronized (this) {
+            if (startGeneration != generation) {
+                return;
+            }
+            pendingCounts.put(viewType, pendingCounts.get(viewType, 0) - 1);
+            if (failure != null) {
+                if (failures.get(viewType) == null) {
+                    failures.put(viewType, failure);
+                }
+                return;
+            }
+            if (viewHolder == null) {
+                return;
+            }
+            ArrayDeque<RecyclerView.ViewHolder> queue = viewHolders.get(viewType);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                viewHolders.put(viewType, queue);
+            }
+            queue.add(viewHolder);
+        }
+    }
+
+    /**
+     * Takes a pre inflated ViewHolder of the given view type
+     *
+     * @param viewType The view type
+     * @return A pre inflated ViewHolder or null if none is available, then the ViewHolder has to be
+     * created synchronously
+     */
+    @Nullable
+    public synchronized RecyclerView.ViewHolder poll(int viewType) {
+        ArrayDeque<RecyclerView.ViewHolder> queue = viewHolders.get(viewType);
+        return queue == null ? null : queue.poll();
+    }
+
+    /**
+     * @param viewType The view type
+     * @return The number of pre inflated ViewHolders that are available for the given view type
+     */
+    public synchronized int getAvailableCount(int viewType) {
+        ArrayDeque<RecyclerView.ViewHolder> queue = viewHolders.get(viewType);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * @param viewType The view type
+     * @return The exception that has been thrown while creating a ViewHolder of the given view type
+     * in the background or null. View types with a failure are not pre inflated anymore.
+     */
+    @Nullable
+    public synchronized RuntimeException getFailure(int viewType) {
+        return failures.get(viewType);
+    }
+
+    /**
+     * Drops all pre inflated ViewHolders. ViewHolders that are currently created in the background
+     * are dropped as soon as they have been created. View types that have failed are still not
+     * pre inflated anymore.
+     */
+    public synchronized void cancel() {
+        generation++;
+        viewHolders.clear();
+        pendingCounts.clear();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4.annotation;
+
+import com.hannesdorfmann.adapterdelegates4.AbsListItemAdapterDelegate;
+import com.hannesdorfmann.adapterdelegates4.AdapterDelegatesManager;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Tells the <code>adapterdelegates4-processor</code> annotation processor to generate a subclass of
+ * {@link AdapterDelegatesManager} for the given {@link AbsListItemAdapterDelegate}s. The generated
+ * class resolves view types with a chain of <code>instanceof</code> checks on the item type of each
+ * {@link AbsListItemAdapterDelegate} instead of asking every AdapterDelegate one after another.
+ * <pre>
+ * {@code
+ *    @GenerateDelegatesManager({CatAdapterDelegate.class, DogAdapterDelegate.class})
+ *    class AnimalAdapter extends ListDelegationAdapter<List<Animal>> {
+ *        AnimalAdapter() {
+ *            super(new AnimalAdapterDelegatesManager(new CatAdapterDelegate(), new DogAdapterDelegate()));
+ *        }
+ *    }
+ * }
+ * </pre>
+ * <p>
+ * Every listed AdapterDelegate must be responsible for exactly those items that are an instance of
+ * its item type <code>I</code> (see {@link AbsListItemAdapterDelegate}), because its
+ * <code>isForViewType()</code> method is not called by the generated class. The annotation processor
+ * reports duplicated AdapterDelegates and AdapterDelegates that can never be reached because an
+ * AdapterDelegate listed before is already responsible for a super type of their item type.
+ * AdapterDelegates added at runtime with {@link AdapterDelegatesManager#addDelegate(AdapterDelegate)}
+ * are asked afterwards as usual.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateDelegatesManager {
+
+    /**
+     * The AdapterDelegates the generated class dispatches to. The view types are assigned in the
+     * given order starting at 0.
+     */
+    Class<? extends AbsListItemAdapterDelegate>[] value();
+
+    /**
+     * The simple name of the generated class. Defaults to the name of the annotated class followed by
+     * <code>DelegatesManager</code>. The class is generated in the package of the annotated class.
+     */
+    String name() default "";
+}
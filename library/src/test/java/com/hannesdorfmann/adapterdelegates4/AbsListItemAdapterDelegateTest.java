@@ -40,6 +40,40 @@ public class AbsListItemAdapterDelegateTest {
 
     }
 
+    @Test
+    public void itemIsFetchedOncePerDispatch() {
+
+        CountingList items = new CountingList();
+        items.add(new Cat());
+
+        CatAbsListItemAdapterDelegate delegate1 = new CatAbsListItemAdapterDelegate();
+        CatAbsListItemAdapterDelegate delegate2 = new CatAbsListItemAdapterDelegate();
+        CatAbsListItemAdapterDelegate delegate3 = new CatAbsListItemAdapterDelegate();
+
+        AdapterDelegatesManager<List<Animal>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(delegate1);
+        manager.addDelegate(delegate2);
+        manager.addDelegate(delegate3);
+        manager.setFallbackDelegate(new SpyableAdapterDelegate<List<Animal>>(0));
+
+        Assert.assertEquals(AdapterDelegatesManager.FALLBACK_DELEGATE_VIEW_TYPE,
+                manager.getItemViewType(items, 0));
+        Assert.assertTrue(delegate1.isForViewTypeCalled);
+        Assert.assertTrue(delegate2.isForViewTypeCalled);
+        Assert.assertTrue(delegate3.isForViewTypeCalled);
+        Assert.assertEquals(1, items.getCount);
+    }
+
+    static class CountingList extends ArrayList<Animal> {
+        int getCount = 0;
+
+        @Override
+        public Animal get(int index) {
+            getCount++;
+            return super.get(index);
+        }
+    }
+
     interface Animal {
     }
 
@@ -0,0 +1,231 @@
+package com.hannesdorfmann.adapterdelegates4;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class AbsPreparedListItemAdapterDelegateTest {
+
+    private static class QueueExecutor implements Executor {
+        final List<Runnable> runnables = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            runnables.add(command);
+        }
+    }
+
+    private static class UpperCaseDelegate
+            extends AbsPreparedListItemAdapterDelegate<String, Object, String, RecyclerView.ViewHolder> {
+
+        final List<String> prepared = new ArrayList<>();
+        String boundModel;
+        int isForViewTypeCount = 0;
+        Class<?> itemClass;
+
+        UpperCaseDelegate() {
+        }
+
+        UpperCaseDelegate(int bindModelCacheSize) {
+            super(bindModelCacheSize);
+        }
+
+        @Override
+        protected Class<?> getItemClass() {
+            return itemClass;
+        }
+
+        @Override
+        protected boolean isForViewType(@NonNull Object item, @NonNull List<Object> items, int position) {
+            isForViewTypeCount++;
+            return item instanceof String;
+        }
+
+        @NonNull
+        @Override
+        protected RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent) {
+            return new RecyclerView.ViewHolder(new View(null)) {
+            };
+        }
+
+        @NonNull
+        @Override
+        protected String prepare(@NonNull String item) {
+            prepared.add(item);
+            return item.toUpperCase();
+        }
+
+        @Override
+        protected void onBindViewHolder(@NonNull String item, @NonNull String bindModel,
+                                        @NonNull RecyclerView.ViewHolder holder,
+                                        @NonNull List<Object> payloads) {
+            boundModel = bindModel;
+        }
+    }
+
+    @Test
+    public void preparedOnFirstBindWithoutExecutor() {
+        UpperCaseDelegate delegate = new UpperCaseDelegate();
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(delegate);
+
+        List<Object> items = Arrays.<Object>asList("a", "b");
+        manager.prepareBindModels(items);
+        Assert.assertTrue(delegate.prepared.isEmpty());
+
+        RecyclerView.ViewHolder vh = delegate.onCreateViewHolder(null);
+        delegate.onBindViewHolder(items, 1, vh, Collections.emptyList());
+        Assert.assertEquals("B", delegate.boundModel);
+        delegate.onBindViewHolder(items, 1, vh, Collections.emptyList());
+        Assert.assertEquals(Arrays.asList("b"), delegate.prepared);
+    }
+
+    @Test
+    public void preparedInBackground() {
+        UpperCaseDelegate delegate = new UpperCaseDelegate();
+        QueueExecutor executor = new QueueExecutor();
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(delegate);
+        manager.setFallbackDelegate(new SpyableAdapterDelegate<List<Object>>(0));
+        manager.setBindModelExecutor(executor);
+
+        List<Object> items = Arrays.<Object>asList("a", 1, "b");
+        manager.prepareBindModels(items);
+        Assert.assertEquals(1, executor.runnables.size());
+        executor.runnables.remove(0).run();
+        Assert.assertEquals(Arrays.asList("a", "b"), delegate.prepared);
+
+        RecyclerView.ViewHolder vh = delegate.onCreateViewHolder(null);
+        delegate.onBindViewHolder(items, 2, vh, Collections.emptyList());
+        Assert.assertEquals("B", delegate.boundModel);
+        Assert.assertEquals(2, delegate.prepared.size());
+
+        // Cached per item, not per list
+        manager.prepareBindModels(Arrays.<Object>asList("b", "c"));
+        executor.runnables.remove(0).run();
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), delegate.prepared);
+    }
+
+    @Test
+    public void newerListStopsPreparation() {
+        UpperCaseDelegate delegate = new UpperCaseDelegate();
+        QueueExecutor executor = new QueueExecutor();
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(delegate);
+        manager.setBindModelExecutor(executor);
+
+        manager.prepareBindModels(Arrays.<Object>asList("a", "b"));
+        manager.prepareBindModels(Arrays.<Object>asList("c"));
+        Assert.assertEquals(2, executor.runnables.size());
+
+        executor.runnables.remove(0).run();
+        Assert.assertTrue(delegate.prepared.isEmpty());
+
+        executor.runnables.remove(0).run();
+        Assert.assertEquals(Arrays.asList("c"), delegate.prepared);
+    }
+
+    @Test
+    public void noPreparedDelegate() {
+        QueueExecutor executor = new QueueExecutor();
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(new SpyableAdapterDelegate<List<Object>>(0));
+        manager.setBindModelExecutor(executor);
+
+        manager.prepareBindModels(Arrays.<Object>asList("a"));
+        Assert.assertTrue(executor.runnables.isEmpty());
+    }
+
+    @Test
+    public void delegatesAreResolvedOnCallingThread() {
+        UpperCaseDelegate delegate = new UpperCaseDelegate();
+        QueueExecutor executor = new QueueExecutor();
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(delegate);
+        manager.setBindModelExecutor(executor);
+
+        manager.prepareBindModels(Arrays.<Object>asList("a", "b"));
+        Assert.assertEquals(2, delegate.isForViewTypeCount);
+
+        executor.runnables.remove(0).run();
+        Assert.assertEquals(2, delegate.isForViewTypeCount);
+        Assert.assertEquals(Arrays.asList("a", "b"), delegate.prepared);
+    }
+
+    @Test
+    public void bindModelCacheGrowsWithList() {
+        UpperCaseDelegate delegate = new UpperCaseDelegate(1);
+        QueueExecutor executor = new QueueExecutor();
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(delegate);
+        manager.setBindModelExecutor(executor);
+
+        List<Object> items = Arrays.<Object>asList("a", "b", "c");
+        manager.prepareBindModels(items);
+        executor.runnables.remove(0).run();
+
+        RecyclerView.ViewHolder vh = delegate.onCreateViewHolder(null);
+        for (int i = 0; i < items.size(); i++) {
+            delegate.onBindViewHolder(items, i, vh, Collections.emptyList());
+        }
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), delegate.prepared);
+    }
+
+    @Test
+    public void delegatesWithItemClassAreResolvedInBackground() {
+        UpperCaseDelegate delegate = new UpperCaseDelegate();
+        delegate.itemClass = String.class;
+        QueueExecutor executor = new QueueExecutor();
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(delegate);
+        manager.setFallbackDelegate(new SpyableAdapterDelegate<List<Object>>(0));
+        manager.setBindModelExecutor(executor);
+
+        manager.prepareBindModels(Arrays.<Object>asList("a", 1, null, "b"));
+        Assert.assertTrue(delegate.prepared.isEmpty());
+
+        executor.runnables.remove(0).run();
+        Assert.assertEquals(0, delegate.isForViewTypeCount);
+        Assert.assertEquals(Arrays.asList("a", "b"), delegate.prepared);
+    }
+
+    @Test
+    public void patchPreparesChangedItemsOnly() {
+        UpperCaseDelegate delegate = new UpperCaseDelegate();
+        QueueExecutor executor = new QueueExecutor();
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(delegate);
+        manager.setBindModelExecutor(executor);
+
+        List<Object> items = new ArrayList<Object>(Arrays.asList("a", "b", "c"));
+        manager.prepareBindModels(items);
+        executor.runnables.remove(0).run();
+        delegate.isForViewTypeCount = 0;
+
+        ListPatch<Object> patch = new ListPatch<>()
+                .insert(1, "d")
+                .update(3, "e", null)
+                .remove(0, 1);
+        patch.applyTo(items);
+        manager.prepareBindModels(items, patch);
+        Assert.assertEquals(2, delegate.isForViewTypeCount);
+
+        // Doesn't stop the preparation of the whole list
+        executor.runnables.remove(0).run();
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "d", "e"), delegate.prepared);
+    }
+}
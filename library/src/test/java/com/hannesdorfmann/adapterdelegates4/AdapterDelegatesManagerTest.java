@@ -1,14 +1,17 @@
 package com.hannesdorfmann.adapterdelegates4;
 
+import android.content.ComponentCallbacks2;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.collection.SparseArrayCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
 import junit.framework.Assert;
 
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -615,6 +618,76 @@ public class AdapterDelegatesManagerTest {
         Assert.assertNull(manager.getDelegateForViewType(2));
     }
 
+    @Test
+    public void traceSectionName() {
+        Assert.assertEquals("AD CatAdapterDelegate.onBindViewHolder",
+                AdapterDelegatesManager.traceSectionName("CatAdapterDelegate", "onBindViewHolder"));
+
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            longName.append('A');
+        }
+        Assert.assertEquals(127, AdapterDelegatesManager.traceSectionName(longName.toString(),
+                "onBindViewHolder").length());
+    }
+
+    @Test
+    public void stableViewTypes() {
+        AdapterDelegatesManager<List> manager1 = new AdapterDelegatesManager<>();
+        AdapterDelegatesManager<List> manager2 = new AdapterDelegatesManager<>();
+        SpyableAdapterDelegate<List> delegate1 = new SpyableAdapterDelegate<>(0);
+        SpyableAdapterDelegate<List> delegate2 = new SpyableAdapterDelegate<>(1);
+        SpyableAdapterDelegate<List> delegate3 = new SpyableAdapterDelegate<>(2);
+        SpyableAdapterDelegate<List> delegate4 = new SpyableAdapterDelegate<>(3);
+
+        manager1.addDelegate(delegate1);
+        manager1.addStableDelegate("text", delegate2);
+        manager2.addStableDelegate("image", delegate3);
+        manager2.addStableDelegate("text", delegate4);
+
+        Assert.assertEquals(0, manager1.getViewType(delegate1));
+        Assert.assertEquals(manager1.getViewType(delegate2), manager2.getViewType(delegate4));
+        Assert.assertTrue(manager2.getViewType(delegate3) != manager2.getViewType(delegate4));
+        Assert.assertTrue(manager2.getViewType(delegate3) >= StableViewTypes.FIRST_STABLE_VIEW_TYPE);
+        Assert.assertEquals(delegate4,
+                manager2.getDelegateForViewType(StableViewTypes.getViewType("text")));
+
+        try {
+            manager1.addStableDelegate("text", delegate3);
+            Assert.fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void delegateForDenseAndSparseViewTypes() {
+        AdapterDelegatesManager<List> manager = new AdapterDelegatesManager<>();
+        SpyableAdapterDelegate<List> dense = new SpyableAdapterDelegate<>(0);
+        SpyableAdapterDelegate<List> negative = new SpyableAdapterDelegate<>(1);
+        SpyableAdapterDelegate<List> large = new SpyableAdapterDelegate<>(2);
+        SpyableAdapterDelegate<List> fallbackDelegate = new SpyableAdapterDelegate<>(3);
+
+        manager.addDelegate(5, dense);
+        manager.addDelegate(-5, negative);
+        manager.addDelegate(100000, large);
+        manager.setFallbackDelegate(fallbackDelegate);
+
+        Assert.assertEquals(dense, manager.getDelegateForViewType(5));
+        Assert.assertEquals(negative, manager.getDelegateForViewType(-5));
+        Assert.assertEquals(large, manager.getDelegateForViewType(100000));
+        Assert.assertEquals(fallbackDelegate, manager.getDelegateForViewType(4));
+        Assert.assertEquals(fallbackDelegate, manager.getDelegateForViewType(6));
+        Assert.assertEquals(fallbackDelegate,
+                manager.getDelegateForViewType(AdapterDelegatesManager.FALLBACK_DELEGATE_VIEW_TYPE));
+
+        manager.removeDelegate(dense);
+        Assert.assertEquals(fallbackDelegate, manager.getDelegateForViewType(5));
+
+        manager.addDelegate(5, large);
+        Assert.assertEquals(large, manager.getDelegateForViewType(5));
+    }
+
     @Test
     public void setGetFallbackDelegate() {
         AdapterDelegatesManager<List> manager = new AdapterDelegatesManager<>();
@@ -623,4 +696,449 @@ public class AdapterDelegatesManagerTest {
         manager.setFallbackDelegate(fallbackDelegate);
         Assert.assertEquals(fallbackDelegate, manager.getFallbackDelegate());
     }
+
+    @Test
+    public void itemClassDispatch() {
+        List<Object> items = Arrays.<Object>asList("a string", 1, 2L, new Object());
+
+        ItemClassAdapterDelegate stringDelegate = new ItemClassAdapterDelegate(String.class);
+        ItemClassAdapterDelegate numberDelegate = new ItemClassAdapterDelegate(Number.class);
+        SpyableAdapterDelegate<List<Object>> positionDelegate = new SpyableAdapterDelegate<>(2);
+        SpyableAdapterDelegate<List<Object>> fallbackDelegate = new SpyableAdapterDelegate<>(3);
+
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(stringDelegate);
+        manager.addDelegate(positionDelegate);
+        manager.addDelegate(numberDelegate);
+        manager.setFallbackDelegate(fallbackDelegate);
+
+        Assert.assertEquals(0, manager.getItemViewType(items, 0));
+        Assert.assertEquals(2, manager.getItemViewType(items, 1));
+        Assert.assertFalse(positionDelegate.isForViewTypeReturnedYes);
+
+        // Registered before the Number delegate, so it has to be asked first
+        Assert.assertEquals(1, manager.getItemViewType(items, 2));
+        Assert.assertTrue(positionDelegate.isForViewTypeReturnedYes);
+
+        Assert.assertEquals(AdapterDelegatesManager.FALLBACK_DELEGATE_VIEW_TYPE,
+                manager.getItemViewType(items, 3));
+
+        Assert.assertFalse(stringDelegate.isForViewTypeCalled);
+        Assert.assertFalse(numberDelegate.isForViewTypeCalled);
+
+        // Index must be rebuilt after removing a delegate
+        manager.removeDelegate(numberDelegate);
+        Assert.assertEquals(AdapterDelegatesManager.FALLBACK_DELEGATE_VIEW_TYPE,
+                manager.getItemViewType(items, 1));
+    }
+
+    private static class ItemClassAdapterDelegate extends SpyableAdapterDelegate<List<Object>> {
+
+        private final Class<?> itemClass;
+        boolean isForViewTypeCalled = false;
+
+        ItemClassAdapterDelegate(Class<?> itemClass) {
+            super(-1);
+            this.itemClass = itemClass;
+        }
+
+        @Nullable
+        @Override
+        protected Class<?> getItemClass() {
+            return itemClass;
+        }
+
+        @Override
+        public boolean isForViewType(@NonNull List<Object> items, int position) {
+            isForViewTypeCalled = true;
+            return itemClass.isInstance(items.get(position));
+        }
+    }
+
+    @Test
+    public void delegatesModifiedBySubclass() {
+        List<Object> items = Arrays.<Object>asList("a");
+        ItemClassAdapterDelegate stringDelegate = new ItemClassAdapterDelegate(String.class);
+        SpyableAdapterDelegate<List<Object>> fallbackDelegate = new SpyableAdapterDelegate<>(0);
+
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<List<Object>>() {
+            {
+                delegates.put(3, stringDelegate);
+            }
+        };
+        manager.setFallbackDelegate(fallbackDelegate);
+
+        Assert.assertEquals(3, manager.getItemViewType(items, 0));
+        Assert.assertSame(stringDelegate, manager.getDelegateForViewType(3));
+
+        manager.delegates.remove(3);
+        Assert.assertEquals(AdapterDelegatesManager.FALLBACK_DELEGATE_VIEW_TYPE,
+                manager.getItemViewType(items, 0));
+        Assert.assertSame(fallbackDelegate, manager.getDelegateForViewType(3));
+    }
+
+    @Test
+    public void adaptiveOrdering() {
+        List<Object> items = Arrays.asList(new Object(), new Object(), new Object());
+        CountingAdapterDelegate d0 = new CountingAdapterDelegate(0);
+        CountingAdapterDelegate d1 = new CountingAdapterDelegate(1);
+        CountingAdapterDelegate d2 = new CountingAdapterDelegate(2);
+
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<List<Object>>()
+                .addDelegate(d0)
+                .addDelegate(d1)
+                .addDelegate(d2)
+                .setAdaptiveOrderingEnabled(true);
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(2, manager.getItemViewType(items, 2));
+        }
+        Assert.assertEquals(0, manager.getItemViewType(items, 0));
+        Assert.assertEquals(1, manager.getItemViewType(items, 1));
+
+        // Once reordered the most frequent delegate is asked first
+        d0.isForViewTypeCount = 0;
+        d2.isForViewTypeCount = 0;
+        manager.getItemViewType(items, 2);
+        Assert.assertEquals(0, d0.isForViewTypeCount);
+        Assert.assertEquals(1, d2.isForViewTypeCount);
+    }
+
+    @Test
+    public void adaptiveOrderingRespectsPriority() {
+        List<Object> items = Arrays.<Object>asList("a", "b");
+        CountingAdapterDelegate all = new CountingAdapterDelegate(-1) {
+            @Override
+            public boolean isForViewType(@NonNull List<Object> items, int position) {
+                isForViewTypeCount++;
+                return true;
+            }
+        };
+        CountingAdapterDelegate second = new CountingAdapterDelegate(1);
+
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<List<Object>>()
+                .addDelegate(second)
+                .addDelegate(all)
+                .setDelegatePriority(second, 1)
+                .setAdaptiveOrderingEnabled(true);
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(1, manager.getItemViewType(items, 0));
+        }
+        Assert.assertEquals(0, manager.getItemViewType(items, 1));
+    }
+
+    @Test
+    public void adaptiveOrderingAsksLowerViewTypesBeforeItemClass() {
+        List<Object> items = Arrays.<Object>asList("a", 1);
+        CountingAdapterDelegate all = new CountingAdapterDelegate(-1) {
+            @Override
+            public boolean isForViewType(@NonNull List<Object> items, int position) {
+                isForViewTypeCount++;
+                return items.get(position) instanceof Integer;
+            }
+        };
+        CountingAdapterDelegate unrelated = new CountingAdapterDelegate(-1) {
+            @Override
+            public boolean isForViewType(@NonNull List<Object> items, int position) {
+                isForViewTypeCount++;
+                return false;
+            }
+        };
+        ItemClassAdapterDelegate objectDelegate = new ItemClassAdapterDelegate(Object.class);
+
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<List<Object>>()
+                .addDelegate(all)
+                .addDelegate(objectDelegate)
+                .addDelegate(unrelated)
+                .setDelegatePriority(unrelated, 1)
+                .setAdaptiveOrderingEnabled(true);
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(1, manager.getItemViewType(items, 0));
+            Assert.assertEquals(0, manager.getItemViewType(items, 1));
+        }
+        // Registered after the class match, so never asked
+        Assert.assertEquals(0, unrelated.isForViewTypeCount);
+    }
+
+    @Test
+    public void expectedFrequencySeedsAdaptiveOrdering() {
+        List<Object> items = Arrays.asList(new Object(), new Object());
+        CountingAdapterDelegate d0 = new CountingAdapterDelegate(0);
+        CountingAdapterDelegate d1 = new CountingAdapterDelegate(1) {
+            @Override
+            protected float getExpectedFrequency() {
+                return 0.9f;
+            }
+        };
+
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<List<Object>>()
+                .addDelegate(d0)
+                .addDelegate(d1)
+                .setAdaptiveOrderingEnabled(true);
+
+        Assert.assertEquals(1, manager.getItemViewType(items, 1));
+        Assert.assertEquals(0, d0.isForViewTypeCount);
+        Assert.assertEquals(1, d1.isForViewTypeCount);
+    }
+
+    @Test
+    public void configureRecycledViewPool() {
+        final SparseArrayCompat<Integer> maxRecycledViews = new SparseArrayCompat<>();
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool() {
+            @Override
+            public void setMaxRecycledViews(int viewType, int max) {
+                maxRecycledViews.put(viewType, max);
+            }
+        };
+
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<List<Object>>()
+                .addDelegate(new SpyableAdapterDelegate<List<Object>>(0))
+                .addDelegate(new SpyableAdapterDelegate<List<Object>>(1) {
+                    @Override
+                    protected int getMaxRecycledViews() {
+                        return 12;
+                    }
+                })
+                .setFallbackDelegate(new SpyableAdapterDelegate<List<Object>>(2) {
+                    @Override
+                    protected int getMaxRecycledViews() {
+                        return 0;
+                    }
+                });
+
+        manager.configureRecycledViewPool(pool);
+
+        Assert.assertEquals(2, maxRecycledViews.size());
+        Assert.assertNull(maxRecycledViews.get(0));
+        Assert.assertEquals(12, (int) maxRecycledViews.get(1));
+        Assert.assertEquals(0,
+                (int) maxRecycledViews.get(AdapterDelegatesManager.FALLBACK_DELEGATE_VIEW_TYPE));
+    }
+
+    @Test
+    public void configureRecycledViewPoolByExpectedFrequency() {
+        final SparseArrayCompat<Integer> maxRecycledViews = new SparseArrayCompat<>();
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool() {
+            @Override
+            public void setMaxRecycledViews(int viewType, int max) {
+                maxRecycledViews.put(viewType, max);
+            }
+        };
+
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<List<Object>>()
+                .addDelegate(new SpyableAdapterDelegate<List<Object>>(0) {
+                    @Override
+                    protected float getExpectedFrequency() {
+                        return 0.8f;
+                    }
+                })
+                .addDelegate(new SpyableAdapterDelegate<List<Object>>(1) {
+                    @Override
+                    protected float getExpectedFrequency() {
+                        return 0.15f;
+                    }
+                })
+                .addDelegate(new SpyableAdapterDelegate<List<Object>>(2) {
+                    @Override
+                    protected int getMaxRecycledViews() {
+                        return 2;
+                    }
+
+                    @Override
+                    protected float getExpectedFrequency() {
+                        return 0.05f;
+                    }
+                });
+
+        manager.configureRecycledViewPool(pool);
+
+        // 3 view types share a default capacity of 15 ViewHolders
+        Assert.assertEquals(2, maxRecycledViews.size());
+        Assert.assertEquals(12, (int) maxRecycledViews.get(0));
+        Assert.assertNull(maxRecycledViews.get(1));
+        Assert.assertEquals(2, (int) maxRecycledViews.get(2));
+    }
+
+    @Test
+    public void bindSkipping() {
+        SpyableAdapterDelegate<List<Object>> d0 = new SpyableAdapterDelegate<>(0);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<List<Object>>()
+                .addDelegate(d0)
+                .setBindSkippingEnabled(true);
+
+        List<Object> items = new ArrayList<>();
+        items.add("a");
+        items.add("b");
+
+        manager.onBindViewHolder(items, 0, d0.viewHolder);
+        Assert.assertTrue(d0.onBindViewHolderCalled);
+
+        // equal item at the same position
+        d0.reset();
+        items.set(0, new String("a"));
+        manager.onBindViewHolder(items, 0, d0.viewHolder);
+        Assert.assertFalse(d0.onBindViewHolderCalled);
+
+        // payloads are always forwarded
+        manager.onBindViewHolder(items, 0, d0.viewHolder, Arrays.<Object>asList("payload"));
+        Assert.assertTrue(d0.onBindViewHolderCalled);
+
+        // other position
+        d0.reset();
+        manager.onBindViewHolder(items, 1, d0.viewHolder);
+        Assert.assertTrue(d0.onBindViewHolderCalled);
+
+        // changed item
+        d0.reset();
+        items.set(1, "c");
+        manager.onBindViewHolder(items, 1, d0.viewHolder);
+        Assert.assertTrue(d0.onBindViewHolderCalled);
+
+        // recycled ViewHolders are bound again
+        d0.reset();
+        manager.onViewRecycled(d0.viewHolder);
+        manager.onBindViewHolder(items, 1, d0.viewHolder);
+        Assert.assertTrue(d0.onBindViewHolderCalled);
+
+        d0.reset();
+        manager.setBindSkippingEnabled(false);
+        manager.onBindViewHolder(items, 1, d0.viewHolder);
+        Assert.assertTrue(d0.onBindViewHolderCalled);
+    }
+
+    @Test
+    public void bindSkippingAfterPayloadBind() {
+        SpyableAdapterDelegate<List<Object>> d0 = new SpyableAdapterDelegate<>(0);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<List<Object>>()
+                .addDelegate(d0)
+                .setBindSkippingEnabled(true);
+
+        List<Object> items = new ArrayList<>();
+        items.add("a");
+        manager.onBindViewHolder(items, 0, d0.viewHolder);
+
+        // the payload changes the views, so a full bind of the same item must not be skipped
+        manager.onBindViewHolder(items, 0, d0.viewHolder, Arrays.<Object>asList("payload"));
+        d0.reset();
+        manager.onBindViewHolder(items, 0, d0.viewHolder);
+        Assert.assertTrue(d0.onBindViewHolderCalled);
+
+        d0.reset();
+        manager.onBindViewHolder(items, 0, d0.viewHolder);
+        Assert.assertFalse(d0.onBindViewHolderCalled);
+    }
+
+    @Test
+    public void bindSkippingAfterNotifyDataSetChanged() {
+        SpyableAdapterDelegate<List<Object>> d0 = new SpyableAdapterDelegate<>(0);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<List<Object>>()
+                .addDelegate(d0)
+                .setBindSkippingEnabled(true);
+        ListDelegationAdapter<List<Object>> adapter = new ListDelegationAdapter<>(manager);
+        RecyclerView recyclerView = Mockito.mock(RecyclerView.class);
+        Mockito.when(recyclerView.getAdapter()).thenReturn((RecyclerView.Adapter) adapter);
+        manager.onAttachedToRecyclerView(recyclerView);
+
+        List<Object> items = new ArrayList<>();
+        items.add("a");
+        manager.onBindViewHolder(items, 0, d0.viewHolder);
+
+        // without stable ids, the ViewHolder may show any item after a full invalidation
+        d0.reset();
+        adapter.notifyDataSetChanged();
+        manager.onBindViewHolder(items, 0, d0.viewHolder);
+        Assert.assertTrue(d0.onBindViewHolderCalled);
+
+        d0.reset();
+        adapter.setHasStableIds(true);
+        adapter.notifyDataSetChanged();
+        manager.onBindViewHolder(items, 0, d0.viewHolder);
+        Assert.assertFalse(d0.onBindViewHolderCalled);
+
+        // not observed anymore after detaching
+        manager.onDetachedFromRecyclerView(recyclerView);
+        Assert.assertFalse(adapter.hasObservers());
+    }
+
+    @Test
+    public void trimMemory() {
+        final List<Integer> trimLevels = new ArrayList<>();
+        SpyableAdapterDelegate<List<Object>> cheap = new SpyableAdapterDelegate<List<Object>>(0) {
+            @Override
+            protected float getViewHolderCost() {
+                return 0.5f;
+            }
+        };
+        SpyableAdapterDelegate<List<Object>> expensive = new SpyableAdapterDelegate<List<Object>>(1) {
+            @Override
+            protected float getViewHolderCost() {
+                return 4f;
+            }
+
+            @Override
+            protected void onTrimMemory(int level) {
+                trimLevels.add(level);
+            }
+        };
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<List<Object>>()
+                .addDelegate(cheap)
+                .addDelegate(expensive);
+
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        RecyclerView recyclerView = Mockito.mock(RecyclerView.class);
+        Mockito.when(recyclerView.getRecycledViewPool()).thenReturn(pool);
+        for (int i = 0; i < 4; i++) {
+            pool.putRecycledView(cheap.viewHolder);
+            pool.putRecycledView(expensive.viewHolder);
+        }
+
+        // Not attached, only the AdapterDelegates are notified
+        manager.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        Assert.assertEquals(4, pool.getRecycledViewCount(0));
+        Assert.assertEquals(4, pool.getRecycledViewCount(1));
+        Assert.assertEquals(1, trimLevels.size());
+
+        manager.onAttachedToRecyclerView(recyclerView);
+        // trim memory callbacks are opt-in, nothing is registered by default
+        Mockito.verify(recyclerView, Mockito.never()).getContext();
+        manager.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        Assert.assertEquals(4, pool.getRecycledViewCount(0));
+        Assert.assertEquals(0, pool.getRecycledViewCount(1));
+
+        manager.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        Assert.assertEquals(0, pool.getRecycledViewCount(0));
+        Assert.assertEquals(3, trimLevels.size());
+        Assert.assertEquals(ComponentCallbacks2.TRIM_MEMORY_COMPLETE, (int) trimLevels.get(2));
+    }
+
+    @Test
+    public void retainedViewHolders() {
+        Assert.assertEquals(1f, AdapterDelegatesManager.retainRatioForTrimLevel(0), 0f);
+        Assert.assertEquals(1f, AdapterDelegatesManager.retainRatioForTrimLevel(
+                ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN), 0f);
+        Assert.assertEquals(0f, AdapterDelegatesManager.retainRatioForTrimLevel(
+                ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL), 0f);
+
+        Assert.assertEquals(5, AdapterDelegatesManager.retainedViewHolders(10, 0.5f, 1f, 0f));
+        Assert.assertEquals(10, AdapterDelegatesManager.retainedViewHolders(10, 0.5f, 1f, 1f));
+        Assert.assertEquals(1, AdapterDelegatesManager.retainedViewHolders(10, 0.5f, 4f, 0f));
+        Assert.assertEquals(0, AdapterDelegatesManager.retainedViewHolders(10, 0f, 0.1f, 1f));
+    }
+
+    private static class CountingAdapterDelegate extends SpyableAdapterDelegate<List<Object>> {
+
+        int isForViewTypeCount = 0;
+
+        CountingAdapterDelegate(int viewType) {
+            super(viewType);
+        }
+
+        @Override
+        public boolean isForViewType(@NonNull List<Object> items, int position) {
+            isForViewTypeCount++;
+            return super.isForViewType(items, position);
+        }
+    }
 }
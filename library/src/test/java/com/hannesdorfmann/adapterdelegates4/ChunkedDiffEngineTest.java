@@ -0,0 +1,172 @@
+package com.hannesdorfmann.adapterdelegates4;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class ChunkedDiffEngineTest {
+
+    private static class Item {
+        final int id;
+        final String text;
+
+        Item(int id, String text) {
+            this.id = id;
+            this.text = text;
+        }
+    }
+
+    private static final KeyedDiffEngine.KeyProvider<Item> KEYS =
+            new KeyedDiffEngine.KeyProvider<Item>() {
+                @NonNull
+                @Override
+                public Object getKey(@NonNull Item item) {
+                    return item.id;
+                }
+            };
+
+    private static final DiffUtil.ItemCallback<Item> CALLBACK = new DiffUtil.ItemCallback<Item>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Item oldItem, @NonNull Item newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Item oldItem, @NonNull Item newItem) {
+            return oldItem.text.equals(newItem.text);
+        }
+    };
+
+    private static final Item INSERTED = new Item(-1, "inserted");
+
+    /**
+     * Applies the dispatched operations to a copy of the old list, inserted items are
+     * placeholders.
+     */
+    private static class ApplyingCallback implements ListUpdateCallback {
+        final List<Item> list;
+        final List<Integer> changed = new ArrayList<>();
+        int removed;
+
+        ApplyingCallback(List<Item> oldList) {
+            this.list = new ArrayList<>(oldList);
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                list.add(position, INSERTED);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            removed += count;
+            for (int i = 0; i < count; i++) {
+                list.remove(position);
+            }
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            list.add(toPosition, list.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            for (int i = 0; i < count; i++) {
+                changed.add(position + i);
+            }
+        }
+    }
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    private static List<Item> items(int count) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new Item(i, "item " + i));
+        }
+        return items;
+    }
+
+    private ApplyingCallback diff(List<Item> oldList, List<Item> newList) {
+        ChunkedDiffEngine<Item> engine =
+                new ChunkedDiffEngine<>(KEYS, CALLBACK, executor, 4).setChunkSize(100);
+        ApplyingCallback callback = new ApplyingCallback(oldList);
+        engine.calculateDiff(oldList, newList).dispatchUpdatesTo(callback);
+
+        Assert.assertEquals(newList.size(), callback.list.size());
+        for (int i = 0; i < newList.size(); i++) {
+            Item item = callback.list.get(i);
+            if (item != INSERTED) {
+                Assert.assertEquals(newList.get(i).id, item.id);
+            }
+        }
+        return callback;
+    }
+
+    @Test
+    public void localChangesAreDiffedInChunks() {
+        List<Item> oldList = items(2000);
+        List<Item> newList = new ArrayList<>(oldList);
+        newList.remove(1500);
+        newList.add(700, new Item(5000, "new"));
+        newList.remove(300);
+        newList.set(1000, new Item(newList.get(1000).id, "changed"));
+
+        ChunkedDiffEngine<Item> engine = new ChunkedDiffEngine<>(KEYS, CALLBACK, executor, 4)
+                .setChunkSize(100);
+        int diffed = 0;
+        for (ChunkedDiffEngine.Segment segment : engine.split(oldList, newList)) {
+            if (segment.diff) {
+                diffed += segment.oldCount;
+            }
+        }
+        Assert.assertTrue("Diffed " + diffed + " items", diffed <= 300);
+
+        ApplyingCallback callback = diff(oldList, newList);
+        Assert.assertTrue(callback.changed.contains(1000));
+        Assert.assertTrue(callback.removed <= 300);
+    }
+
+    @Test
+    public void unchangedPrefixAndSuffix() {
+        List<Item> oldList = items(1000);
+        List<Item> newList = new ArrayList<>(oldList);
+        newList.set(500, new Item(500, "changed"));
+
+        ApplyingCallback callback = diff(oldList, newList);
+        Assert.assertEquals(0, callback.removed);
+        Assert.assertEquals(1, callback.changed.size());
+        Assert.assertEquals(500, (int) callback.changed.get(0));
+    }
+
+    @Test
+    public void completelyDifferentLists() {
+        List<Item> newList = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            newList.add(new Item(1000 + i, "other"));
+        }
+        diff(items(700), newList);
+        diff(items(700), new ArrayList<Item>());
+        diff(new ArrayList<Item>(), newList);
+    }
+}
@@ -0,0 +1,155 @@
+package com.hannesdorfmann.adapterdelegates4;
+
+import android.view.ViewGroup;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class CompositeItemCallbackTest {
+
+    private static class CountingItemCallback extends DiffUtil.ItemCallback<Object> {
+        int calls;
+
+        @Override
+        public boolean areItemsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            calls++;
+            return oldItem.equals(newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            calls++;
+            return true;
+        }
+    }
+
+    private static class ItemCallbackAdapterDelegate extends AdapterDelegate<List<Object>> {
+        final Class<?> itemClass;
+        final boolean declareItemClass;
+        final CountingItemCallback itemCallback = new CountingItemCallback();
+        int isForViewTypeCalls;
+
+        ItemCallbackAdapterDelegate(Class<?> itemClass, boolean declareItemClass) {
+            this.itemClass = itemClass;
+            this.declareItemClass = declareItemClass;
+        }
+
+        @Override
+        protected boolean isForViewType(@NonNull List<Object> items, int position) {
+            isForViewTypeCalls++;
+            return itemClass.isInstance(items.get(position));
+        }
+
+        @Nullable
+        @Override
+        protected Class<?> getItemClass() {
+            return declareItemClass ? itemClass : null;
+        }
+
+        @Nullable
+        @Override
+        protected DiffUtil.ItemCallback<?> getItemCallback() {
+            return itemCallback;
+        }
+
+        @NonNull
+        @Override
+        protected RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void onBindViewHolder(@NonNull List<Object> items, int position,
+                                        @NonNull RecyclerView.ViewHolder holder,
+                                        @NonNull List<Object> payloads) {
+        }
+    }
+
+    @Test
+    public void routesByItemClass() {
+        ItemCallbackAdapterDelegate strings = new ItemCallbackAdapterDelegate(String.class, true);
+        ItemCallbackAdapterDelegate integers = new ItemCallbackAdapterDelegate(Integer.class, true);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(strings);
+        manager.addDelegate(integers);
+        CompositeItemCallback<Object> itemCallback = new CompositeItemCallback<>(manager);
+
+        Assert.assertTrue(itemCallback.areItemsTheSame("a", "a"));
+        Assert.assertTrue(itemCallback.areContentsTheSame("a", "a"));
+        Assert.assertEquals(2, strings.itemCallback.calls);
+
+        Assert.assertTrue(itemCallback.areItemsTheSame(1, 1));
+        Assert.assertFalse(itemCallback.areItemsTheSame(1, 2));
+        Assert.assertEquals(2, integers.itemCallback.calls);
+
+        // Items of different classes are not the same
+        Assert.assertFalse(itemCallback.areItemsTheSame("a", 1));
+        Assert.assertEquals(2, strings.itemCallback.calls);
+
+        // isForViewType() is never called from the diff thread
+        Assert.assertEquals(0, strings.isForViewTypeCalls);
+        Assert.assertEquals(0, integers.isForViewTypeCalls);
+    }
+
+    @Test
+    public void delegatesWithoutItemClassUseFallbackItemCallback() {
+        ItemCallbackAdapterDelegate integers = new ItemCallbackAdapterDelegate(Integer.class, false);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(integers);
+        CountingItemCallback fallback = new CountingItemCallback();
+        CompositeItemCallback<Object> itemCallback = new CompositeItemCallback<>(manager, fallback);
+
+        Assert.assertTrue(itemCallback.areItemsTheSame(1, 1));
+        Assert.assertEquals(1, fallback.calls);
+        Assert.assertEquals(0, integers.itemCallback.calls);
+        Assert.assertEquals(0, integers.isForViewTypeCalls);
+    }
+
+    @Test
+    public void resolvedAgainAfterDelegatesChanged() {
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        CountingItemCallback fallback = new CountingItemCallback();
+        CompositeItemCallback<Object> itemCallback = new CompositeItemCallback<>(manager, fallback);
+
+        Assert.assertTrue(itemCallback.areItemsTheSame("a", "a"));
+        Assert.assertEquals(1, fallback.calls);
+
+        ItemCallbackAdapterDelegate strings = new ItemCallbackAdapterDelegate(String.class, true);
+        manager.addDelegate(strings);
+        Assert.assertTrue(itemCallback.areItemsTheSame("a", "a"));
+        Assert.assertEquals(1, fallback.calls);
+        Assert.assertEquals(1, strings.itemCallback.calls);
+
+        manager.removeDelegate(strings);
+        Assert.assertTrue(itemCallback.areItemsTheSame("a", "a"));
+        Assert.assertEquals(2, fallback.calls);
+    }
+
+    @Test
+    public void fallbackItemCallback() {
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(new ItemCallbackAdapterDelegate(String.class, true));
+        CountingItemCallback fallback = new CountingItemCallback();
+        CompositeItemCallback<Object> itemCallback = new CompositeItemCallback<>(manager, fallback);
+
+        Assert.assertTrue(itemCallback.areItemsTheSame(1, 1));
+        Assert.assertEquals(1, fallback.calls);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void noItemCallback() {
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(new ItemCallbackAdapterDelegate(String.class, true));
+        new CompositeItemCallback<>(manager).areItemsTheSame(1, 1);
+    }
+}
@@ -0,0 +1,149 @@
+package com.hannesdorfmann.adapterdelegates4;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class ConflatingListSubmitterTest {
+
+    private static class TestSubmitter extends ConflatingListSubmitter<String> {
+        final List<List<String>> submitted = new ArrayList<>();
+        final List<Runnable> inFlightCommits = new ArrayList<>();
+        Runnable delayed;
+        long delayMillis;
+        long now = 1000;
+
+        TestSubmitter() {
+            super(null);
+        }
+
+        @Override
+        void submitToDiffer(@Nullable List<String> list, @NonNull Runnable commitCallback) {
+            submitted.add(list);
+            inFlightCommits.add(commitCallback);
+        }
+
+        @Override
+        void postDelayed(@NonNull Runnable runnable, long delayMillis) {
+            this.delayed = runnable;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        void removeCallbacks(@NonNull Runnable runnable) {
+            delayed = null;
+        }
+
+        @Override
+        long uptimeMillis() {
+            return now;
+        }
+
+        void commit() {
+            inFlightCommits.remove(0).run();
+        }
+    }
+
+    private static class CountingCallback implements Runnable {
+        int count;
+
+        @Override
+        public void run() {
+            count++;
+        }
+    }
+
+    @Test
+    public void onlyLatestPendingListIsSubmitted() {
+        TestSubmitter submitter = new TestSubmitter();
+        CountingCallback first = new CountingCallback();
+        CountingCallback second = new CountingCallback();
+        CountingCallback third = new CountingCallback();
+
+        submitter.submitList(Arrays.asList("a"), first);
+        submitter.submitList(Arrays.asList("b"), second);
+        submitter.submitList(Arrays.asList("c"), third);
+        Assert.assertEquals(Collections.singletonList(Arrays.asList("a")), submitter.submitted);
+        Assert.assertTrue(submitter.isBusy());
+
+        submitter.commit();
+        Assert.assertEquals(1, first.count);
+        Assert.assertEquals(0, second.count);
+        Assert.assertEquals(Arrays.asList(Arrays.asList("a"), Arrays.asList("c")),
+                submitter.submitted);
+
+        submitter.commit();
+        Assert.assertEquals(1, second.count);
+        Assert.assertEquals(1, third.count);
+        Assert.assertFalse(submitter.isBusy());
+    }
+
+    @Test
+    public void minCommitInterval() {
+        TestSubmitter submitter = new TestSubmitter();
+        submitter.setMinCommitIntervalMillis(100);
+
+        submitter.submitList(Arrays.asList("a"), null);
+        submitter.commit();
+
+        submitter.now += 40;
+        submitter.submitList(Arrays.asList("b"), null);
+        submitter.submitList(Arrays.asList("c"), null);
+        Assert.assertEquals(1, submitter.submitted.size());
+        Assert.assertEquals(60, submitter.delayMillis);
+
+        submitter.delayed.run();
+        Assert.assertEquals(Arrays.asList("c"), submitter.submitted.get(1));
+    }
+
+    @Test
+    public void flushSubmitsWaitingList() {
+        TestSubmitter submitter = new TestSubmitter();
+        submitter.setMinCommitIntervalMillis(100);
+        submitter.submitList(Arrays.asList("a"), null);
+        submitter.commit();
+
+        submitter.submitList(Arrays.asList("b"), null);
+        Assert.assertNotNull(submitter.delayed);
+
+        submitter.flush();
+        Assert.assertNull(submitter.delayed);
+        Assert.assertEquals(Arrays.asList("b"), submitter.submitted.get(1));
+    }
+
+    @Test
+    public void flushWhileInFlightRunsEveryCallback() {
+        TestSubmitter submitter = new TestSubmitter();
+        CountingCallback first = new CountingCallback();
+        CountingCallback second = new CountingCallback();
+        CountingCallback third = new CountingCallback();
+
+        submitter.submitList(Arrays.asList("a"), first);
+        submitter.submitList(Arrays.asList("b"), second);
+        submitter.submitList(Arrays.asList("c"), third);
+        submitter.flush();
+        Assert.assertEquals(Arrays.asList(Arrays.asList("a"), Arrays.asList("c")),
+                submitter.submitted);
+
+        // "a" has been replaced, the differ would never commit it
+        submitter.commit();
+        Assert.assertEquals(0, first.count);
+        Assert.assertTrue(submitter.isBusy());
+
+        submitter.commit();
+        Assert.assertEquals(1, first.count);
+        Assert.assertEquals(1, second.count);
+        Assert.assertEquals(1, third.count);
+        Assert.assertFalse(submitter.isBusy());
+    }
+}
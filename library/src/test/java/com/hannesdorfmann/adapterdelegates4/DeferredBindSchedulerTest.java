@@ -0,0 +1,168 @@
+package com.hannesdorfmann.adapterdelegates4;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class DeferredBindSchedulerTest {
+
+    private static class TestScheduler extends DeferredBindScheduler {
+        long now = 0;
+        int framesPosted = 0;
+
+        @Override
+        void postFrameCallback() {
+            framesPosted++;
+        }
+
+        @Override
+        long nanoTime() {
+            return now;
+        }
+    }
+
+    private static class DeferringAdapterDelegate extends SpyableAdapterDelegate<List<Object>> {
+        final List<RecyclerView.ViewHolder> deferredBound = new ArrayList<>();
+        long deferredBindDuration = 0;
+        TestScheduler scheduler;
+
+        DeferringAdapterDelegate(int viewType) {
+            super(viewType);
+        }
+
+        @Override
+        protected boolean hasDeferredBind(@NonNull RecyclerView.ViewHolder holder) {
+            return true;
+        }
+
+        @Override
+        protected void onDeferredBindViewHolder(@NonNull RecyclerView.ViewHolder holder) {
+            deferredBound.add(holder);
+            if (scheduler != null) {
+                scheduler.now += deferredBindDuration;
+            }
+        }
+    }
+
+    @Test
+    public void withoutSchedulerDeferredBindRunsRightAway() {
+        DeferringAdapterDelegate delegate = new DeferringAdapterDelegate(0);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(delegate);
+
+        List<Object> items = Collections.<Object>singletonList("a");
+        manager.onBindViewHolder(items, 0, delegate.viewHolder);
+        Assert.assertEquals(1, delegate.deferredBound.size());
+
+        // Partial binds don't run the deferred part again
+        manager.onBindViewHolder(items, 0, delegate.viewHolder, Collections.singletonList("payload"));
+        Assert.assertEquals(1, delegate.deferredBound.size());
+    }
+
+    @Test
+    public void deferredWhenOverBudget() {
+        TestScheduler scheduler = new TestScheduler();
+        scheduler.setFrameBudgetNanos(10);
+        DeferringAdapterDelegate delegate = new DeferringAdapterDelegate(0);
+        delegate.scheduler = scheduler;
+        delegate.deferredBindDuration = 6;
+
+        RecyclerView.ViewHolder vh1 = new SpyableAdapterDelegate<>(0).viewHolder;
+        RecyclerView.ViewHolder vh2 = new SpyableAdapterDelegate<>(0).viewHolder;
+        RecyclerView.ViewHolder vh3 = new SpyableAdapterDelegate<>(0).viewHolder;
+
+        scheduler.schedule(delegate, vh1);
+        scheduler.schedule(delegate, vh2);
+        Assert.assertEquals(2, delegate.deferredBound.size());
+        Assert.assertEquals(1, scheduler.framesPosted);
+
+        // 12ns spent in this frame
+        scheduler.schedule(delegate, vh3);
+        Assert.assertEquals(2, delegate.deferredBound.size());
+        Assert.assertEquals(1, scheduler.getPendingCount());
+
+        scheduler.now = 100;
+        scheduler.doFrame(100);
+        Assert.assertEquals(3, delegate.deferredBound.size());
+        Assert.assertSame(vh3, delegate.deferredBound.get(2));
+        Assert.assertEquals(0, scheduler.getPendingCount());
+
+        // keeps ticking for one more frame and stops afterwards
+        Assert.assertEquals(2, scheduler.framesPosted);
+        scheduler.doFrame(200);
+        Assert.assertEquals(2, scheduler.framesPosted);
+    }
+
+    @Test
+    public void atLeastOneDeferredBindPerFrame() {
+        TestScheduler scheduler = new TestScheduler();
+        scheduler.setFrameBudgetNanos(10);
+        DeferringAdapterDelegate delegate = new DeferringAdapterDelegate(0);
+        delegate.scheduler = scheduler;
+        delegate.deferredBindDuration = 20;
+
+        scheduler.onScrollStateChanged(null, RecyclerView.SCROLL_STATE_SETTLING);
+        scheduler.schedule(delegate, new SpyableAdapterDelegate<>(0).viewHolder);
+        scheduler.schedule(delegate, new SpyableAdapterDelegate<>(0).viewHolder);
+        scheduler.onScrollStateChanged(null, RecyclerView.SCROLL_STATE_IDLE);
+        Assert.assertEquals(2, scheduler.getPendingCount());
+
+        scheduler.doFrame(0);
+        Assert.assertEquals(1, scheduler.getPendingCount());
+        scheduler.now = 100;
+        scheduler.doFrame(100);
+        Assert.assertEquals(0, scheduler.getPendingCount());
+        Assert.assertEquals(2, delegate.deferredBound.size());
+    }
+
+    @Test
+    public void flingPostponesDeferredBinds() {
+        TestScheduler scheduler = new TestScheduler();
+        DeferringAdapterDelegate delegate = new DeferringAdapterDelegate(0);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(delegate);
+        manager.setDeferredBindScheduler(scheduler);
+
+        List<Object> items = Collections.<Object>singletonList("a");
+        scheduler.onScrollStateChanged(null, RecyclerView.SCROLL_STATE_SETTLING);
+        manager.onBindViewHolder(items, 0, delegate.viewHolder);
+        scheduler.doFrame(0);
+        Assert.assertTrue(delegate.deferredBound.isEmpty());
+        Assert.assertEquals(1, scheduler.getPendingCount());
+
+        scheduler.onScrollStateChanged(null, RecyclerView.SCROLL_STATE_IDLE);
+        scheduler.doFrame(16);
+        Assert.assertEquals(1, delegate.deferredBound.size());
+    }
+
+    @Test
+    public void rebindAndRecycleDropPendingDeferredBind() {
+        TestScheduler scheduler = new TestScheduler();
+        DeferringAdapterDelegate delegate = new DeferringAdapterDelegate(0);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(delegate);
+        manager.setDeferredBindScheduler(scheduler);
+
+        List<Object> items = Collections.<Object>singletonList("a");
+        scheduler.onScrollStateChanged(null, RecyclerView.SCROLL_STATE_SETTLING);
+        manager.onBindViewHolder(items, 0, delegate.viewHolder);
+        manager.onBindViewHolder(items, 0, delegate.viewHolder);
+        Assert.assertEquals(1, scheduler.getPendingCount());
+
+        manager.onViewRecycled(delegate.viewHolder);
+        Assert.assertEquals(0, scheduler.getPendingCount());
+
+        scheduler.onScrollStateChanged(null, RecyclerView.SCROLL_STATE_IDLE);
+        scheduler.doFrame(16);
+        Assert.assertTrue(delegate.deferredBound.isEmpty());
+    }
+}
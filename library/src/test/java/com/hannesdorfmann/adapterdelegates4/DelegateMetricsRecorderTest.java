@@ -0,0 +1,85 @@
+package com.hannesdorfmann.adapterdelegates4;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class DelegateMetricsRecorderTest {
+
+    @Test
+    public void histogram() {
+        DelegateMetricsRecorder recorder = new DelegateMetricsRecorder();
+        SpyableAdapterDelegate<List<Object>> delegate = new SpyableAdapterDelegate<>(0);
+
+        Assert.assertNull(recorder.getStats(0));
+        for (int i = 0; i < 99; i++) {
+            recorder.onDelegateEvent(delegate, 0, DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER, 1000);
+        }
+        recorder.onDelegateEvent(delegate, 0, DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER, 5000000);
+
+        DelegateMetricsRecorder.Stats stats = recorder.getStats(0);
+        Assert.assertEquals(100, stats.getCount(DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER));
+        Assert.assertEquals(0, stats.getCount(DelegateMetricsListener.EVENT_CREATE_VIEW_HOLDER));
+        Assert.assertEquals(5000000, stats.getMaxNanos(DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER));
+        Assert.assertEquals(99 * 1000 + 5000000,
+                stats.getTotalNanos(DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER));
+        Assert.assertEquals(99, stats.getBucketCount(DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER, 9));
+        Assert.assertEquals(1024,
+                stats.getPercentileNanos(DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER, 99));
+        Assert.assertEquals(5000000,
+                stats.getPercentileNanos(DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER, 100));
+
+        recorder.reset();
+        Assert.assertEquals(0, stats.getCount(DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER));
+        Assert.assertEquals(0, stats.getPercentileNanos(DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER, 99));
+    }
+
+    @Test
+    public void bucketOf() {
+        Assert.assertEquals(0, DelegateMetricsRecorder.bucketOf(0));
+        Assert.assertEquals(0, DelegateMetricsRecorder.bucketOf(1));
+        Assert.assertEquals(1, DelegateMetricsRecorder.bucketOf(2));
+        Assert.assertEquals(1, DelegateMetricsRecorder.bucketOf(3));
+        Assert.assertEquals(10, DelegateMetricsRecorder.bucketOf(1024));
+        Assert.assertEquals(DelegateMetricsRecorder.BUCKET_COUNT - 1,
+                DelegateMetricsRecorder.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void recordsManagerEvents() {
+        SpyableAdapterDelegate<List<Object>> d0 = new SpyableAdapterDelegate<>(0);
+        SpyableAdapterDelegate<List<Object>> d1 = new SpyableAdapterDelegate<>(1);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(d0);
+        manager.addDelegate(d1);
+
+        DelegateMetricsRecorder recorder = new DelegateMetricsRecorder();
+        manager.setMetricsListener(recorder);
+
+        List<Object> items = new ArrayList<>();
+        items.add(new Object());
+        items.add(new Object());
+
+        Assert.assertEquals(1, manager.getItemViewType(items, 1));
+        manager.onCreateViewHolder(null, 1);
+        manager.onBindViewHolder(items, 1, d1.viewHolder);
+        manager.onViewRecycled(d1.viewHolder);
+
+        Assert.assertEquals(1, recorder.getStats(0).getCount(DelegateMetricsListener.EVENT_IS_FOR_VIEW_TYPE));
+        DelegateMetricsRecorder.Stats stats = recorder.getStats(1);
+        Assert.assertSame(d1, stats.getDelegate());
+        Assert.assertEquals(1, stats.getCount(DelegateMetricsListener.EVENT_IS_FOR_VIEW_TYPE));
+        Assert.assertEquals(1, stats.getCount(DelegateMetricsListener.EVENT_CREATE_VIEW_HOLDER));
+        Assert.assertEquals(1, stats.getCount(DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER));
+        Assert.assertEquals(1, stats.getCount(DelegateMetricsListener.EVENT_VIEW_RECYCLED));
+
+        manager.setMetricsListener(null);
+        manager.onBindViewHolder(items, 1, d1.viewHolder);
+        Assert.assertEquals(1, stats.getCount(DelegateMetricsListener.EVENT_BIND_VIEW_HOLDER));
+    }
+}
@@ -0,0 +1,99 @@
+package com.hannesdorfmann.adapterdelegates4;
+
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class DelegateResourceCacheTest {
+
+    private Context context;
+    private Resources resources;
+
+    @Before
+    public void setUp() {
+        context = Mockito.mock(Context.class);
+        resources = Mockito.mock(Resources.class);
+        Mockito.when(context.getResources()).thenReturn(resources);
+        Mockito.when(context.getTheme()).thenReturn(Mockito.mock(Resources.Theme.class));
+        Mockito.when(context.getApplicationContext()).thenReturn(context);
+        Mockito.when(context.getString(1)).thenReturn("foo");
+        Mockito.when(resources.getColor(2)).thenReturn(0xFF00FF00);
+    }
+
+    @Test
+    public void resourcesAreLookedUpOnce() {
+        DelegateResourceCache cache = new DelegateResourceCache();
+
+        Assert.assertEquals("foo", cache.getString(context, 1));
+        Assert.assertEquals("foo", cache.getString(context, 1));
+        Mockito.verify(context, Mockito.times(1)).getString(1);
+
+        Assert.assertEquals(0xFF00FF00, cache.getColor(context, 2));
+        Assert.assertEquals(0xFF00FF00, cache.getColor(context, 2));
+        Mockito.verify(resources, Mockito.times(1)).getColor(2);
+    }
+
+    @Test
+    public void drawablesAreCreatedFromConstantState() {
+        Drawable drawable = Mockito.mock(Drawable.class);
+        Drawable newDrawable = Mockito.mock(Drawable.class);
+        Drawable.ConstantState constantState = Mockito.mock(Drawable.ConstantState.class);
+        Mockito.when(drawable.getConstantState()).thenReturn(constantState);
+        Mockito.when(constantState.newDrawable(resources)).thenReturn(newDrawable);
+        Mockito.when(resources.getDrawable(3)).thenReturn(drawable);
+
+        DelegateResourceCache cache = new DelegateResourceCache();
+        Assert.assertSame(drawable, cache.getDrawable(context, 3));
+        Assert.assertSame(newDrawable, cache.getDrawable(context, 3));
+        Mockito.verify(resources, Mockito.times(1)).getDrawable(3);
+    }
+
+    @Test
+    public void clearedOnThemeChange() {
+        DelegateResourceCache cache = new DelegateResourceCache();
+        cache.getString(context, 1);
+
+        Mockito.when(context.getTheme()).thenReturn(Mockito.mock(Resources.Theme.class));
+        cache.getString(context, 1);
+        Mockito.verify(context, Mockito.times(2)).getString(1);
+    }
+
+    @Test
+    public void clearedOnConfigurationChange() {
+        DelegateResourceCache cache = new DelegateResourceCache();
+        cache.getString(context, 1);
+
+        ArgumentCaptor<ComponentCallbacks> callbacks = ArgumentCaptor.forClass(ComponentCallbacks.class);
+        Mockito.verify(context).registerComponentCallbacks(callbacks.capture());
+        callbacks.getValue().onConfigurationChanged(null);
+
+        cache.getString(context, 1);
+        Mockito.verify(context, Mockito.times(2)).getString(1);
+    }
+
+    @Test
+    public void configurationCallbacksAreShared() {
+        DelegateResourceCache cache1 = new DelegateResourceCache();
+        DelegateResourceCache cache2 = new DelegateResourceCache();
+        cache1.getString(context, 1);
+        cache2.getString(context, 1);
+
+        ArgumentCaptor<ComponentCallbacks> callbacks = ArgumentCaptor.forClass(ComponentCallbacks.class);
+        Mockito.verify(context, Mockito.times(1)).registerComponentCallbacks(callbacks.capture());
+        callbacks.getValue().onLowMemory();
+
+        cache1.getString(context, 1);
+        cache2.getString(context, 1);
+        Mockito.verify(context, Mockito.times(4)).getString(1);
+    }
+}
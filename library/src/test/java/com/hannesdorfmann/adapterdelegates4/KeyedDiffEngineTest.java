@@ -0,0 +1,183 @@
+package com.hannesdorfmann.adapterdelegates4;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class KeyedDiffEngineTest {
+
+    private static class Item {
+        final int id;
+        final String text;
+
+        Item(int id, String text) {
+            this.id = id;
+            this.text = text;
+        }
+    }
+
+    private static final KeyedDiffEngine<Item> ENGINE = new KeyedDiffEngine<>(
+            new KeyedDiffEngine.KeyProvider<Item>() {
+                @NonNull
+                @Override
+                public Object getKey(@NonNull Item item) {
+                    return item.id;
+                }
+            },
+            new DiffUtil.ItemCallback<Item>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull Item oldItem, @NonNull Item newItem) {
+                    return oldItem.id == newItem.id;
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull Item oldItem, @NonNull Item newItem) {
+                    return oldItem.text.equals(newItem.text);
+                }
+
+                @Override
+                public Object getChangePayload(@NonNull Item oldItem, @NonNull Item newItem) {
+                    return newItem.text;
+                }
+            });
+
+    /**
+     * Applies the dispatched operations to a copy of the old list. Inserted positions get the
+     * item of the new list, changed positions are recorded.
+     */
+    private static class ApplyingCallback implements ListUpdateCallback {
+        final List<Item> list;
+        final List<Item> newList;
+        final List<Integer> changed = new ArrayList<>();
+        int moves;
+
+        ApplyingCallback(List<Item> oldList, List<Item> newList) {
+            this.list = new ArrayList<>(oldList);
+            this.newList = newList;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                list.add(position + i, newList.get(position + i));
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                list.remove(position);
+            }
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            list.add(toPosition, list.remove(fromPosition));
+            moves++;
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            for (int i = 0; i < count; i++) {
+                changed.add(position + i);
+                Assert.assertEquals(newList.get(position + i).text, payload);
+            }
+        }
+    }
+
+    private static List<Item> items(int... ids) {
+        List<Item> items = new ArrayList<>();
+        for (int id : ids) {
+            items.add(new Item(id, "item " + id));
+        }
+        return items;
+    }
+
+    private static ApplyingCallback diff(List<Item> oldList, List<Item> newList) {
+        ApplyingCallback callback = new ApplyingCallback(oldList, newList);
+        ENGINE.calculateDiff(oldList, newList).dispatchUpdatesTo(callback);
+
+        Assert.assertEquals(newList.size(), callback.list.size());
+        for (int i = 0; i < newList.size(); i++) {
+            Assert.assertEquals(newList.get(i).id, callback.list.get(i).id);
+        }
+        return callback;
+    }
+
+    @Test
+    public void insertRemoveAndMove() {
+        ApplyingCallback callback = diff(items(1, 2, 3, 4, 5, 6), items(7, 6, 2, 3, 8, 4, 1));
+        Assert.assertTrue(callback.changed.isEmpty());
+    }
+
+    @Test
+    public void onlyItemsOutsideOfTheLongestIncreasingSubsequenceAreMoved() {
+        Assert.assertEquals(1, diff(items(1, 2, 3, 4, 5), items(5, 1, 2, 3, 4)).moves);
+        Assert.assertEquals(1, diff(items(1, 2, 3, 4, 5), items(2, 3, 4, 5, 1)).moves);
+        Assert.assertEquals(4, diff(items(1, 2, 3, 4, 5), items(5, 4, 3, 2, 1)).moves);
+        Assert.assertEquals(0, diff(items(1, 2, 3), items(1, 2, 3)).moves);
+    }
+
+    @Test
+    public void changedContents() {
+        List<Item> newList = items(3, 1, 2);
+        newList.set(0, new Item(3, "changed"));
+        newList.set(2, new Item(2, "changed"));
+
+        ApplyingCallback callback = diff(items(1, 2, 3), newList);
+        Assert.assertEquals(Arrays.asList(0, 2), callback.changed);
+    }
+
+    @Test
+    public void emptyLists() {
+        diff(items(), items(1, 2));
+        diff(items(1, 2), items());
+        diff(items(), items());
+    }
+
+    @Test
+    public void randomLists() {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            List<Item> oldList = randomItems(random);
+            List<Item> newList = randomItems(random);
+            diff(oldList, newList);
+        }
+    }
+
+    private static List<Item> randomItems(Random random) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            ids.add(i);
+        }
+        Collections.shuffle(ids, random);
+        List<Item> items = new ArrayList<>();
+        for (int i = 0, size = random.nextInt(50); i < size; i++) {
+            items.add(new Item(ids.get(i), random.nextBoolean() ? "a" : "b"));
+        }
+        return items;
+    }
+
+    @Test
+    public void longestIncreasingSubsequence() {
+        boolean[] lis = KeyedDiffEngine.longestIncreasingSubsequence(new int[]{3, 0, 4, 1, 2, 5});
+        Assert.assertTrue(Arrays.equals(new boolean[]{false, true, false, true, true, true}, lis));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateKeys() {
+        ENGINE.calculateDiff(items(1, 2), items(1, 1));
+    }
+}
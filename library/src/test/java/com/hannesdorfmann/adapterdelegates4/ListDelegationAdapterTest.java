@@ -1,9 +1,15 @@
 package com.hannesdorfmann.adapterdelegates4;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.Mockito;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
 
 /**
  * @author Hannes Dorfmann
@@ -58,4 +64,56 @@ public class ListDelegationAdapterTest {
         adapter.getItemCount();
     }
 
+    @Test
+    public void itemViewTypesAreCached() {
+        CountingAdapterDelegate delegate = new CountingAdapterDelegate();
+        ListDelegationAdapter<List<Object>> adapter = new ListDelegationAdapter<List<Object>>(delegate);
+        RecyclerView recyclerView = Mockito.mock(RecyclerView.class);
+        adapter.onAttachedToRecyclerView(recyclerView);
+
+        List<Object> items = new ArrayList<Object>(Arrays.asList(new Object(), new Object()));
+        adapter.setItems(items);
+
+        // Disabled by default
+        Assert.assertEquals(0, adapter.getItemViewType(0));
+        Assert.assertEquals(0, adapter.getItemViewType(0));
+        Assert.assertEquals(2, delegate.isForViewTypeCount);
+
+        adapter.setItemViewTypeCacheEnabled(true);
+        Assert.assertEquals(0, adapter.getItemViewType(0));
+        Assert.assertEquals(0, adapter.getItemViewType(0));
+        Assert.assertEquals(0, adapter.getItemViewType(1));
+        Assert.assertEquals(4, delegate.isForViewTypeCount);
+
+        // In place change must be notified
+        adapter.notifyItemChanged(1);
+        Assert.assertEquals(0, adapter.getItemViewType(1));
+        Assert.assertEquals(0, adapter.getItemViewType(0));
+        Assert.assertEquals(5, delegate.isForViewTypeCount);
+
+        // New list
+        adapter.setItems(new ArrayList<Object>(items));
+        Assert.assertEquals(0, adapter.getItemViewType(0));
+        Assert.assertEquals(6, delegate.isForViewTypeCount);
+
+        // Not cached anymore once detached
+        adapter.onDetachedFromRecyclerView(recyclerView);
+        Assert.assertEquals(0, adapter.getItemViewType(0));
+        Assert.assertEquals(7, delegate.isForViewTypeCount);
+    }
+
+    private static class CountingAdapterDelegate extends SpyableAdapterDelegate<List<Object>> {
+
+        int isForViewTypeCount = 0;
+
+        CountingAdapterDelegate() {
+            super(0);
+        }
+
+        @Override
+        public boolean isForViewType(@NonNull List<Object> items, int position) {
+            isForViewTypeCount++;
+            return true;
+        }
+    }
 }
@@ -0,0 +1,114 @@
+package com.hannesdorfmann.adapterdelegates4;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class ListPatchTest {
+
+    private static class RecordingCallback implements ListUpdateCallback {
+        final List<String> operations = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            operations.add("insert " + position + " " + count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            operations.add("remove " + position + " " + count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            operations.add("move " + fromPosition + " " + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            operations.add("change " + position + " " + count + " " + payload);
+        }
+    }
+
+    @Test
+    public void applyAndDispatch() {
+        ListPatch<String> patch = new ListPatch<String>()
+                .remove(1, 2)
+                .insert(0, Arrays.asList("x", "y"))
+                .move(0, 3)
+                .update(1, "B", "payload")
+                .insert(2, "z");
+
+        List<String> items = new ArrayList<>(Arrays.asList("a", "b", "c", "d"));
+        patch.applyTo(items);
+        Assert.assertEquals(Arrays.asList("y", "B", "z", "d", "x"), items);
+
+        RecordingCallback callback = new RecordingCallback();
+        patch.dispatchUpdatesTo(callback);
+        Assert.assertEquals(Arrays.asList(
+                "remove 1 2",
+                "insert 0 2",
+                "move 0 3",
+                "change 1 1 payload",
+                "insert 2 1"), callback.operations);
+    }
+
+    @Test
+    public void emptyChangesAreIgnored() {
+        ListPatch<String> patch = new ListPatch<String>()
+                .remove(0, 0)
+                .move(1, 1)
+                .insert(0, new ArrayList<String>());
+        Assert.assertTrue(patch.isEmpty());
+    }
+
+    @Test
+    public void outOfBoundsLeavesListUntouched() {
+        ListPatch<String> patch = new ListPatch<String>()
+                .remove(0, 1)
+                .update(2, "c", null);
+
+        List<String> items = new ArrayList<>(Arrays.asList("a", "b", "c"));
+        try {
+            patch.applyTo(items);
+            Assert.fail("IndexOutOfBoundsException expected");
+        } catch (IndexOutOfBoundsException e) {
+            Assert.assertEquals(Arrays.asList("a", "b", "c"), items);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativePosition() {
+        new ListPatch<String>().insert(-1, "a");
+    }
+
+    @Test
+    public void changedRanges() {
+        ListPatch<String> patch = new ListPatch<String>()
+                .insert(2, Arrays.asList("a", "b", "c"))
+                .update(7, "d", null)
+                .remove(3, 1)
+                .insert(0, "e")
+                .move(1, 9);
+
+        // e 1 a c 2 3 d 5 6 0 ..., the moved item 0 hasn't changed
+        Assert.assertArrayEquals(new int[]{0, 1, 2, 2, 6, 1}, patch.getChangedRanges());
+
+        Assert.assertArrayEquals(new int[]{}, new ListPatch<String>()
+                .insert(0, "a")
+                .remove(0, 1)
+                .getChangedRanges());
+        Assert.assertArrayEquals(new int[]{4, 1}, new ListPatch<String>()
+                .update(0, "a", null)
+                .move(0, 4)
+                .getChangedRanges());
+    }
+}
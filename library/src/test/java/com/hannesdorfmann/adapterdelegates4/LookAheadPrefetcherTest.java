@@ -0,0 +1,225 @@
+package com.hannesdorfmann.adapterdelegates4;
+
+import android.view.ViewGroup;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class LookAheadPrefetcherTest {
+
+    private static class PrefetchingAdapterDelegate extends AdapterDelegate<List<Object>> {
+        final Class<?> itemClass;
+        final int prefetchDistance;
+        final List<Integer> prefetched = new ArrayList<>();
+        final List<Integer> cancelled = new ArrayList<>();
+
+        PrefetchingAdapterDelegate(Class<?> itemClass, int prefetchDistance) {
+            this.itemClass = itemClass;
+            this.prefetchDistance = prefetchDistance;
+        }
+
+        @Override
+        protected boolean isForViewType(@NonNull List<Object> items, int position) {
+            return itemClass.isInstance(items.get(position));
+        }
+
+        @NonNull
+        @Override
+        protected RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void onBindViewHolder(@NonNull List<Object> items, int position,
+                                        @NonNull RecyclerView.ViewHolder holder,
+                                        @NonNull List<Object> payloads) {
+        }
+
+        @Override
+        protected int getPrefetchDistance() {
+            return prefetchDistance;
+        }
+
+        @Override
+        protected void onPrefetch(@NonNull List<Object> items, int position) {
+            prefetched.add(position);
+        }
+
+        @Override
+        protected void onCancelPrefetch(@NonNull List<Object> items, int position) {
+            cancelled.add(position);
+        }
+    }
+
+    private static LookAheadPrefetcher<List<Object>> prefetcher(
+            final AdapterDelegatesManager<List<Object>> manager, final List<Object> items) {
+        return new LookAheadPrefetcher<>(manager,
+                new LookAheadPrefetcher.ItemsProvider<List<Object>>() {
+                    @Nullable
+                    @Override
+                    public List<Object> getItems() {
+                        return items;
+                    }
+
+                    @Override
+                    public int getItemCount() {
+                        return items.size();
+                    }
+
+                    @Override
+                    public int getItemViewType(int position) {
+                        return manager.getItemViewType(items, position);
+                    }
+                });
+    }
+
+    private static LookAheadPrefetcher<List<Object>> prefetcher(
+            final ListDelegationAdapter<List<Object>> adapter) {
+        return new LookAheadPrefetcher<>(adapter.delegatesManager,
+                new LookAheadPrefetcher.ItemsProvider<List<Object>>() {
+                    @Nullable
+                    @Override
+                    public List<Object> getItems() {
+                        return adapter.getItems();
+                    }
+
+                    @Override
+                    public int getItemCount() {
+                        return adapter.getItemCount();
+                    }
+
+                    @Override
+                    public int getItemViewType(int position) {
+                        return adapter.getItemViewType(position);
+                    }
+                });
+    }
+
+    @Test
+    public void prefetchPerDelegateDistance() {
+        PrefetchingAdapterDelegate strings = new PrefetchingAdapterDelegate(String.class, 3);
+        PrefetchingAdapterDelegate integers = new PrefetchingAdapterDelegate(Integer.class, 1);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(strings);
+        manager.addDelegate(integers);
+
+        List<Object> items = Arrays.<Object>asList("0", "1", 2, 3, "4", "5", 6, "7");
+        LookAheadPrefetcher<List<Object>> prefetcher = prefetcher(manager, items);
+
+        prefetcher.onVisibleRangeChanged(0, 1, true);
+        Assert.assertEquals(Arrays.asList(2), integers.prefetched);
+        Assert.assertEquals(Arrays.asList(4), strings.prefetched);
+
+        // Already prefetched positions are not prefetched again
+        prefetcher.onVisibleRangeChanged(1, 2, true);
+        Assert.assertEquals(Arrays.asList(2, 3), integers.prefetched);
+        Assert.assertEquals(Arrays.asList(4, 5), strings.prefetched);
+        Assert.assertTrue(strings.cancelled.isEmpty());
+        Assert.assertTrue(integers.cancelled.isEmpty());
+
+        // End of the list
+        prefetcher.onVisibleRangeChanged(5, 6, true);
+        Assert.assertEquals(Arrays.asList(4, 5, 7), strings.prefetched);
+    }
+
+    @Test
+    public void directionChangeCancelsPrefetch() {
+        PrefetchingAdapterDelegate strings = new PrefetchingAdapterDelegate(String.class, 2);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(strings);
+
+        List<Object> items = Arrays.<Object>asList("0", "1", "2", "3", "4", "5", "6");
+        LookAheadPrefetcher<List<Object>> prefetcher = prefetcher(manager, items);
+
+        prefetcher.onVisibleRangeChanged(3, 4, true);
+        Assert.assertEquals(Arrays.asList(5, 6), strings.prefetched);
+
+        prefetcher.onVisibleRangeChanged(2, 3, false);
+        Assert.assertEquals(Arrays.asList(5, 6, 1, 0), strings.prefetched);
+        Assert.assertEquals(Arrays.asList(6, 5), strings.cancelled);
+
+        // Becoming visible is no cancellation
+        prefetcher.onVisibleRangeChanged(1, 2, false);
+        prefetcher.cancelAll();
+        Assert.assertEquals(Arrays.asList(6, 5, 0), strings.cancelled);
+    }
+
+    @Test
+    public void noPrefetchDistance() {
+        PrefetchingAdapterDelegate strings = new PrefetchingAdapterDelegate(String.class, 0);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(strings);
+
+        LookAheadPrefetcher<List<Object>> prefetcher =
+                prefetcher(manager, Arrays.<Object>asList("0", "1", "2"));
+        prefetcher.onVisibleRangeChanged(0, 0, true);
+        Assert.assertTrue(strings.prefetched.isEmpty());
+    }
+
+    @Test
+    public void maxPrefetchDistanceIsCachedUntilDelegatesChange() {
+        PrefetchingAdapterDelegate strings = new PrefetchingAdapterDelegate(String.class, 2);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        Assert.assertEquals(0, manager.getMaxPrefetchDistance());
+
+        manager.addDelegate(strings);
+        Assert.assertEquals(2, manager.getMaxPrefetchDistance());
+
+        manager.setFallbackDelegate(new PrefetchingAdapterDelegate(Object.class, 5));
+        Assert.assertEquals(5, manager.getMaxPrefetchDistance());
+
+        manager.setFallbackDelegate(null);
+        manager.removeDelegate(strings);
+        Assert.assertEquals(0, manager.getMaxPrefetchDistance());
+    }
+
+    @Test
+    public void prefetchedPositionsFollowDataChanges() {
+        PrefetchingAdapterDelegate strings = new PrefetchingAdapterDelegate(String.class, 2);
+        ListDelegationAdapter<List<Object>> adapter = new ListDelegationAdapter<>();
+        adapter.delegatesManager.addDelegate(strings);
+        List<Object> items = new ArrayList<Object>(Arrays.asList("0", "1", "2", "3", "4", "5"));
+        adapter.setItems(items);
+        RecyclerView recyclerView = Mockito.mock(RecyclerView.class);
+        LookAheadPrefetcher<List<Object>> prefetcher = prefetcher(adapter);
+        prefetcher.onAttachedToRecyclerView(adapter, recyclerView);
+
+        prefetcher.onVisibleRangeChanged(0, 1, true);
+        Assert.assertEquals(Arrays.asList(2, 3), strings.prefetched);
+
+        // "2" and "3" are at position 3 and 4 now and have been prefetched already
+        items.add(0, "new");
+        adapter.notifyItemInserted(0);
+        prefetcher.onVisibleRangeChanged(1, 2, true);
+        Assert.assertEquals(Arrays.asList(2, 3), strings.prefetched);
+
+        // "2" has been removed in place, it can't be cancelled anymore
+        items.remove(3);
+        adapter.notifyItemRemoved(3);
+        Assert.assertTrue(strings.cancelled.isEmpty());
+        prefetcher.onVisibleRangeChanged(1, 2, true);
+        Assert.assertEquals(Arrays.asList(2, 3, 4), strings.prefetched);
+
+        // a new list: the prefetches of the old list are cancelled and the new items prefetched
+        adapter.setItems(new ArrayList<Object>(Arrays.asList("a", "b", "c", "d", "e")));
+        adapter.notifyDataSetChanged();
+        Assert.assertEquals(Arrays.asList(3, 4), strings.cancelled);
+        prefetcher.onVisibleRangeChanged(1, 2, true);
+        Assert.assertEquals(Arrays.asList(2, 3, 4, 3, 4), strings.prefetched);
+
+        prefetcher.onDetachedFromRecyclerView(adapter, recyclerView);
+        Assert.assertEquals(Arrays.asList(3, 4, 3, 4), strings.cancelled);
+    }
+}
@@ -0,0 +1,106 @@
+package com.hannesdorfmann.adapterdelegates4;
+
+import android.view.View;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class PayloadDispatcherTest {
+
+    private static class TestViewHolder extends RecyclerView.ViewHolder {
+        final List<Object> applied = new ArrayList<>();
+
+        TestViewHolder() {
+            super(new View(null));
+        }
+    }
+
+    private static class Name {
+        final String name;
+
+        Name(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class Likes {
+        final int likes;
+
+        Likes(int likes) {
+            this.likes = likes;
+        }
+    }
+
+    private static class SpecialLikes extends Likes {
+        SpecialLikes(int likes) {
+            super(likes);
+        }
+    }
+
+    private final PayloadDispatcher.PayloadBinder<TestViewHolder, Object> recordingBinder =
+            new PayloadDispatcher.PayloadBinder<TestViewHolder, Object>() {
+                @Override
+                public void bindPayload(@NonNull TestViewHolder holder, @NonNull Object payload) {
+                    holder.applied.add(payload);
+                }
+            };
+
+    private PayloadDispatcher<TestViewHolder> dispatcher() {
+        return new PayloadDispatcher<TestViewHolder>()
+                .register(Name.class, recordingBinder)
+                .register(Likes.class, new PayloadDispatcher.PayloadMerger<Likes>() {
+                    @NonNull
+                    @Override
+                    public Likes merge(@NonNull Likes older, @NonNull Likes newer) {
+                        return new Likes(older.likes + newer.likes);
+                    }
+                }, recordingBinder);
+    }
+
+    @Test
+    public void dispatch() {
+        PayloadDispatcher<TestViewHolder> dispatcher = dispatcher();
+        TestViewHolder holder = new TestViewHolder();
+        Name name1 = new Name("a");
+        Name name2 = new Name("b");
+
+        Assert.assertTrue(dispatcher.dispatch(holder,
+                Arrays.asList(new Likes(1), name1, new SpecialLikes(2), name2)));
+
+        Assert.assertEquals(3, holder.applied.size());
+        Assert.assertSame(name1, holder.applied.get(0));
+        Assert.assertSame(name2, holder.applied.get(1));
+        Assert.assertEquals(3, ((Likes) holder.applied.get(2)).likes);
+
+        // merged payloads don't leak into the next dispatch
+        holder.applied.clear();
+        Assert.assertTrue(dispatcher.dispatch(holder, Collections.singletonList(new Likes(5))));
+        Assert.assertEquals(5, ((Likes) holder.applied.get(0)).likes);
+    }
+
+    @Test
+    public void unknownPayloadRequiresFullBind() {
+        PayloadDispatcher<TestViewHolder> dispatcher = dispatcher();
+        TestViewHolder holder = new TestViewHolder();
+
+        Assert.assertFalse(dispatcher.dispatch(holder, Collections.emptyList()));
+        Assert.assertFalse(dispatcher.dispatch(holder, Arrays.asList(new Name("a"), "unknown")));
+        Assert.assertTrue(holder.applied.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void registerTwice() {
+        dispatcher().register(Name.class, recordingBinder);
+    }
+}
@@ -0,0 +1,137 @@
+package com.hannesdorfmann.adapterdelegates4;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class RecycledViewPoolWarmUpTest {
+
+    @Test
+    public void warmUp() {
+        SpyableAdapterDelegate<List<Object>> d0 = new SpyableAdapterDelegate<>(0);
+        SpyableAdapterDelegate<List<Object>> d1 = new SpyableAdapterDelegate<>(1);
+        ListDelegationAdapter<List<Object>> adapter = new ListDelegationAdapter<>(d0, d1);
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.putRecycledView(adapter.createViewHolder(null, 1));
+
+        RecycledViewPoolWarmUp<List<Object>> warmUp =
+                new RecycledViewPoolWarmUp<>(adapter, adapter.delegatesManager, null, pool)
+                        .add(d0, 7)
+                        .add(d1, 2);
+
+        int steps = 1;
+        while (warmUp.warmUpNext()) {
+            steps++;
+        }
+
+        Assert.assertEquals(8, steps);
+        Assert.assertTrue(warmUp.isFinished());
+        Assert.assertEquals(7, pool.getRecycledViewCount(0));
+        Assert.assertEquals(2, pool.getRecycledViewCount(1));
+        Assert.assertFalse(warmUp.warmUpNext());
+    }
+
+    @Test
+    public void maxRecycledViewsIsOnlyRaised() {
+        SpyableAdapterDelegate<List<Object>> d0 = new SpyableAdapterDelegate<>(0);
+        SpyableAdapterDelegate<List<Object>> d1 = new SpyableAdapterDelegate<List<Object>>(1) {
+            @Override
+            protected int getMaxRecycledViews() {
+                return 3;
+            }
+        };
+        ListDelegationAdapter<List<Object>> adapter = new ListDelegationAdapter<>(d0, d1);
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+
+        RecycledViewPoolWarmUp<List<Object>> warmUp =
+                new RecycledViewPoolWarmUp<>(adapter, adapter.delegatesManager, null, pool)
+                        .add(d0, 8)
+                        .add(d1, 10);
+        while (warmUp.warmUpNext()) {
+        }
+        Assert.assertEquals(8, pool.getRecycledViewCount(0));
+        Assert.assertEquals(3, pool.getRecycledViewCount(1));
+
+        // a smaller count doesn't shrink the RecycledViewPool
+        warmUp.add(d0, 6);
+        Assert.assertTrue(warmUp.isFinished());
+        Assert.assertEquals(8, pool.getRecycledViewCount(0));
+    }
+
+    @Test
+    public void configureRecycledViewPoolKeepsRaisedCapacity() {
+        SpyableAdapterDelegate<List<Object>> d0 = new SpyableAdapterDelegate<List<Object>>(0) {
+            @Override
+            protected float getExpectedFrequency() {
+                return 0.7f;
+            }
+        };
+        SpyableAdapterDelegate<List<Object>> d1 = new SpyableAdapterDelegate<>(1);
+        ListDelegationAdapter<List<Object>> adapter = new ListDelegationAdapter<>(d0, d1);
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        adapter.delegatesManager.configureRecycledViewPool(pool);
+
+        RecycledViewPoolWarmUp<List<Object>> warmUp =
+                new RecycledViewPoolWarmUp<>(adapter, adapter.delegatesManager, null, pool)
+                        .add(d0, 9)
+                        .add(d1, 8);
+        while (warmUp.warmUpNext()) {
+        }
+
+        // i.e. the adapter is attached to a RecyclerView again
+        adapter.delegatesManager.configureRecycledViewPool(pool);
+        Assert.assertEquals(9, pool.getRecycledViewCount(0));
+        Assert.assertEquals(8, pool.getRecycledViewCount(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void adapterMustBeSetBeforeWarmUp() {
+        SpyableAdapterDelegate<List<Object>> d0 = new SpyableAdapterDelegate<>(0);
+        ListDelegationAdapter<List<Object>> adapter = new ListDelegationAdapter<>(d0);
+        RecyclerView recyclerView = Mockito.mock(RecyclerView.class);
+        Mockito.when(recyclerView.getRecycledViewPool())
+                .thenReturn(new RecyclerView.RecycledViewPool());
+
+        adapter.warmUpRecycledViewPool(recyclerView);
+    }
+
+    @Test
+    public void warmedUpViewHoldersSurviveSetAdapter() {
+        SpyableAdapterDelegate<List<Object>> d0 = new SpyableAdapterDelegate<>(0);
+        ListDelegationAdapter<List<Object>> adapter = new ListDelegationAdapter<>(d0);
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        RecyclerView recyclerView = Mockito.mock(RecyclerView.class);
+        Mockito.when(recyclerView.getRecycledViewPool()).thenReturn(pool);
+
+        // What RecyclerView.setAdapter() does: the RecycledViewPool is cleared because no other
+        // adapter uses it, afterwards the adapter is attached
+        pool.clear();
+        Mockito.when(recyclerView.getAdapter()).thenReturn((RecyclerView.Adapter) adapter);
+        adapter.onAttachedToRecyclerView(recyclerView);
+
+        RecycledViewPoolWarmUp<List<Object>> warmUp =
+                adapter.warmUpRecycledViewPool(recyclerView).add(d0, 7);
+        while (warmUp.warmUpNext()) {
+        }
+
+        adapter.onDetachedFromRecyclerView(recyclerView);
+        adapter.onAttachedToRecyclerView(recyclerView);
+        Assert.assertEquals(7, pool.getRecycledViewCount(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownDelegate() {
+        SpyableAdapterDelegate<List<Object>> d0 = new SpyableAdapterDelegate<>(0);
+        ListDelegationAdapter<List<Object>> adapter = new ListDelegationAdapter<>(d0);
+        new RecycledViewPoolWarmUp<>(adapter, adapter.delegatesManager, null,
+                new RecyclerView.RecycledViewPool())
+                .add(new SpyableAdapterDelegate<List<Object>>(1), 1);
+    }
+}
@@ -0,0 +1,154 @@
+package com.hannesdorfmann.adapterdelegates4;
+
+import android.view.ViewGroup;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class ViewHolderPreInflaterTest {
+
+    private static class QueueExecutor implements Executor {
+        final List<Runnable> runnables = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            runnables.add(command);
+        }
+
+        void runAll() {
+            for (Runnable runnable : runnables) {
+                runnable.run();
+            }
+            runnables.clear();
+        }
+    }
+
+    @Test
+    public void preInflatedViewHoldersAreUsedFirst() {
+        SpyableAdapterDelegate<List<Object>> d0 = new SpyableAdapterDelegate<>(0);
+        SpyableAdapterDelegate<List<Object>> d1 = new SpyableAdapterDelegate<>(1);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(d0);
+        manager.addDelegate(d1);
+
+        QueueExecutor executor = new QueueExecutor();
+        ViewHolderPreInflater<List<Object>> preInflater =
+                new ViewHolderPreInflater<>(manager, executor).setTarget(0, 2);
+        manager.setViewHolderPreInflater(preInflater);
+
+        preInflater.start(null);
+        Assert.assertEquals(2, executor.runnables.size());
+        Assert.assertFalse(d0.onCreateViewHolderCalled);
+
+        // falls back to synchronous creation as long as nothing has been pre inflated
+        Assert.assertSame(d0.viewHolder, manager.onCreateViewHolder(null, 0));
+        Assert.assertTrue(d0.onCreateViewHolderCalled);
+
+        executor.runAll();
+        Assert.assertEquals(2, preInflater.getAvailableCount(0));
+        d0.reset();
+
+        Assert.assertSame(d0.viewHolder, manager.onCreateViewHolder(null, 0));
+        Assert.assertSame(d0.viewHolder, manager.onCreateViewHolder(null, 0));
+        Assert.assertFalse(d0.onCreateViewHolderCalled);
+        Assert.assertEquals(0, preInflater.getAvailableCount(0));
+
+        manager.onCreateViewHolder(null, 0);
+        Assert.assertTrue(d0.onCreateViewHolderCalled);
+
+        manager.onCreateViewHolder(null, 1);
+        Assert.assertTrue(d1.onCreateViewHolderCalled);
+    }
+
+    @Test
+    public void cancel() {
+        SpyableAdapterDelegate<List<Object>> d0 = new SpyableAdapterDelegate<>(0);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(d0);
+
+        QueueExecutor executor = new QueueExecutor();
+        ViewHolderPreInflater<List<Object>> preInflater =
+                new ViewHolderPreInflater<>(manager, executor).setTarget(0, 3);
+
+        preInflater.start(null);
+        executor.runnables.remove(0).run();
+        Assert.assertEquals(1, preInflater.getAvailableCount(0));
+
+        preInflater.cancel();
+        executor.runAll();
+        Assert.assertEquals(0, preInflater.getAvailableCount(0));
+        Assert.assertNull(preInflater.poll(0));
+    }
+
+    @Test
+    public void startDoesNotQueueMoreThanTheTarget() {
+        SpyableAdapterDelegate<List<Object>> d0 = new SpyableAdapterDelegate<>(0);
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(d0);
+
+        QueueExecutor executor = new QueueExecutor();
+        ViewHolderPreInflater<List<Object>> preInflater =
+                new ViewHolderPreInflater<>(manager, executor).setTarget(0, 3);
+
+        preInflater.start(null);
+        preInflater.start(null);
+        Assert.assertEquals(3, executor.runnables.size());
+
+        executor.runnables.remove(0).run();
+        preInflater.start(null);
+        Assert.assertEquals(2, executor.runnables.size());
+
+        executor.runAll();
+        preInflater.poll(0);
+        preInflater.start(null);
+        Assert.assertEquals(1, executor.runnables.size());
+    }
+
+    @Test
+    public void failedViewTypesAreCreatedSynchronously() {
+        final RuntimeException failure = new RuntimeException("Inflation failed");
+        final boolean[] fail = {true};
+        SpyableAdapterDelegate<List<Object>> d0 = new SpyableAdapterDelegate<List<Object>>(0) {
+            @NonNull
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent) {
+                if (fail[0]) {
+                    throw failure;
+                }
+                return super.onCreateViewHolder(parent);
+            }
+        };
+        AdapterDelegatesManager<List<Object>> manager = new AdapterDelegatesManager<>();
+        manager.addDelegate(d0);
+
+        QueueExecutor executor = new QueueExecutor();
+        ViewHolderPreInflater<List<Object>> preInflater =
+                new ViewHolderPreInflater<>(manager, executor).setTarget(0, 2);
+        manager.setViewHolderPreInflater(preInflater);
+
+        preInflater.start(null);
+        executor.runAll();
+        Assert.assertSame(failure, preInflater.getFailure(0));
+        Assert.assertNull(preInflater.poll(0));
+
+        // i.e. the view only fails off the main thread
+        fail[0] = false;
+        Assert.assertSame(d0.viewHolder, manager.onCreateViewHolder(null, 0));
+
+        // the failed view type isn't pre inflated anymore
+        preInflater.cancel();
+        preInflater.start(null);
+        Assert.assertTrue(executor.runnables.isEmpty());
+        Assert.assertSame(failure, preInflater.getFailure(0));
+    }
+}
@@ -4,6 +4,7 @@ import android.view.ViewGroup;
 
 import com.hannesdorfmann.adapterdelegates4.AdapterDelegate;
 import com.hannesdorfmann.adapterdelegates4.AdapterDelegatesManager;
+import com.hannesdorfmann.adapterdelegates4.CompositeItemCallback;
 
 import java.util.List;
 
@@ -40,6 +41,17 @@ public class PagedListDelegationAdapter<T> extends PagedListAdapter<T, RecyclerV
         this(new AdapterDelegatesManager<List<T>>(), diffCallback);
     }
 
+    /**
+     * Uses a {@link CompositeItemCallback}, so the items are compared by the ItemCallbacks of their
+     * AdapterDelegates (see {@link AdapterDelegate#getItemCallback()}).
+     *
+     * @param delegatesManager The {@link AdapterDelegatesManager}
+     * @since 4.3.3
+     */
+    public PagedListDelegationAdapter(@NonNull AdapterDelegatesManager<List<T>> delegatesManager) {
+        this(delegatesManager, new CompositeItemCallback<T>(delegatesManager));
+    }
+
     public PagedListDelegationAdapter(@NonNull AdapterDelegatesManager<List<T>> delegatesManager,
                                       @NonNull DiffUtil.ItemCallback<T> diffCallback) {
         super(diffCallback);
@@ -112,4 +124,16 @@ public class PagedListDelegationAdapter<T> extends PagedListAdapter<T, RecyclerV
     public void onViewDetachedFromWindow(@NonNull RecyclerView.ViewHolder holder) {
         delegatesManager.onViewDetachedFromWindow(holder);
     }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        delegatesManager.onAttachedToRecyclerView(recyclerView);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        delegatesManager.onDetachedFromRecyclerView(recyclerView);
+    }
 }
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2015 Hannes Dorfmann.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.hannesdorfmann.adapterdelegates4.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Annotation processor that generates an AdapterDelegatesManager subclass for every class annotated
+ * with <code>@GenerateDelegatesManager</code>. The generated class dispatches view types with a chain
+ * of <code>instanceof</code> checks on the item type of each AbsListItemAdapterDelegate.
+ *
+ * @author Hannes Dorfmann
+ * @since 4.3.3
+ */
+public class DelegatesManagerProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION =
+            "com.hannesdorfmann.adapterdelegates4.annotation.GenerateDelegatesManager";
+    static final String ABS_LIST_ITEM_ADAPTER_DELEGATE =
+            "com.hannesdorfmann.adapterdelegates4.AbsListItemAdapterDelegate";
+    static final String ADAPTER_DELEGATES_MANAGER =
+            "com.hannesdorfmann.adapterdelegates4.AdapterDelegatesManager";
+
+    /**
+     * An AdapterDelegate listed in the annotation together with its resolved item type.
+     */
+    private static final class DelegateInfo {
+        final TypeElement element;
+        final TypeMirror itemType;
+        final TypeMirror listItemType;
+        final String constantName;
+        final String parameterName;
+
+        DelegateInfo(TypeElement element, TypeMirror itemType, TypeMirror listItemType,
+                     String constantName, String parameterName) {
+            this.element = element;
+            this.itemType = itemType;
+            this.listItemType = listItemType;
+            this.constantName = constantName;
+            this.parameterName = parameterName;
+        }
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ANNOTATION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if (annotation == null) {
+            return false;
+        }
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (element instanceof TypeElement) {
+                process((TypeElement) element);
+            }
+        }
+        return true;
+    }
+
+    private void process(TypeElement annotated) {
+        Messager messager = processingEnv.getMessager();
+        Types types = processingEnv.getTypeUtils();
+
+        TypeElement absListItemAdapterDelegate =
+                processingEnv.getElementUtils().getTypeElement(ABS_LIST_ITEM_ADAPTER_DELEGATE);
+        if (absListItemAdapterDelegate == null) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    ABS_LIST_ITEM_ADAPTER_DELEGATE + " not found on classpath", annotated);
+            return;
+        }
+
+        AnnotationMirror mirror = findAnnotationMirror(annotated);
+        List<TypeMirror> delegateTypes = new ArrayList<>();
+        String name = "";
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : mirror.getElementValues().entrySet()) {
+            String key = entry.getKey().getSimpleName().toString();
+            if (key.equals("value")) {
+                for (Object value : (List<?>) entry.getValue().getValue()) {
+                    delegateTypes.add((TypeMirror) ((AnnotationValue) value).getValue());
+                }
+            } else if (key.equals("name")) {
+                name = (String) entry.getValue().getValue();
+            }
+        }
+
+        if (delegateTypes.isEmpty()) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "@GenerateDelegatesManager needs at least one AdapterDelegate", annotated, mirror);
+            return;
+        }
+
+        List<DelegateInfo> delegates = new ArrayList<>();
+        Set<String> usedNames = new HashSet<>();
+        boolean valid = true;
+        for (TypeMirror delegateType : delegateTypes) {
+            TypeElement delegateElement = (TypeElement) types.asElement(delegateType);
+            DeclaredType superType = findAbsListItemAdapterDelegate(delegateType,
+                    types.erasure(absListItemAdapterDelegate.asType()));
+            if (superType == null) {
+                messager.printMessage(Diagnostic.Kind.ERROR, delegateElement.getQualifiedName()
+                        + " does not extend AbsListItemAdapterDelegate", annotated, mirror);
+                valid = false;
+                continue;
+            }
+
+            TypeMirror itemType = superType.getTypeArguments().get(0);
+            TypeMirror listItemType = superType.getTypeArguments().get(1);
+            if (itemType.getKind() != TypeKind.DECLARED || listItemType.getKind() != TypeKind.DECLARED) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "The item type of "
+                        + delegateElement.getQualifiedName()
+                        + " could not be resolved to a class", annotated, mirror);
+                valid = false;
+                continue;
+            }
+
+            String simpleName = delegateElement.getSimpleName().toString();
+            String parameterName = Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
+            String constantName = "VIEW_TYPE_" + toConstantName(simpleName);
+            if (!usedNames.add(parameterName)) {
+                parameterName = parameterName + delegates.size();
+                constantName = constantName + "_" + delegates.size();
+            }
+            delegates.add(new DelegateInfo(delegateElement, itemType, listItemType, constantName,
+                    parameterName));
+        }
+
+        if (!valid || !checkDelegates(annotated, mirror, delegates)) {
+            return;
+        }
+
+        String packageName = getPackage(annotated).getQualifiedName().toString();
+        String className = name.isEmpty() ? getFlatName(annotated) + "DelegatesManager" : name;
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                    packageName.isEmpty() ? className : packageName + "." + className, annotated);
+            Writer writer = file.openWriter();
+            try {
+                writer.write(generate(packageName, className, annotated, delegates));
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Could not generate " + className + ": " + e.getMessage(), annotated);
+        }
+    }
+
+    /**
+     * Reports duplicated AdapterDelegates, different list item types and AdapterDelegates that can
+     * never be reached because an AdapterDelegate listed before is responsible for a super type.
+     */
+    private boolean checkDelegates(TypeElement annotated, AnnotationMirror mirror,
+                                   List<DelegateInfo> delegates) {
+        Types types = processingEnv.getTypeUtils();
+        Messager messager = processingEnv.getMessager();
+        boolean valid = true;
+        TypeMirror listItemType = delegates.get(0).listItemType;
+
+        for (int i = 0; i < delegates.size(); i++) {
+            DelegateInfo delegate = delegates.get(i);
+            if (!types.isSameType(listItemType, delegate.listItemType)) {
+                messager.printMessage(Diagnostic.Kind.ERROR, delegate.element.getQualifiedName()
+                        + " is for List<" + delegate.listItemType + "> but "
+                        + delegates.get(0).element.getQualifiedName() + " is for List<"
+                        + listItemType + ">", annotated, mirror);
+                valid = false;
+            }
+
+            for (int j = 0; j < i; j++) {
+                DelegateInfo previous = delegates.get(j);
+                if (types.isSameType(previous.element.asType(), delegate.element.asType())) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, "Duplicate AdapterDelegate "
+                            + delegate.element.getQualifiedName(), annotated, mirror);
+                    valid = false;
+                } else if (types.isSameType(types.erasure(previous.itemType),
+                        types.erasure(delegate.itemType))) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, "Duplicate item type "
+                            + delegate.itemType + ": " + previous.element.getQualifiedName()
+                            + " and " + delegate.element.getQualifiedName(), annotated, mirror);
+                    valid = false;
+                } else if (types.isSubtype(types.erasure(delegate.itemType),
+                        types.erasure(previous.itemType))) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, delegate.element.getQualifiedName()
+                            + " is unreachable because " + previous.element.getQualifiedName()
+                            + " is listed before and is responsible for the super type "
+                            + previous.itemType, annotated, mirror);
+                    valid = false;
+                }
+            }
+        }
+        return valid;
+    }
+
+    private String generate(String packageName, String className, TypeElement annotated,
+                            List<DelegateInfo> delegates) {
+        Types types = processingEnv.getTypeUtils();
+        String listItemType = delegates.get(0).listItemType.toString();
+        StringBuilder b = new StringBuilder();
+
+        if (!packageName.isEmpty()) {
+            b.append("package ").append(packageName).append(";\n\n");
+        }
+        b.append("/**\n")
+                .append(" * Generated by adapterdelegates4-processor for {@link ")
+                .append(annotated.getQualifiedName()).append("}. Do not modify!\n")
+                .append(" */\n");
+        b.append("public final class ").append(className).append(" extends ")
+                .append(ADAPTER_DELEGATES_MANAGER).append("<java.util.List<").append(listItemType)
+                .append(">> {\n\n");
+
+        for (int i = 0; i < delegates.size(); i++) {
+            b.append("    public static final int ").append(delegates.get(i).constantName)
+                    .append(" = ").append(i).append(";\n");
+        }
+
+        b.append("\n    public ").append(className).append("(");
+        for (int i = 0; i < delegates.size(); i++) {
+            DelegateInfo delegate = delegates.get(i);
+            if (i > 0) {
+                b.append(",\n            ");
+            }
+            b.append(delegate.element.getQualifiedName()).append(' ').append(delegate.parameterName);
+        }
+        b.append(") {\n");
+        for (DelegateInfo delegate : delegates) {
+            b.append("        addDelegate(").append(delegate.constantName).append(", ")
+                    .append(delegate.parameterName).append(");\n");
+        }
+        b.append("    }\n\n");
+
+        b.append("    @Override\n")
+                .append("    public int getItemViewType(java.util.List<").append(listItemType)
+                .append("> items, int position) {\n")
+                .append("        if (items == null) {\n")
+                .append("            return super.getItemViewType(items, position);\n")
+                .append("        }\n")
+                .append("        ").append(listItemType).append(" item = items.get(position);\n");
+        for (DelegateInfo delegate : delegates) {
+            b.append("        if (item instanceof ").append(types.erasure(delegate.itemType))
+                    .append(") {\n")
+                    .append("            return ").append(delegate.constantName).append(";\n")
+                    .append("        }\n");
+        }
+        b.append("        return super.getItemViewType(items, position);\n")
+                .append("    }\n")
+                .append("}\n");
+        return b.toString();
+    }
+
+    /**
+     * Walks up the class hierarchy of the given type until AbsListItemAdapterDelegate is found.
+     * Type arguments are resolved while walking up, so that the returned type contains the actual
+     * item and list item type.
+     */
+    private DeclaredType findAbsListItemAdapterDelegate(TypeMirror type, TypeMirror target) {
+        Types types = processingEnv.getTypeUtils();
+        for (TypeMirror superType : types.directSupertypes(type)) {
+            if (types.isSameType(types.erasure(superType), target)) {
+                return (DeclaredType) superType;
+            }
+            DeclaredType found = findAbsListItemAdapterDelegate(superType, target);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    private AnnotationMirror findAnnotationMirror(TypeElement annotated) {
+        for (AnnotationMirror mirror : annotated.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(ANNOTATION)) {
+                return mirror;
+            }
+        }
+        throw new IllegalStateException("@GenerateDelegatesManager not found on " + annotated);
+    }
+
+    private static PackageElement getPackage(Element element) {
+        while (!(element instanceof PackageElement)) {
+            element = element.getEnclosingElement();
+        }
+        return (PackageElement) element;
+    }
+
+    /**
+     * Returns the simple name of the given type including all enclosing types separated by
+     * <code>_</code>, i.e. <code>Outer_Inner</code>.
+     */
+    private static String getFlatName(TypeElement type) {
+        String name = type.getSimpleName().toString();
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing instanceof TypeElement) {
+            name = enclosing.getSimpleName() + "_" + name;
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name;
+    }
+
+    /**
+     * Converts <code>CatAdapterDelegate</code> to <code>CAT_ADAPTER_DELEGATE</code> and
+     * <code>URLDelegate</code> to <code>URL_DELEGATE</code>
+     */
+    static String toConstantName(String simpleName) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < simpleName.length(); i++) {
+            char c = simpleName.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                boolean previousIsUpperCase = Character.isUpperCase(simpleName.charAt(i - 1));
+                boolean nextIsLowerCase = i + 1 < simpleName.length()
+                        && Character.isLowerCase(simpleName.charAt(i + 1));
+                if (!previousIsUpperCase || nextIsLowerCase) {
+                    b.append('_');
+                }
+            }
+            b.append(Character.toUpperCase(c));
+        }
+        return b.toString();
+    }
+}
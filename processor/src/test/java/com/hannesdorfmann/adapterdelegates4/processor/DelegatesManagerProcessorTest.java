@@ -0,0 +1,204 @@
+package com.hannesdorfmann.adapterdelegates4.processor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles sources in memory against minimal stand-ins of the library classes.
+ *
+ * @author Hannes Dorfmann
+ */
+public class DelegatesManagerProcessorTest {
+
+    private static final String[] LIBRARY = {
+            "package com.hannesdorfmann.adapterdelegates4;\n"
+                    + "public abstract class AbsListItemAdapterDelegate<I extends T, T, VH> {}",
+            "package com.hannesdorfmann.adapterdelegates4;\n"
+                    + "public class AdapterDelegatesManager<T> {\n"
+                    + "  public AdapterDelegatesManager<T> addDelegate(int viewType, Object delegate) { return this; }\n"
+                    + "  public int getItemViewType(T items, int position) { return -1; }\n"
+                    + "}",
+            "package com.hannesdorfmann.adapterdelegates4.annotation;\n"
+                    + "public @interface GenerateDelegatesManager {\n"
+                    + "  Class<? extends com.hannesdorfmann.adapterdelegates4.AbsListItemAdapterDelegate>[] value();\n"
+                    + "  String name() default \"\";\n"
+                    + "}",
+            "package test;\n"
+                    + "public class Animal {}",
+            "package test;\n"
+                    + "public class Cat extends Animal {}",
+            "package test;\n"
+                    + "public class Dog extends Animal {}",
+            "package test;\n"
+                    + "public abstract class BaseDelegate<I extends Animal> extends "
+                    + "com.hannesdorfmann.adapterdelegates4.AbsListItemAdapterDelegate<I, Animal, Object> {}",
+            "package test;\n"
+                    + "public class CatAdapterDelegate extends BaseDelegate<Cat> {}",
+            "package test;\n"
+                    + "public class DogAdapterDelegate extends BaseDelegate<Dog> {}",
+            "package test;\n"
+                    + "public class AnimalAdapterDelegate extends BaseDelegate<Animal> {}",
+    };
+
+    @Test
+    public void generatesInstanceOfDispatch() {
+        Result result = compile("package test;\n"
+                + "@com.hannesdorfmann.adapterdelegates4.annotation.GenerateDelegatesManager("
+                + "{CatAdapterDelegate.class, DogAdapterDelegate.class, AnimalAdapterDelegate.class})\n"
+                + "public class Feed {}");
+
+        Assert.assertTrue(result.errors.toString(), result.errors.isEmpty());
+        String generated = result.generated.get("test.FeedDelegatesManager");
+        Assert.assertNotNull(generated);
+        Assert.assertTrue(generated.contains("extends com.hannesdorfmann.adapterdelegates4.AdapterDelegatesManager<java.util.List<test.Animal>>"));
+        Assert.assertTrue(generated.contains("public static final int VIEW_TYPE_CAT_ADAPTER_DELEGATE = 0;"));
+        Assert.assertTrue(generated.contains("public static final int VIEW_TYPE_ANIMAL_ADAPTER_DELEGATE = 2;"));
+        Assert.assertTrue(generated.indexOf("item instanceof test.Cat")
+                < generated.indexOf("item instanceof test.Animal"));
+    }
+
+    @Test
+    public void customName() {
+        Result result = compile("package test;\n"
+                + "@com.hannesdorfmann.adapterdelegates4.annotation.GenerateDelegatesManager("
+                + "value = {CatAdapterDelegate.class}, name = \"CatsManager\")\n"
+                + "public class Feed {}");
+
+        Assert.assertTrue(result.errors.toString(), result.errors.isEmpty());
+        Assert.assertNotNull(result.generated.get("test.CatsManager"));
+    }
+
+    @Test
+    public void duplicateDelegate() {
+        Result result = compile("package test;\n"
+                + "@com.hannesdorfmann.adapterdelegates4.annotation.GenerateDelegatesManager("
+                + "{CatAdapterDelegate.class, CatAdapterDelegate.class})\n"
+                + "public class Feed {}");
+
+        Assert.assertEquals(1, result.errors.size());
+        Assert.assertTrue(result.errors.get(0).startsWith("Duplicate AdapterDelegate"));
+    }
+
+    @Test
+    public void unreachableDelegate() {
+        Result result = compile("package test;\n"
+                + "@com.hannesdorfmann.adapterdelegates4.annotation.GenerateDelegatesManager("
+                + "{AnimalAdapterDelegate.class, DogAdapterDelegate.class})\n"
+                + "public class Feed {}");
+
+        Assert.assertEquals(1, result.errors.size());
+        Assert.assertTrue(result.errors.get(0).contains("is unreachable"));
+    }
+
+    @Test
+    public void toConstantName() {
+        Assert.assertEquals("CAT_ADAPTER_DELEGATE",
+                DelegatesManagerProcessor.toConstantName("CatAdapterDelegate"));
+        Assert.assertEquals("URL_DELEGATE", DelegatesManagerProcessor.toConstantName("URLDelegate"));
+    }
+
+    private static class Result {
+        final List<String> errors = new ArrayList<>();
+        final Map<String, String> generated = new HashMap<>();
+    }
+
+    private static Result compile(String source) {
+        final Result result = new Result();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager standardFileManager =
+                compiler.getStandardFileManager(diagnostics, null, null);
+
+        final Map<String, ByteArrayOutputStream> generatedSources = new HashMap<>();
+        JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(standardFileManager) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, final String className,
+                                                       JavaFileObject.Kind kind, FileObject sibling) {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                if (kind == JavaFileObject.Kind.SOURCE) {
+                    generatedSources.put(className, out);
+                }
+                return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/')
+                        + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return out;
+                    }
+
+                    @Override
+                    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                        return new String(out.toByteArray());
+                    }
+                };
+            }
+        };
+
+        List<JavaFileObject> sources = new ArrayList<>();
+        for (String library : LIBRARY) {
+            sources.add(new Source(library));
+        }
+        sources.add(new Source(source));
+
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                null, null, sources);
+        task.setProcessors(Arrays.asList(new DelegatesManagerProcessor()));
+        task.call();
+
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                result.errors.add(diagnostic.getMessage(null));
+            }
+        }
+        for (Map.Entry<String, ByteArrayOutputStream> entry : generatedSources.entrySet()) {
+            result.generated.put(entry.getKey(), new String(entry.getValue().toByteArray()));
+        }
+        try {
+            fileManager.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    private static class Source extends SimpleJavaFileObject {
+        private final String content;
+
+        Source(String content) {
+            super(URI.create("mem:///" + className(content).replace('.', '/') + Kind.SOURCE.extension),
+                    Kind.SOURCE);
+            this.content = content;
+        }
+
+        private static String className(String content) {
+            String packageName = content.substring("package ".length(), content.indexOf(';'));
+            String afterType = content.replaceFirst("(?s).*?(class|@interface) ", "");
+            return packageName + "." + afterType.split("[ <{]")[0];
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+}